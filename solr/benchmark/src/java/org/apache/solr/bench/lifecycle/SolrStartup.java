@@ -23,8 +23,10 @@ import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.file.PathUtils;
 import org.apache.lucene.util.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.response.CoreAdminResponse;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.embedded.JettyConfig;
 import org.apache.solr.embedded.JettySolrRunner;
 import org.openjdk.jmh.annotations.Benchmark;
@@ -34,6 +36,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -57,10 +60,35 @@ public class SolrStartup {
     threadState.solrRunner.start(false);
   }
 
+  /**
+   * Measures how long it takes until one core serves requests when startup does not wait for all
+   * cores to load. The core sorted last is requested, so it only gets ahead of the others because
+   * of the demand for it.
+   */
+  @Benchmark
+  public void startSolrAndQueryLastCore(OnDemandState threadState) throws Exception {
+    threadState.solrRunner.start(false);
+    String coreName = "core-prefix-" + (threadState.numCores - 1);
+    try (SolrClient client = threadState.solrRunner.newClient()) {
+      while (true) {
+        try {
+          client.query(coreName, new SolrQuery("*:*"));
+          return;
+        } catch (SolrException e) {
+          if (e.code() != SolrException.ErrorCode.SERVICE_UNAVAILABLE.code) {
+            throw e;
+          }
+          Thread.sleep(5);
+        }
+      }
+    }
+  }
+
   @State(Scope.Thread)
   public static class PerThreadState {
 
-    private static final int NUM_CORES = 10;
+    @Param({"10"})
+    public int numCores;
 
     public Path tmpSolrHome;
     public JettySolrRunner solrRunner;
@@ -79,7 +107,7 @@ public class SolrStartup {
       solrRunner = new JettySolrRunner(tmpSolrHome.toString(), buildJettyConfig());
       solrRunner.start(false);
       try (SolrClient client = solrRunner.newClient()) {
-        for (int i = 0; i < NUM_CORES; i++) {
+        for (int i = 0; i < numCores; i++) {
           createCore(client, "core-prefix-" + i);
         }
       }
@@ -113,8 +141,18 @@ public class SolrStartup {
       IOUtils.rm(tmpSolrHome);
     }
 
-    private static JettyConfig buildJettyConfig() {
+    protected JettyConfig buildJettyConfig() {
       return JettyConfig.builder().stopAtShutdown(true).build();
     }
   }
+
+  /** Starts Solr without waiting for its cores to load, so they are loaded as they're requested */
+  @State(Scope.Thread)
+  public static class OnDemandState extends PerThreadState {
+
+    @Override
+    protected JettyConfig buildJettyConfig() {
+      return JettyConfig.builder().stopAtShutdown(true).waitForLoadingCoresToFinish(null).build();
+    }
+  }
 }
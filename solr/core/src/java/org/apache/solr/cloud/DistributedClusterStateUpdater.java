@@ -30,6 +30,7 @@ import static org.apache.solr.common.params.CollectionParams.CollectionAction.DE
 import static org.apache.solr.common.params.CollectionParams.CollectionAction.DELETESHARD;
 import static org.apache.solr.common.params.CollectionParams.CollectionAction.MODIFYCOLLECTION;
 
+import java.io.Closeable;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -37,6 +38,10 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.apache.solr.client.solrj.cloud.SolrCloudManager;
 import org.apache.solr.client.solrj.impl.ZkClientClusterStateProvider;
 import org.apache.solr.cloud.api.collections.CollectionHandlingUtils;
@@ -58,7 +63,9 @@ import org.apache.solr.common.cloud.ZkNodeProps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.CollectionParams;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.Pair;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.Utils;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
@@ -70,7 +77,7 @@ import org.slf4j.LoggerFactory;
  * Gives access to distributed cluster state update methods and allows code to inquire whether
  * distributed state update is enabled.
  */
-public class DistributedClusterStateUpdater {
+public class DistributedClusterStateUpdater implements Closeable {
 
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -80,6 +87,14 @@ public class DistributedClusterStateUpdater {
    */
   private final boolean useDistributedStateUpdate;
 
+  /**
+   * Updates the collections of a node that went down concurrently. Created on the first such
+   * update, and its threads time out when idle.
+   */
+  private ExecutorService nodeDownExecutor;
+
+  private boolean closed;
+
   /**
    * Builds an instance with the specified behavior regarding distribution of state updates,
    * allowing to know distributed updates are not enabled (parameter {@code
@@ -140,7 +155,38 @@ public class DistributedClusterStateUpdater {
       throw new IllegalStateException(
           "Not expecting to execute executeNodeDownStateUpdate when not using distributed state update");
     }
-    CollectionNodeDownChangeCalculator.executeNodeDownStateUpdate(nodeName, zkStateReader);
+    CollectionNodeDownChangeCalculator.executeNodeDownStateUpdate(
+        nodeName, zkStateReader, getNodeDownExecutor());
+  }
+
+  /** Returns the executor updating collections concurrently, or null to update them serially. */
+  private synchronized ExecutorService getNodeDownExecutor() {
+    if (nodeDownExecutor == null && !closed && Overseer.STATE_UPDATE_THREADS > 1) {
+      ExecutorUtil.MDCAwareThreadPoolExecutor executor =
+          new ExecutorUtil.MDCAwareThreadPoolExecutor(
+              Overseer.STATE_UPDATE_THREADS,
+              Overseer.STATE_UPDATE_THREADS,
+              60L,
+              TimeUnit.SECONDS,
+              new LinkedBlockingQueue<>(),
+              new SolrNamedThreadFactory("distributedNodeDownStateUpdate"));
+      executor.allowCoreThreadTimeOut(true);
+      nodeDownExecutor = executor;
+    }
+    return nodeDownExecutor;
+  }
+
+  @Override
+  public void close() {
+    ExecutorService executor;
+    synchronized (this) {
+      closed = true;
+      executor = nodeDownExecutor;
+      nodeDownExecutor = null;
+    }
+    if (executor != null) {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
   }
 
   /**
@@ -914,8 +960,11 @@ public class DistributedClusterStateUpdater {
     /**
      * Entry point to mark all replicas of all collections present on a single node as being DOWN
      * (because the node is down)
+     *
+     * @param executor updates the collections concurrently, or null to update them serially
      */
-    public static void executeNodeDownStateUpdate(String nodeName, ZkStateReader zkStateReader) {
+    public static void executeNodeDownStateUpdate(
+        String nodeName, ZkStateReader zkStateReader, ExecutorService executor) {
       // This code does a version of what NodeMutator.downNode() is doing. We can't assume we have a
       // cache of the collections, so we're going to read all of them from ZK, fetch the state.json
       // for each and if it has any replicas on the failed node, do an update (conditional of
@@ -937,12 +986,25 @@ public class DistributedClusterStateUpdater {
         final List<String> collectionNames =
             zkStateReader.getZkClient().getChildren(COLLECTIONS_ZKNODE, null, true);
 
-        // Collections are totally independent of each other. Multiple threads could share the load
-        // here (need a ZK connection for each though).
+        // Collections are totally independent of each other, so they are updated concurrently on a
+        // bounded pool, as the Overseer does for its batches (see Overseer.STATE_UPDATE_THREADS).
+        // Each collection update is a CAS on its own state.json, so there are no ordering concerns.
+        List<Callable<Void>> tasks = new ArrayList<>(collectionNames.size());
         for (String collectionName : collectionNames) {
-          CollectionNodeDownChangeCalculator collectionUpdater =
-              new CollectionNodeDownChangeCalculator(collectionName, nodeName);
-          ZkUpdateApplicator.applyUpdate(zkStateReader, collectionUpdater);
+          tasks.add(
+              () -> {
+                CollectionNodeDownChangeCalculator collectionUpdater =
+                    new CollectionNodeDownChangeCalculator(collectionName, nodeName);
+                ZkUpdateApplicator.applyUpdate(zkStateReader, collectionUpdater);
+                return null;
+              });
+        }
+        if (executor == null || tasks.size() <= 1) {
+          for (Callable<Void> task : tasks) {
+            task.call();
+          }
+        } else {
+          ExecutorUtil.submitAllAndAwaitAggregatingExceptions(executor, tasks);
         }
       } catch (Exception e) {
         if (e instanceof InterruptedException) {
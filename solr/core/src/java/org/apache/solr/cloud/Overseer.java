@@ -31,6 +31,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import org.apache.lucene.util.Version;
@@ -63,10 +65,12 @@ import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.params.CollectionAdminParams;
 import org.apache.solr.common.params.CollectionParams;
 import org.apache.solr.common.util.Compressor;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.ObjectReleaseTracker;
 import org.apache.solr.common.util.Pair;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.common.util.ZLibCompressor;
@@ -135,8 +139,9 @@ import org.slf4j.LoggerFactory;
  *       </ol>
  *   <li>The {@link ClusterStateUpdater} (also running on the Overseer node) dequeues the state
  *       change message and creates the <code>state.json</code> file in ZooKeeper for the
- *       Collection. All the work of the cluster state updater (creations, updates, deletes) is done
- *       sequentially for the whole cluster by a single thread.
+ *       Collection. Messages are dequeued by a single thread, and the resulting <code>state.json
+ *       </code> writes of a batch are spread by collection over a bounded pool of {@link
+ *       #STATE_UPDATE_THREADS} threads, keeping the order of updates within each collection.
  *   <li>The {@link CreateCollectionCmd} sees the state change in ZooKeeper and:
  *       <ol start="5">
  *         <li>Builds and sends requests to each node to create the appropriate cores for all the
@@ -158,6 +163,12 @@ public class Overseer implements SolrCloseable {
       Integer.getInteger("solr.OverseerStateUpdateBatchSize", 10000);
   public static final int STATE_UPDATE_MAX_QUEUE =
       Integer.getInteger("solr.OverseerStateUpdateMaxQueueSize", 20000);
+  /**
+   * Number of threads writing the state of distinct collections concurrently. A value of 1 writes
+   * all collections serially from the cluster state updater thread.
+   */
+  public static final int STATE_UPDATE_THREADS =
+      Integer.getInteger("solr.OverseerStateUpdateThreads", 4);
 
   public static final int NUM_RESPONSES_TO_STORE = 10000;
   public static final String OVERSEER_ELECT = "/overseer_elect";
@@ -179,7 +190,9 @@ public class Overseer implements SolrCloseable {
    * <code>/overseer/queue</code> and executing the requested cluster change (essentially writing or
    * updating <code>state.json</code> for a collection).
    *
-   * <p>The cluster state updater is a single thread dequeueing and executing requests.
+   * <p>The cluster state updater is a single thread dequeueing and executing requests. Writes of
+   * the resulting state of distinct collections are done concurrently, see {@link
+   * #STATE_UPDATE_THREADS}.
    */
   private class ClusterStateUpdater implements Runnable, Closeable {
 
@@ -207,6 +220,11 @@ public class Overseer implements SolrCloseable {
 
     private final Compressor compressor;
 
+    // writes the state of distinct collections concurrently, null when STATE_UPDATE_THREADS <= 1
+    private final ExecutorService collectionUpdateExecutor;
+
+    private final Timer batchTimer;
+
     private boolean isClosed = false;
 
     public ClusterStateUpdater(
@@ -226,6 +244,11 @@ public class Overseer implements SolrCloseable {
       this.reader = reader;
       this.minStateByteLenForCompression = minStateByteLenForCompression;
       this.compressor = compressor;
+      this.collectionUpdateExecutor =
+          STATE_UPDATE_THREADS > 1
+              ? ExecutorUtil.newMDCAwareFixedThreadPool(
+                  STATE_UPDATE_THREADS, new SolrNamedThreadFactory("overseerStateUpdate"))
+              : null;
 
       clusterStateUpdaterMetricContext = solrMetricsContext.getChildContext(this);
       clusterStateUpdaterMetricContext.gauge(
@@ -233,6 +256,15 @@ public class Overseer implements SolrCloseable {
           true,
           "stateUpdateQueueSize",
           "queue");
+      clusterStateUpdaterMetricContext.gauge(
+          () ->
+              collectionUpdateExecutor instanceof ThreadPoolExecutor
+                  ? ((ThreadPoolExecutor) collectionUpdateExecutor).getQueue().size()
+                  : 0,
+          true,
+          "stateUpdatePendingWrites",
+          "queue");
+      batchTimer = clusterStateUpdaterMetricContext.timer("stateUpdateBatchTime", "queue");
     }
 
     public Stats getStateUpdateQueueStats() {
@@ -279,7 +311,12 @@ public class Overseer implements SolrCloseable {
               reader.forciblyRefreshAllClusterStateSlow();
               clusterState = reader.getClusterState();
               zkStateWriter =
-                  new ZkStateWriter(reader, stats, minStateByteLenForCompression, compressor);
+                  new ZkStateWriter(
+                      reader,
+                      stats,
+                      minStateByteLenForCompression,
+                      compressor,
+                      collectionUpdateExecutor);
               refreshClusterState = false;
 
               // if there were any errors while processing
@@ -347,6 +384,7 @@ public class Overseer implements SolrCloseable {
           } catch (Exception e) {
             log.error("Exception in Overseer main queue loop", e);
           }
+          final Timer.Context batchTimerContext = batchTimer.time();
           try {
             Set<String> processedNodes = new HashSet<>();
             while (queue != null && !queue.isEmpty()) {
@@ -407,6 +445,8 @@ public class Overseer implements SolrCloseable {
           } catch (Exception e) {
             log.error("Exception in Overseer main queue loop", e);
             refreshClusterState = true; // it might have been a bad version error
+          } finally {
+            batchTimerContext.stop();
           }
         }
       } finally {
@@ -654,6 +694,9 @@ public class Overseer implements SolrCloseable {
     @Override
     public void close() {
       this.isClosed = true;
+      if (collectionUpdateExecutor != null) {
+        ExecutorUtil.shutdownAndAwaitTermination(collectionUpdateExecutor);
+      }
       clusterStateUpdaterMetricContext.unregister();
     }
   }
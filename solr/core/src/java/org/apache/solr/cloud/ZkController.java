@@ -760,6 +760,7 @@ public class ZkController implements Closeable {
     } finally {
 
       sysPropsCacher.close();
+      customThreadPool.submit(() -> IOUtils.closeQuietly(distributedClusterStateUpdater));
       customThreadPool.submit(() -> IOUtils.closeQuietly(cloudSolrClient));
       customThreadPool.submit(() -> IOUtils.closeQuietly(cloudManager));
 
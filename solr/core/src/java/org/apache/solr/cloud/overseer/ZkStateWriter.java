@@ -20,16 +20,22 @@ import static java.util.Collections.singletonMap;
 
 import com.codahale.metrics.Timer;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import org.apache.solr.cloud.Overseer;
 import org.apache.solr.cloud.Stats;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.PerReplicaStates;
 import org.apache.solr.common.cloud.PerReplicaStatesOps;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.Compressor;
@@ -53,6 +59,10 @@ import org.slf4j.LoggerFactory;
  * #writePendingUpdates()} throws a {@link org.apache.zookeeper.KeeperException.BadVersionException}
  * then the internal buffered state of the class is suspect and the current instance of the class
  * should be discarded and a new instance should be created and used for any future updates.
+ *
+ * <p>When built with an {@link ExecutorService}, a flush writes the <code>state.json</code> of
+ * distinct collections concurrently on that executor. Updates for a single collection are still
+ * written in order since each flush holds at most one update per collection.
  */
 public class ZkStateWriter {
   private static final long MAX_FLUSH_INTERVAL =
@@ -84,11 +94,23 @@ public class ZkStateWriter {
 
   protected Compressor compressor;
 
+  /** Executor used to write updates of distinct collections concurrently, null to write serially */
+  private final ExecutorService executor;
+
   public ZkStateWriter(
       ZkStateReader zkStateReader,
       Stats stats,
       int minStateByteLenForCompression,
       Compressor compressor) {
+    this(zkStateReader, stats, minStateByteLenForCompression, compressor, null);
+  }
+
+  public ZkStateWriter(
+      ZkStateReader zkStateReader,
+      Stats stats,
+      int minStateByteLenForCompression,
+      Compressor compressor,
+      ExecutorService executor) {
     assert zkStateReader != null;
 
     this.reader = zkStateReader;
@@ -96,6 +118,7 @@ public class ZkStateWriter {
     this.clusterState = zkStateReader.getClusterState();
     this.minStateByteLenForCompression = minStateByteLenForCompression;
     this.compressor = compressor;
+    this.executor = executor;
   }
 
   /**
@@ -260,76 +283,12 @@ public class ZkStateWriter {
     boolean success = false;
     try {
       if (!updates.isEmpty()) {
-        for (Map.Entry<String, ZkWriteCommand> entry : updates.entrySet()) {
-          String name = entry.getKey();
-          String path = DocCollection.getCollectionPath(name);
-          ZkWriteCommand cmd = entry.getValue();
-          DocCollection c = cmd.collection;
-
-          // Update the Per Replica State znodes if needed
-          if (cmd.ops != null) {
-            cmd.ops.persist(path, reader.getZkClient());
-
+        if (executor != null && updates.size() > 1) {
+          writeCollectionUpdatesInParallel(updates);
+        } else {
+          for (Map.Entry<String, ZkWriteCommand> entry : updates.entrySet()) {
             clusterState =
-                clusterState.copyWith(
-                    name,
-                    cmd.collection.setPerReplicaStates(
-                        PerReplicaStatesOps.fetch(
-                            cmd.collection.getZNode(), reader.getZkClient(), null)));
-          }
-
-          // Update the state.json file if needed
-          if (!cmd.persistJsonState) continue;
-          if (c == null) {
-            // let's clean up the state.json of this collection only, the rest should be cleaned by
-            // delete collection cmd
-            log.debug("going to delete state.json {}", path);
-            reader.getZkClient().clean(path);
-          } else {
-            byte[] data = Utils.toJSON(singletonMap(c.getName(), c));
-            if (minStateByteLenForCompression > -1 && data.length > minStateByteLenForCompression) {
-              // When compressing state.json, we expect at least a 10:1 compression ratio.
-              data = compressor.compressBytes(data, data.length / 10);
-            }
-            if (reader.getZkClient().exists(path, true)) {
-              if (log.isDebugEnabled()) {
-                log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
-              }
-              Stat stat = reader.getZkClient().setData(path, data, c.getZNodeVersion(), true);
-              DocCollection newCollection =
-                  DocCollection.create(
-                      name,
-                      c.getSlicesMap(),
-                      c.getProperties(),
-                      c.getRouter(),
-                      stat.getVersion(),
-                      PerReplicaStatesOps.getZkClientPrsSupplier(reader.getZkClient(), path));
-              clusterState = clusterState.copyWith(name, newCollection);
-            } else {
-              log.debug("going to create_collection {}", path);
-              reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true);
-              DocCollection newCollection =
-                  DocCollection.create(
-                      name,
-                      c.getSlicesMap(),
-                      c.getProperties(),
-                      c.getRouter(),
-                      0,
-                      PerReplicaStatesOps.getZkClientPrsSupplier(reader.getZkClient(), path));
-              clusterState = clusterState.copyWith(name, newCollection);
-            }
-          }
-
-          if (cmd.ops == null && cmd.isPerReplicaStateCollection) {
-            DocCollection currentCollState = clusterState.getCollection(cmd.name);
-            if (currentCollState != null) {
-              clusterState =
-                  clusterState.copyWith(
-                      name,
-                      currentCollState.setPerReplicaStates(
-                          PerReplicaStatesOps.fetch(
-                              currentCollState.getZNode(), reader.getZkClient(), null)));
-            }
+                writeCollectionUpdate(entry.getKey(), entry.getValue()).apply(clusterState);
           }
         }
 
@@ -357,6 +316,119 @@ public class ZkStateWriter {
     return clusterState;
   }
 
+  /**
+   * Writes the updates of distinct collections concurrently using {@link #executor}. Each
+   * collection has at most one pending {@link ZkWriteCommand} per flush and flushes never overlap,
+   * so the order of updates within a collection is preserved. The resulting changes are applied to
+   * the cluster state on the calling thread once the ZooKeeper writes complete, including those of
+   * collections that succeeded when another collection failed.
+   */
+  private void writeCollectionUpdatesInParallel(Map<String, ZkWriteCommand> updates)
+      throws KeeperException, InterruptedException {
+    List<Future<Function<ClusterState, ClusterState>>> futures = new ArrayList<>(updates.size());
+    for (Map.Entry<String, ZkWriteCommand> entry : updates.entrySet()) {
+      futures.add(
+          executor.submit(() -> writeCollectionUpdate(entry.getKey(), entry.getValue())));
+    }
+    Throwable failure = null;
+    for (Future<Function<ClusterState, ClusterState>> future : futures) {
+      try {
+        clusterState = future.get().apply(clusterState);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        } else {
+          failure.addSuppressed(e.getCause());
+        }
+      }
+    }
+    if (failure instanceof KeeperException) {
+      throw (KeeperException) failure;
+    } else if (failure instanceof InterruptedException) {
+      throw (InterruptedException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR, "Failed to write collection state", failure);
+    }
+  }
+
+  /**
+   * Persists the update of a single collection to ZooKeeper. This method only reads the fields of
+   * this instance that do not change and may therefore run concurrently for distinct collections.
+   *
+   * @return the change to apply to the cluster state to reflect what was written
+   */
+  private Function<ClusterState, ClusterState> writeCollectionUpdate(
+      String name, ZkWriteCommand cmd) throws KeeperException, InterruptedException {
+    String path = DocCollection.getCollectionPath(name);
+    DocCollection c = cmd.collection;
+    Function<ClusterState, ClusterState> result = Function.identity();
+
+    // Update the Per Replica State znodes if needed
+    if (cmd.ops != null) {
+      cmd.ops.persist(path, reader.getZkClient());
+
+      DocCollection withStates =
+          cmd.collection.setPerReplicaStates(
+              PerReplicaStatesOps.fetch(cmd.collection.getZNode(), reader.getZkClient(), null));
+      result = result.andThen(state -> state.copyWith(name, withStates));
+    }
+
+    // Update the state.json file if needed
+    if (!cmd.persistJsonState) return result;
+    if (c == null) {
+      // let's clean up the state.json of this collection only, the rest should be cleaned by
+      // delete collection cmd
+      log.debug("going to delete state.json {}", path);
+      reader.getZkClient().clean(path);
+    } else {
+      byte[] data = Utils.toJSON(singletonMap(c.getName(), c));
+      if (minStateByteLenForCompression > -1 && data.length > minStateByteLenForCompression) {
+        // When compressing state.json, we expect at least a 10:1 compression ratio.
+        data = compressor.compressBytes(data, data.length / 10);
+      }
+      final int version;
+      if (reader.getZkClient().exists(path, true)) {
+        if (log.isDebugEnabled()) {
+          log.debug("going to update_collection {} version: {}", path, c.getZNodeVersion());
+        }
+        Stat stat = reader.getZkClient().setData(path, data, c.getZNodeVersion(), true);
+        version = stat.getVersion();
+      } else {
+        log.debug("going to create_collection {}", path);
+        reader.getZkClient().create(path, data, CreateMode.PERSISTENT, true);
+        version = 0;
+      }
+      DocCollection newCollection =
+          DocCollection.create(
+              name,
+              c.getSlicesMap(),
+              c.getProperties(),
+              c.getRouter(),
+              version,
+              PerReplicaStatesOps.getZkClientPrsSupplier(reader.getZkClient(), path));
+      result = result.andThen(state -> state.copyWith(name, newCollection));
+    }
+
+    if (cmd.ops == null && cmd.isPerReplicaStateCollection) {
+      PerReplicaStates perReplicaStates =
+          PerReplicaStatesOps.fetch(path, reader.getZkClient(), null);
+      result =
+          result.andThen(
+              state -> {
+                DocCollection currentCollState = state.getCollectionOrNull(name);
+                return currentCollState == null
+                    ? state
+                    : state.copyWith(name, currentCollState.setPerReplicaStates(perReplicaStates));
+              });
+    }
+    return result;
+  }
+
   public void resetPendingUpdateCounters() {
     lastUpdatedTime = System.nanoTime();
     numUpdates = 0;
@@ -71,6 +71,7 @@ import org.apache.solr.client.solrj.impl.SolrHttpClientBuilder;
 import org.apache.solr.client.solrj.impl.SolrHttpClientContextBuilder;
 import org.apache.solr.client.solrj.impl.SolrHttpClientContextBuilder.AuthSchemeRegistryProvider;
 import org.apache.solr.client.solrj.impl.SolrHttpClientContextBuilder.CredentialsProviderProvider;
+import org.apache.solr.client.solrj.impl.ZkClientClusterStateProvider;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.util.SolrIdentifierValidator;
 import org.apache.solr.cloud.CloudDescriptor;
@@ -253,6 +254,9 @@ public class CoreContainer {
 
   private volatile boolean asyncSolrCoreLoad;
 
+  // orders the loading of cores on startup, null before load() schedules them
+  private volatile CoreLoadScheduler coreLoadScheduler;
+
   protected volatile SecurityConfHandler securityConfHandler;
 
   private volatile SecurityPluginHolder<AuthorizationPlugin> authorizationPlugin;
@@ -830,6 +834,10 @@ public class CoreContainer {
     if (isZooKeeperAware()) {
       // initialize ZkClient metrics
       zkSys.getZkMetricsProducer().initializeMetrics(solrMetricsContext, "zkClient");
+      // streams reading from this cluster share the node's view of the cluster state
+      solrClientCache.setClusterStateProvider(
+          zkSys.getZkController().getZkServerAddress(),
+          new ZkClientClusterStateProvider(zkSys.getZkController().getZkStateReader()));
       pkiAuthenticationSecurityBuilder =
           new PKIAuthenticationPlugin(
               this,
@@ -1016,6 +1024,7 @@ public class CoreContainer {
             SolrMetricManager.mkName(
                 "coreLoadExecutor", SolrInfoBean.Category.CONTAINER.toString(), "threadPool"));
     final List<Future<SolrCore>> futures = new ArrayList<>();
+    final CoreLoadScheduler scheduler = new CoreLoadScheduler();
     try {
       List<CoreDescriptor> cds = coresLocator.discover(this);
       cds = CoreSorter.sortCores(this, cds);
@@ -1030,7 +1039,8 @@ public class CoreContainer {
         }
         if (cd.isLoadOnStartup()) {
           futures.add(
-              coreLoadExecutor.submit(
+              scheduler.add(
+                  cd.getName(),
                   () -> {
                     SolrCore core;
                     try {
@@ -1060,6 +1070,9 @@ public class CoreContainer {
       backgroundCloser.start();
 
     } finally {
+      // start loading whatever got scheduled, the futures are awaited below
+      coreLoadScheduler = scheduler;
+      scheduler.start(coreLoadExecutor, cfg.getCoreLoadThreadCount(isZooKeeperAware()));
       if (asyncSolrCoreLoad && futures != null) {
 
         coreContainerWorkExecutor.submit(
@@ -2311,9 +2324,21 @@ public class CoreContainer {
   }
 
   public void waitForLoadingCore(String name, long timeoutMs) {
+    prioritizeCoreLoad(name);
     solrCores.waitForLoadingCoreToFinish(name, timeoutMs);
   }
 
+  /**
+   * Signals demand for a core that is still waiting to be loaded on startup, moving it ahead of
+   * the cores nobody asked for yet. Does nothing if the core is not waiting to be loaded.
+   */
+  public void prioritizeCoreLoad(String name) {
+    CoreLoadScheduler scheduler = coreLoadScheduler;
+    if (scheduler != null && scheduler.prioritize(name)) {
+      log.info("Prioritizing the load of core {} on demand", name);
+    }
+  }
+
   // ---------------- CoreContainer request handlers --------------
 
   protected <T> T createHandler(String path, String handlerClass, Class<T> clazz) {
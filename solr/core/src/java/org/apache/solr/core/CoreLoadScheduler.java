@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Schedules the loading of the cores discovered on startup over a fixed number of workers. Cores
+ * are loaded in the order they were added (see {@link CoreSorter}), except that cores for which
+ * there is demand, i.e. a request arrived while they were still waiting to be loaded, are moved
+ * ahead of all cores nobody asked for yet. On a node with many cores this gets the cores actually
+ * being queried back into service first instead of after all the cores sorted before them.
+ */
+final class CoreLoadScheduler {
+
+  private static final long NO_DEMAND = Long.MAX_VALUE;
+
+  private final PriorityQueue<LoadTask> queue = new PriorityQueue<>();
+  private final Map<String, LoadTask> waiting = new HashMap<>();
+  private int nextOrder = 0;
+  private long nextDemand = 0;
+
+  /**
+   * Adds a core to load. Must be called for all cores before {@link #start(ExecutorService, int)}.
+   *
+   * @return the future result of the load
+   */
+  synchronized Future<SolrCore> add(String coreName, Callable<SolrCore> load) {
+    LoadTask task = new LoadTask(coreName, nextOrder++, load);
+    waiting.put(coreName, task);
+    queue.add(task);
+    return task;
+  }
+
+  /** Submits up to {@code numWorkers} workers, each loading cores until none is left */
+  void start(ExecutorService executor, int numWorkers) {
+    int workers = Math.min(numWorkers, size());
+    for (int i = 0; i < workers; i++) {
+      executor.execute(
+          () -> {
+            LoadTask task;
+            while ((task = next()) != null) {
+              task.run();
+            }
+          });
+    }
+  }
+
+  /**
+   * Moves the given core ahead of all cores waiting to be loaded that were not prioritized before.
+   *
+   * @return true if the core was waiting to be loaded and got prioritized by this call
+   */
+  synchronized boolean prioritize(String coreName) {
+    LoadTask task = waiting.get(coreName);
+    if (task == null || task.demand != NO_DEMAND) {
+      return false;
+    }
+    queue.remove(task);
+    task.demand = nextDemand++;
+    queue.add(task);
+    return true;
+  }
+
+  /** Number of cores still waiting to be loaded */
+  synchronized int size() {
+    return queue.size();
+  }
+
+  private synchronized LoadTask next() {
+    LoadTask task = queue.poll();
+    if (task != null) {
+      waiting.remove(task.coreName);
+    }
+    return task;
+  }
+
+  private static final class LoadTask extends FutureTask<SolrCore>
+      implements Comparable<LoadTask> {
+    final String coreName;
+    final int order;
+    // the n-th core with demand gets n, guarded by the scheduler's monitor
+    long demand = NO_DEMAND;
+
+    LoadTask(String coreName, int order, Callable<SolrCore> load) {
+      super(load);
+      this.coreName = coreName;
+      this.order = order;
+    }
+
+    @Override
+    public int compareTo(LoadTask other) {
+      int cmp = Long.compare(demand, other.demand);
+      return cmp != 0 ? cmp : Integer.compare(order, other.order);
+    }
+  }
+}
@@ -81,6 +81,8 @@ import org.apache.solr.search.CaffeineCache;
 import org.apache.solr.search.QParserPlugin;
 import org.apache.solr.search.SolrCache;
 import org.apache.solr.search.ValueSourceParser;
+import org.apache.solr.search.join.GraphIndex;
+import org.apache.solr.search.join.JoinIndex;
 import org.apache.solr.search.stats.StatsCache;
 import org.apache.solr.servlet.SolrRequestParsers;
 import org.apache.solr.spelling.QueryConverter;
@@ -310,6 +312,13 @@ public class SolrConfig implements MapSerializable {
       queryResultMaxDocsCached =
           get("query").get("queryResultMaxDocsCached").intVal(Integer.MAX_VALUE);
       enableLazyFieldLoading = get("query").get("enableLazyFieldLoading").boolVal(false);
+      coalesceQueries = get("query").get("coalesceQueries").boolVal(false);
+      canonicalizeQueries = get("query").get("canonicalizeQueries").boolVal(false);
+      ConfigNode segmentFilterCache = get("query").get("segmentFilterCache");
+      segmentFilterCacheMaxRamMB =
+          segmentFilterCache.exists() && segmentFilterCache.boolAttr("enabled", true)
+              ? segmentFilterCache.intAttr("maxRamMB", 256)
+              : -1;
 
       filterCacheConfig =
           CacheConfig.getConfig(this, get("query").get("filterCache"), "query/filterCache");
@@ -354,6 +363,14 @@ public class SolrConfig implements MapSerializable {
           userCacheConfigs.put(c.name, CacheConfig.getConfig(this, "cache", c.attributes, null));
         }
       }
+      CacheConfig joinIndexCacheConfig = userCacheConfigs.get(JoinIndex.CACHE_NAME);
+      if (joinIndexCacheConfig != null && joinIndexCacheConfig.getRegenerator() == null) {
+        joinIndexCacheConfig.setRegenerator(new JoinIndex.Regenerator());
+      }
+      CacheConfig graphIndexCacheConfig = userCacheConfigs.get(GraphIndex.CACHE_NAME);
+      if (graphIndexCacheConfig != null && graphIndexCacheConfig.getRegenerator() == null) {
+        graphIndexCacheConfig.setRegenerator(new GraphIndex.Regenerator());
+      }
       this.userCacheConfigs = Collections.unmodifiableMap(userCacheConfigs);
 
       updateHandlerInfo = loadUpdatehandlerInfo();
@@ -682,6 +699,10 @@ public class SolrConfig implements MapSerializable {
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
+  public final boolean coalesceQueries;
+  public final boolean canonicalizeQueries;
+  // -1 if the segment filter cache is disabled
+  public final int segmentFilterCacheMaxRamMB;
 
   // IndexConfig settings
   public final SolrIndexConfig indexConfig;
@@ -1017,6 +1038,9 @@ public class SolrConfig implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    m.put("coalesceQueries", coalesceQueries);
+    m.put("canonicalizeQueries", canonicalizeQueries);
+    m.put("segmentFilterCacheMaxRamMB", segmentFilterCacheMaxRamMB);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
 
     for (SolrPluginInfo plugin : plugins) {
@@ -147,6 +147,7 @@ import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.ManagedIndexSchema;
 import org.apache.solr.schema.SimilarityFactory;
 import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SegmentFilterCache;
 import org.apache.solr.search.SolrFieldCacheBean;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.ValueSourceParser;
@@ -248,6 +249,9 @@ public class SolrCore implements SolrInfoBean, Closeable {
 
   private final CircuitBreakerRegistry circuitBreakerRegistry = new CircuitBreakerRegistry();
 
+  // shared by all searchers of this core, null if disabled
+  private final SegmentFilterCache segmentFilterCache;
+
   private final List<Runnable> confListeners = new CopyOnWriteArrayList<>();
 
   private final ReentrantLock ruleExpiryLock;
@@ -1083,6 +1087,10 @@ public class SolrCore implements SolrInfoBean, Closeable {
       IndexSchema schema = configSet.getIndexSchema();
 
       this.configSetProperties = configSet.getProperties();
+      this.segmentFilterCache =
+          solrConfig.segmentFilterCacheMaxRamMB < 0
+              ? null
+              : new SegmentFilterCache(solrConfig.segmentFilterCacheMaxRamMB);
       // Initialize the metrics manager
       this.coreMetricManager = initCoreMetricManager(solrConfig);
       solrMetricsContext = coreMetricManager.getSolrMetricsContext();
@@ -1343,6 +1351,14 @@ public class SolrCore implements SolrInfoBean, Closeable {
         "coreName",
         Category.CORE.toString());
     parentContext.gauge(() -> startTime, true, "startTime", Category.CORE.toString());
+    if (segmentFilterCache != null) {
+      parentContext.gauge(
+          segmentFilterCache.getMetricsMap(),
+          true,
+          "segmentFilterCache",
+          Category.CACHE.toString(),
+          "searcher");
+    }
     parentContext.gauge(() -> getOpenCount(), true, "refCount", Category.CORE.toString());
     parentContext.gauge(
         () -> getInstancePath().toString(), true, "instanceDir", Category.CORE.toString());
@@ -1701,6 +1717,11 @@ public class SolrCore implements SolrInfoBean, Closeable {
     return updateProcessors;
   }
 
+  /** The per-segment filter cache shared by the searchers of this core, or null if disabled. */
+  public SegmentFilterCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
   public CircuitBreakerRegistry getCircuitBreakerRegistry() {
     return circuitBreakerRegistry;
   }
@@ -30,6 +30,8 @@ import static org.apache.solr.handler.ReplicationHandler.CONF_FILES;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILE_SHORT;
 import static org.apache.solr.handler.ReplicationHandler.EXTERNAL;
 import static org.apache.solr.handler.ReplicationHandler.FETCH_FROM_LEADER;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_FROM_PEERS;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_THREADS;
 import static org.apache.solr.handler.ReplicationHandler.FILE;
 import static org.apache.solr.handler.ReplicationHandler.FILE_STREAM;
 import static org.apache.solr.handler.ReplicationHandler.GENERATION;
@@ -37,6 +39,7 @@ import static org.apache.solr.handler.ReplicationHandler.INTERNAL;
 import static org.apache.solr.handler.ReplicationHandler.LEADER_URL;
 import static org.apache.solr.handler.ReplicationHandler.LEGACY_LEADER_URL;
 import static org.apache.solr.handler.ReplicationHandler.LEGACY_SKIP_COMMIT_ON_LEADER_VERSION_ZERO;
+import static org.apache.solr.handler.ReplicationHandler.MAX_FETCH_PER_SECOND;
 import static org.apache.solr.handler.ReplicationHandler.OFFSET;
 import static org.apache.solr.handler.ReplicationHandler.SIZE;
 import static org.apache.solr.handler.ReplicationHandler.SKIP_COMMIT_ON_LEADER_VERSION_ZERO;
@@ -65,6 +68,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -73,11 +77,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -87,6 +95,7 @@ import java.util.zip.InflaterInputStream;
 import org.apache.http.client.HttpClient;
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.store.Directory;
@@ -95,6 +104,7 @@ import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
@@ -106,7 +116,9 @@ import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
@@ -176,6 +188,9 @@ public class IndexFetcher {
 
   private volatile boolean stop = false;
 
+  // set when one of the concurrent fetchers failed, so that the others give up
+  private volatile boolean fetchFailed = false;
+
   private boolean useInternalCompression = false;
 
   private boolean useExternalCompression = false;
@@ -190,6 +205,20 @@ public class IndexFetcher {
 
   private boolean downloadTlogFiles = false;
 
+  // number of index files downloaded concurrently
+  private final int fetchThreads;
+
+  // limits the total download rate of all files being fetched, null if unlimited
+  private final RateLimiter fetchRateLimiter;
+
+  // in SolrCloud, whether index files may be fetched from other replicas holding identical copies
+  private final boolean fetchFromPeers;
+
+  // replicas holding an identical copy of index files being fetched, by file name
+  private volatile Map<String, List<PeerSource>> peerSources = Collections.emptyMap();
+
+  private final AtomicInteger nextPeerSource = new AtomicInteger();
+
   private boolean skipCommitOnLeaderVersionZero = true;
 
   private boolean clearLocalIndexFirst = false;
@@ -320,6 +349,24 @@ public class IndexFetcher {
     myHttpClient =
         createHttpClient(
             solrCore, httpBasicAuthUser, httpBasicAuthPassword, useExternalCompression);
+
+    Object fetchThreadsArg = initArgs.get(FETCH_THREADS);
+    fetchThreads =
+        fetchThreadsArg != null
+            ? Integer.parseInt(fetchThreadsArg.toString())
+            : Integer.getInteger("solr.indexfetcher.fetchThreads", 1);
+    Object maxFetchRateArg = initArgs.get(MAX_FETCH_PER_SECOND);
+    double maxFetchMBPerSec =
+        maxFetchRateArg != null
+            ? Double.parseDouble(maxFetchRateArg.toString())
+            : Double.parseDouble(System.getProperty("solr.indexfetcher.maxFetchMBPerSec", "0"));
+    fetchRateLimiter =
+        maxFetchMBPerSec > 0 ? new RateLimiter.SimpleRateLimiter(maxFetchMBPerSec) : null;
+    Object fetchFromPeersArg = initArgs.get(FETCH_FROM_PEERS);
+    fetchFromPeers =
+        fetchFromPeersArg != null
+            ? Boolean.parseBoolean(fetchFromPeersArg.toString())
+            : Boolean.getBoolean("solr.indexfetcher.fetchFromPeers");
   }
 
   private void setLeaderUrl(String leaderUrl) {
@@ -367,6 +414,10 @@ public class IndexFetcher {
 
   /** Gets the latest commit version and generation from the leader */
   public NamedList<Object> getLatestVersion() throws IOException {
+    return getLatestVersion(leaderUrl);
+  }
+
+  private NamedList<Object> getLatestVersion(String url) throws IOException {
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.set(COMMAND, CMD_INDEX_VERSION);
     params.set(CommonParams.WT, JAVABIN);
@@ -375,7 +426,7 @@ public class IndexFetcher {
 
     // TODO modify to use shardhandler
     try (SolrClient client =
-        new Builder(leaderUrl)
+        new Builder(url)
             .withHttpClient(myHttpClient)
             .withConnectionTimeout(connTimeout, TimeUnit.MILLISECONDS)
             .withSocketTimeout(soTimeout, TimeUnit.MILLISECONDS)
@@ -393,6 +444,21 @@ public class IndexFetcher {
    */
   @SuppressWarnings({"unchecked"})
   private void fetchFileList(long gen) throws IOException {
+    NamedList<?> response = requestFileList(leaderUrl, gen);
+
+    List<Map<String, Object>> files = (List<Map<String, Object>>) response.get(CMD_GET_FILE_LIST);
+    if (files != null) filesToDownload = Collections.synchronizedList(files);
+    else {
+      filesToDownload = Collections.emptyList();
+      log.error("No files to download for index generation: {}", gen);
+    }
+
+    files = (List<Map<String, Object>>) response.get(CONF_FILES);
+    if (files != null) confFilesToDownload = Collections.synchronizedList(files);
+  }
+
+  /** Requests the list of files in a given index commit point of the core at the given url */
+  private NamedList<?> requestFileList(String url, long gen) throws IOException {
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.set(COMMAND, CMD_GET_FILE_LIST);
     params.set(GENERATION, String.valueOf(gen));
@@ -402,22 +468,12 @@ public class IndexFetcher {
 
     // TODO modify to use shardhandler
     try (SolrClient client =
-        new HttpSolrClient.Builder(leaderUrl)
+        new HttpSolrClient.Builder(url)
             .withHttpClient(myHttpClient)
             .withConnectionTimeout(connTimeout, TimeUnit.MILLISECONDS)
             .withSocketTimeout(soTimeout, TimeUnit.MILLISECONDS)
             .build()) {
-      NamedList<?> response = client.request(req);
-
-      List<Map<String, Object>> files = (List<Map<String, Object>>) response.get(CMD_GET_FILE_LIST);
-      if (files != null) filesToDownload = Collections.synchronizedList(files);
-      else {
-        filesToDownload = Collections.emptyList();
-        log.error("No files to download for index generation: {}", gen);
-      }
-
-      files = (List<Map<String, Object>>) response.get(CONF_FILES);
-      if (files != null) confFilesToDownload = Collections.synchronizedList(files);
+      return client.request(req);
     } catch (SolrServerException e) {
       throw new IOException(e);
     }
@@ -594,6 +650,10 @@ public class IndexFetcher {
       if (log.isInfoEnabled()) {
         log.info("Number of files in latest index in leader: {}", filesToDownload.size());
       }
+      peerSources =
+          fetchFromPeers && isFetchingFromShardLeader()
+              ? findPeerSources()
+              : Collections.emptyMap();
 
       // Create the sync service
       fsyncService =
@@ -844,6 +904,7 @@ public class IndexFetcher {
       }
 
       filesToDownload = filesDownloaded = confFilesDownloaded = confFilesToDownload = null;
+      peerSources = Collections.emptyMap();
       markReplicationStop();
       dirFileFetcher = null;
       localFileFetcher = null;
@@ -1140,6 +1201,7 @@ public class IndexFetcher {
     }
     long bytesDownloaded = 0;
     long bytesSkippedCopying = 0;
+    List<Map<String, Object>> filesToFetchInParallel = new ArrayList<>();
     boolean doDifferentialCopy =
         (indexDir instanceof FSDirectory
                 || (indexDir instanceof FilterDirectory
@@ -1196,13 +1258,11 @@ public class IndexFetcher {
           // efficient as compared to a file copy. TODO: Maybe we could do a move safely here?
           Files.createLink(Path.of(tmpIndexDirPath, filename), localFile.toPath());
           bytesSkippedCopying += localFile.length();
+        } else if (fetchThreads > 1) {
+          filesToFetchInParallel.add(file);
+          continue;
         } else {
-          dirFileFetcher =
-              new DirectoryFileFetcher(
-                  tmpIndexDir, file, (String) file.get(NAME), FILE, latestGeneration);
-          currentFile = file;
-          dirFileFetcher.fetchFile();
-          bytesDownloaded += dirFileFetcher.getBytesDownloaded();
+          bytesDownloaded += fetchIndexFile(tmpIndexDir, file, latestGeneration);
         }
         filesDownloaded.add(new HashMap<>(file));
       } else {
@@ -1211,6 +1271,8 @@ public class IndexFetcher {
         }
       }
     }
+    bytesDownloaded +=
+        fetchIndexFilesInParallel(tmpIndexDir, filesToFetchInParallel, latestGeneration);
     log.info(
         "Bytes downloaded: {}, Bytes skipped downloading: {}",
         bytesDownloaded,
@@ -1218,6 +1280,197 @@ public class IndexFetcher {
     return bytesDownloaded;
   }
 
+  /**
+   * Downloads one index file, from a replica holding an identical copy if one was found by {@link
+   * #findPeerSources()}, otherwise or if that fails from the leader. When several files are
+   * fetched concurrently, the details only report one of them as the current file.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFile(
+      Directory tmpIndexDir, Map<String, Object> file, long latestGeneration) throws Exception {
+    String fileName = (String) file.get(NAME);
+    PeerSource peer = choosePeerSource(fileName);
+    if (peer != null) {
+      DirectoryFileFetcher fetcher =
+          new DirectoryFileFetcher(tmpIndexDir, file, fileName, FILE, peer.generation, peer.url);
+      dirFileFetcher = fetcher;
+      currentFile = file;
+      try {
+        fetcher.fetchFile();
+        if (log.isDebugEnabled()) {
+          log.debug("Fetched file {} from replica {}", fileName, peer.url);
+        }
+        return fetcher.getBytesDownloaded();
+      } catch (ReplicationHandlerException e) {
+        throw e;
+      } catch (Exception e) {
+        if (stop || fetchFailed) {
+          throw e;
+        }
+        log.warn(
+            "Could not fetch file {} from {}, fetching it from the leader", fileName, peer.url, e);
+      }
+    }
+    DirectoryFileFetcher fetcher =
+        new DirectoryFileFetcher(tmpIndexDir, file, fileName, FILE, latestGeneration, leaderUrl);
+    dirFileFetcher = fetcher;
+    currentFile = file;
+    fetcher.fetchFile();
+    return fetcher.getBytesDownloaded();
+  }
+
+  /**
+   * Picks the source of an index file among the leader and the replicas known to hold an identical
+   * copy, spreading successive files over all of them.
+   *
+   * @return the replica to fetch the file from, or null to fetch it from the leader
+   */
+  private PeerSource choosePeerSource(String fileName) {
+    List<PeerSource> peers = peerSources.get(fileName);
+    if (peers == null || peers.isEmpty()) {
+      return null;
+    }
+    int i = Math.floorMod(nextPeerSource.getAndIncrement(), peers.size() + 1);
+    return i < peers.size() ? peers.get(i) : null;
+  }
+
+  /**
+   * Whether this core fetches from the current leader of its shard in SolrCloud, either polling it
+   * as a PULL or TLOG replica or recovering from it.
+   */
+  private boolean isFetchingFromShardLeader() {
+    if (fetchFromLeader) {
+      return true;
+    }
+    ZkController zkController = solrCore.getCoreContainer().getZkController();
+    CloudDescriptor cd = solrCore.getCoreDescriptor().getCloudDescriptor();
+    if (zkController == null || cd == null) {
+      return false;
+    }
+    DocCollection collection =
+        zkController.getClusterState().getCollectionOrNull(cd.getCollectionName());
+    Replica leader = collection == null ? null : collection.getLeader(cd.getShardId());
+    return leader != null && leader.getCoreUrl().equals(leaderUrl);
+  }
+
+  /**
+   * Finds the active replicas of this shard, other than the leader, whose latest commit has files
+   * identical (same name, size and checksum) to the files of the leader's commit about to be
+   * fetched. The segments_N file is always fetched from the leader since it defines the commit
+   * point. Replicas that can't be reached are ignored.
+   *
+   * @return the replicas holding each file, by file name
+   */
+  @SuppressWarnings({"unchecked"})
+  private Map<String, List<PeerSource>> findPeerSources() {
+    Map<String, Map<String, Object>> leaderFiles = new HashMap<>();
+    for (Map<String, Object> file : filesToDownload) {
+      String name = (String) file.get(NAME);
+      if (file.get(CHECKSUM) != null && !name.startsWith(IndexFileNames.SEGMENTS)) {
+        leaderFiles.put(name, file);
+      }
+    }
+    ZkController zkController = solrCore.getCoreContainer().getZkController();
+    CloudDescriptor cd = solrCore.getCoreDescriptor().getCloudDescriptor();
+    ClusterState clusterState = zkController.getClusterState();
+    Slice slice = clusterState.getCollection(cd.getCollectionName()).getSlice(cd.getShardId());
+    if (leaderFiles.isEmpty() || slice == null) {
+      return Collections.emptyMap();
+    }
+
+    Map<String, List<PeerSource>> sources = new HashMap<>();
+    for (Replica replica : slice.getReplicas()) {
+      String url = replica.getCoreUrl();
+      if (replica.getName().equals(cd.getCoreNodeName())
+          || url.equals(leaderUrl)
+          || replica.getState() != Replica.State.ACTIVE
+          || !clusterState.liveNodesContain(replica.getNodeName())) {
+        continue;
+      }
+      try {
+        long generation = (Long) getLatestVersion(url).get(GENERATION);
+        List<Map<String, Object>> files =
+            (List<Map<String, Object>>) requestFileList(url, generation).get(CMD_GET_FILE_LIST);
+        if (files == null) {
+          continue;
+        }
+        PeerSource peer = new PeerSource(url, generation);
+        for (Map<String, Object> file : files) {
+          Map<String, Object> leaderFile = leaderFiles.get((String) file.get(NAME));
+          if (leaderFile != null
+              && leaderFile.get(SIZE).equals(file.get(SIZE))
+              && leaderFile.get(CHECKSUM).equals(file.get(CHECKSUM))) {
+            sources.computeIfAbsent((String) file.get(NAME), k -> new ArrayList<>()).add(peer);
+          }
+        }
+      } catch (Exception e) {
+        log.warn("Could not get the file list of replica {}, not fetching from it", url, e);
+      }
+    }
+    if (log.isInfoEnabled()) {
+      log.info(
+          "{} of {} index files can also be fetched from other replicas",
+          sources.size(),
+          filesToDownload.size());
+    }
+    return sources;
+  }
+
+  /**
+   * Downloads the given index files using up to {@link #fetchThreads} concurrent fetchers, each
+   * streaming one file over its own connection to the leader or a replica.
+   *
+   * @return number of bytes downloaded
+   */
+  private long fetchIndexFilesInParallel(
+      Directory tmpIndexDir, List<Map<String, Object>> files, long latestGeneration)
+      throws Exception {
+    if (files.isEmpty()) {
+      return 0;
+    }
+    // start with the biggest files so that one of them doesn't end up downloading alone at the end
+    files.sort(
+        Comparator.comparingLong((Map<String, Object> file) -> (Long) file.get(SIZE)).reversed());
+    LongAdder bytesDownloaded = new LongAdder();
+    fetchFailed = false;
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            Math.min(fetchThreads, files.size()), new SolrNamedThreadFactory("indexFileFetcher"));
+    try {
+      CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+      List<Future<Void>> futures = new ArrayList<>(files.size());
+      for (Map<String, Object> file : files) {
+        futures.add(
+            completionService.submit(
+                () -> {
+                  bytesDownloaded.add(fetchIndexFile(tmpIndexDir, file, latestGeneration));
+                  filesDownloaded.add(new HashMap<>(file));
+                  return null;
+                }));
+      }
+      // in completion order, so that the first failure is reported as soon as it happens
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          completionService.take().get();
+        } catch (ExecutionException e) {
+          // the replication failed, make the other fetchers give up instead of completing
+          fetchFailed = true;
+          for (Future<Void> future : futures) {
+            future.cancel(false);
+          }
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        }
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+    return bytesDownloaded.sum();
+  }
+
   // only for testing purposes. do not use this anywhere else
   // -----------START----------------------
   static BooleanSupplier testWait = () -> true;
@@ -1715,6 +1968,17 @@ public class IndexFetcher {
     return tmp;
   }
 
+  /** A replica holding an identical copy of some index files, in the given commit point */
+  private static class PeerSource {
+    final String url;
+    final long generation;
+
+    PeerSource(String url, long generation) {
+      this.url = url;
+      this.generation = generation;
+    }
+  }
+
   private static class ReplicationHandlerException extends InterruptedException {
     public ReplicationHandlerException(String message) {
       super(message);
@@ -1744,6 +2008,7 @@ public class IndexFetcher {
     private final String saveAs;
     private final String solrParamOutput;
     private final Long indexGen;
+    private final String sourceUrl;
 
     private final long size;
     private long bytesDownloaded = 0;
@@ -1757,9 +2022,11 @@ public class IndexFetcher {
         Map<String, Object> fileDetails,
         String saveAs,
         String solrParamOutput,
-        long latestGen)
+        long latestGen,
+        String sourceUrl)
         throws IOException {
       this.file = file;
+      this.sourceUrl = sourceUrl;
       this.fileName = (String) fileDetails.get(NAME);
       this.size = (Long) fileDetails.get(SIZE);
       buf = new byte[(int) Math.min(this.size, ReplicationHandler.PACKET_SZ)];
@@ -1783,7 +2050,7 @@ public class IndexFetcher {
       try {
         fetch();
       } catch (Exception e) {
-        if (!aborted) {
+        if (!aborted && !fetchFailed) {
           IndexFetcher.log.error("Error fetching file, doing one retry...", e);
           // one retry
           fetch();
@@ -1797,7 +2064,24 @@ public class IndexFetcher {
       try {
         while (true) {
           int result;
-          try (FastInputStream is = getStream()) {
+          FastInputStream stream;
+          try {
+            stream = getStream();
+          } catch (IOException e) {
+            // the connection could not be (re)opened, try again resuming from the current offset
+            if (aborted || stop || fetchFailed || ++errorCount > MAX_RETRIES) {
+              throw e;
+            }
+            log.warn(
+                "Error opening stream for file: {} (downloaded {} of {} bytes), retrying",
+                fileName,
+                bytesDownloaded,
+                size,
+                e);
+            Thread.sleep(100L * errorCount);
+            continue;
+          }
+          try (FastInputStream is = stream) {
             // fetch packets one by one in a single request
             result = fetchPackets(is);
             if (result == 0 || result == NO_CONTENT) {
@@ -1826,10 +2110,15 @@ public class IndexFetcher {
       try {
         while (true) {
           if (stop) {
-            stop = false;
+            // not reset here so that every concurrent fetcher sees it, cleanup resets it
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
+          if (fetchFailed) {
+            // another file could not be fetched, that failure is the one reported
+            aborted = true;
+            throw new ReplicationHandlerException("Fetching another index file failed");
+          }
           long checkSumServer = -1;
           fis.readFully(intbytes);
           // read the size of the packet
@@ -1867,6 +2156,12 @@ public class IndexFetcher {
           // if everything is fine, write down the packet to the file
           file.write(buf, packetSize);
           bytesDownloaded += packetSize;
+          if (fetchRateLimiter != null) {
+            // the limiter is shared by all fetchers, pausing under its lock enforces the total rate
+            synchronized (fetchRateLimiter) {
+              fetchRateLimiter.pause(packetSize);
+            }
+          }
           log.debug("Fetched and wrote {} bytes of file: {}", bytesDownloaded, fileName);
           // errorCount is always set to zero after a successful packet
           errorCount = 0;
@@ -1985,7 +2280,7 @@ public class IndexFetcher {
 
       // TODO use shardhandler
       try (SolrClient client =
-          new Builder(leaderUrl)
+          new Builder(sourceUrl)
               .withHttpClient(myHttpClient)
               .withResponseParser(null)
               .withConnectionTimeout(connTimeout, TimeUnit.MILLISECONDS)
@@ -2044,10 +2339,16 @@ public class IndexFetcher {
         Map<String, Object> fileDetails,
         String saveAs,
         String solrParamOutput,
-        long latestGen)
+        long latestGen,
+        String sourceUrl)
         throws IOException {
       super(
-          new DirectoryFile(tmpIndexDir, saveAs), fileDetails, saveAs, solrParamOutput, latestGen);
+          new DirectoryFile(tmpIndexDir, saveAs),
+          fileDetails,
+          saveAs,
+          solrParamOutput,
+          latestGen,
+          sourceUrl);
     }
   }
 
@@ -2106,7 +2407,13 @@ public class IndexFetcher {
         String solrParamOutput,
         long latestGen)
         throws IOException {
-      super(new LocalFsFile(dir, saveAs), fileDetails, saveAs, solrParamOutput, latestGen);
+      super(
+          new LocalFsFile(dir, saveAs),
+          fileDetails,
+          saveAs,
+          solrParamOutput,
+          latestGen,
+          leaderUrl);
     }
   }
 
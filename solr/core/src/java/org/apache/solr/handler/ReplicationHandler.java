@@ -1812,6 +1812,18 @@ public class ReplicationHandler extends RequestHandlerBase
 
   public static final String FETCH_FROM_LEADER = "fetchFromLeader";
 
+  /**
+   * In SolrCloud, whether a replica may fetch index files from other active replicas holding
+   * identical copies instead of only from the leader, defaults to false
+   */
+  public static final String FETCH_FROM_PEERS = "fetchFromPeers";
+
+  /** Number of index files a follower downloads concurrently, defaults to 1 */
+  public static final String FETCH_THREADS = "fetchThreads";
+
+  /** Limit of the total rate at which a follower downloads index files, unlimited by default */
+  public static final String MAX_FETCH_PER_SECOND = "maxFetchMBPerSec";
+
   // in case of TLOG replica, if leaderVersion = zero, don't do commit
   // otherwise updates from current tlog won't copied over properly to the new tlog, leading to data
   // loss
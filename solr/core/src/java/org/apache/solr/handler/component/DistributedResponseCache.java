@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.cloud.CloudDescriptor;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.StrUtils;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+
+/**
+ * Caches the merged responses of distributed searches on the coordinating core, so that repeated
+ * queries against collections that rarely change don't fan out to every shard.
+ *
+ * <p>Entries are keyed by the request's normalized parameters and tagged with the version of the
+ * searcher of every replica the request may go to. Before a cached response is used, the current
+ * versions are fetched from every replica with {@code /admin/luke?show=index}, and the entry is
+ * dropped if any searcher has changed, which happens on every commit that makes updates visible.
+ * The result of such a probe is shared by all requests to the same shards for {@code
+ * probeIntervalMs}, which bounds how stale a response can be.
+ *
+ * <p>Requests with date math relative to {@code NOW} are not cached, unless they fix {@code NOW}
+ * with a parameter, since the same parameters match other documents over time.
+ *
+ * <p>Configured on a {@link SearchHandler} with a {@code distribResponseCache} list of init args:
+ * {@code size}, {@code maxAgeMs} and {@code probeIntervalMs}.
+ */
+public class DistributedResponseCache {
+  public static final String INIT_ARG = "distribResponseCache";
+
+  // parameters that only affect how the response is written, or are unique per request
+  private static final Set<String> IGNORED_PARAMS =
+      Set.of(
+          CommonParams.WT,
+          "indent",
+          CommonParams.REQUEST_ID,
+          CommonParams.OMIT_HEADER,
+          CommonParams.HEADER_ECHO_PARAMS,
+          "_");
+
+  private final Cache<String, Entry> responses;
+  private final Cache<String, Map<String, Long>> shardVersions;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder stale = new LongAdder();
+  private final LongAdder uncacheable = new LongAdder();
+  private final LongAdder probes = new LongAdder();
+
+  public DistributedResponseCache(NamedList<?> args) {
+    int size = getInt(args, "size", 1024);
+    long maxAgeMs = getInt(args, "maxAgeMs", 600_000);
+    long probeIntervalMs = getInt(args, "probeIntervalMs", 1000);
+    this.responses =
+        Caffeine.newBuilder()
+            .maximumSize(size)
+            .expireAfterWrite(maxAgeMs, TimeUnit.MILLISECONDS)
+            .build();
+    this.shardVersions =
+        Caffeine.newBuilder()
+            .maximumSize(size)
+            .expireAfterWrite(Math.max(probeIntervalMs, 1), TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  private static int getInt(NamedList<?> args, String name, int defaultValue) {
+    Object value = args.get(name);
+    return value == null ? defaultValue : Integer.parseInt(value.toString());
+  }
+
+  /** Whether the response to this request may be served from, or stored in, the cache. */
+  boolean isCacheable(ResponseBuilder rb) {
+    SolrParams params = rb.req.getParams();
+    return rb.shards != null
+        && rb.shards.length > 0
+        && !rb.isDebug()
+        && !params.getBool(ShardParams.SHARDS_INFO, false)
+        && (params.get(CommonParams.NOW) != null || !usesNow(params));
+  }
+
+  /** Whether any parameter may contain date math relative to the time of the request. */
+  private static boolean usesNow(SolrParams params) {
+    for (Iterator<String> it = params.getParameterNamesIterator(); it.hasNext(); ) {
+      for (String value : params.getParams(it.next())) {
+        if (value.contains(CommonParams.NOW)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /** Builds the cache key of a request from its collection, path and sorted parameters. */
+  static String cacheKey(SolrQueryRequest req) {
+    SolrParams params = req.getParams();
+    ModifiableSolrParams sorted = new ModifiableSolrParams();
+    for (String name : new TreeSet<>(params.getParameterNames())) {
+      if (!IGNORED_PARAMS.contains(name)) {
+        sorted.set(name, params.getParams(name));
+      }
+    }
+    String path = (String) req.getContext().get(CommonParams.PATH);
+    return collectionName(req) + ":" + path + sorted.toQueryString();
+  }
+
+  private static String collectionName(SolrQueryRequest req) {
+    CloudDescriptor cloudDescriptor = req.getCloudDescriptor();
+    return cloudDescriptor != null ? cloudDescriptor.getCollectionName() : req.getCore().getName();
+  }
+
+  /**
+   * Returns the searcher version of each replica the request may go to, by replica url, or an
+   * empty map if they can't be determined. Probes the replicas unless another request to the same
+   * shards did so recently.
+   */
+  Map<String, Long> getShardVersions(ResponseBuilder rb, ShardHandlerFactory shardHandlerFactory) {
+    // rb.shards lists replicas in a random order, so key probes by collection and slice if we can
+    String probeKey;
+    if (rb.slices != null && Arrays.stream(rb.slices).allMatch(s -> s != null)) {
+      String[] slices = rb.slices.clone();
+      Arrays.sort(slices);
+      probeKey = collectionName(rb.req) + ":" + String.join(",", slices);
+    } else {
+      String[] shards = rb.shards.clone();
+      Arrays.sort(shards);
+      probeKey = String.join(",", shards);
+    }
+    // probe outside of the cache's compute, which would block other requests to these shards
+    Map<String, Long> versions = shardVersions.getIfPresent(probeKey);
+    if (versions == null) {
+      versions = probe(rb, shardHandlerFactory);
+      shardVersions.put(probeKey, versions);
+    }
+    return versions;
+  }
+
+  private Map<String, Long> probe(ResponseBuilder rb, ShardHandlerFactory shardHandlerFactory) {
+    probes.increment();
+    // any replica may serve the request, so all of them are probed
+    List<String> replicas = new ArrayList<>();
+    for (String shard : rb.shards) {
+      replicas.addAll(StrUtils.splitSmart(shard, "|", true));
+    }
+    ShardHandler shardHandler = shardHandlerFactory.getShardHandler();
+    ShardRequest sreq = new ShardRequest();
+    sreq.purpose = ShardRequest.PURPOSE_PRIVATE;
+    sreq.shards = replicas.toArray(new String[0]);
+    sreq.actualShards = sreq.shards;
+    sreq.responses = new ArrayList<>(replicas.size());
+    sreq.params = new ModifiableSolrParams();
+    sreq.params.set(CommonParams.QT, "/admin/luke");
+    sreq.params.set(CommonParams.DISTRIB, false);
+    sreq.params.set("show", "index");
+    sreq.params.set("numTerms", 0);
+    for (String replica : replicas) {
+      shardHandler.submit(sreq, replica, new ModifiableSolrParams(sreq.params));
+    }
+
+    ShardResponse srsp = shardHandler.takeCompletedOrError();
+    if (srsp == null || srsp.getException() != null) {
+      shardHandler.cancelAll();
+      return Collections.emptyMap();
+    }
+    Map<String, Long> versions = new HashMap<>();
+    for (ShardResponse response : srsp.getShardRequest().responses) {
+      NamedList<?> index = (NamedList<?>) response.getSolrResponse().getResponse().get("index");
+      Object version = index == null ? null : index.get("version");
+      if (!(version instanceof Number)) {
+        return Collections.emptyMap();
+      }
+      versions.put(response.getShard(), ((Number) version).longValue());
+    }
+    return versions;
+  }
+
+  /**
+   * Returns the cached response for this key if the shards haven't changed since it was cached.
+   */
+  NamedList<Object> get(String key, Map<String, Long> versions) {
+    if (versions.isEmpty()) {
+      uncacheable.increment();
+      return null;
+    }
+    Entry entry = responses.getIfPresent(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    if (!entry.versions.equals(versions)) {
+      responses.asMap().remove(key, entry);
+      stale.increment();
+      return null;
+    }
+    hits.increment();
+    return entry.response;
+  }
+
+  /** Caches a complete response computed while the shards had the given versions. */
+  void put(String key, Map<String, Long> versions, SolrQueryResponse rsp) {
+    if (versions.isEmpty() || rsp.getException() != null) {
+      return;
+    }
+    Object partial =
+        rsp.getResponseHeader() == null
+            ? null
+            : rsp.getResponseHeader().get(SolrQueryResponse.RESPONSE_HEADER_PARTIAL_RESULTS_KEY);
+    if (Boolean.TRUE.equals(partial)) {
+      return;
+    }
+    NamedList<Object> response = rsp.getValues().clone();
+    response.remove(SolrQueryResponse.RESPONSE_HEADER_KEY);
+    responses.put(key, new Entry(versions, response));
+  }
+
+  MetricsMap getMetricsMap() {
+    return new MetricsMap(
+        ew -> {
+          ew.put("hits", hits.sum());
+          ew.put("misses", misses.sum());
+          ew.put("stale", stale.sum());
+          ew.put("uncacheable", uncacheable.sum());
+          ew.put("probes", probes.sum());
+          ew.put("size", responses.estimatedSize());
+        });
+  }
+
+  private static class Entry {
+    final Map<String, Long> versions;
+    final NamedList<Object> response;
+
+    Entry(Map<String, Long> versions, NamedList<Object> response) {
+      this.versions = versions;
+      this.response = response;
+    }
+  }
+}
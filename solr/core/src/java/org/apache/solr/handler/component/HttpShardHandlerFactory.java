@@ -79,6 +79,8 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
   //
   // This executor is initialized in the init method
   private ExecutorService commExecutor;
+  // only set when running on virtual threads, see ExecutorUtil.VIRTUAL_THREADS_PROP
+  private ExecutorService responseExecutor;
 
   protected volatile Http2SolrClient defaultClient;
   protected InstrumentedHttpListenerFactory httpListenerFactory;
@@ -263,6 +265,13 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             // collection as an optimization. see SOLR-11880 for more details
             false);
 
+    if (ExecutorUtil.useVirtualThreads()) {
+      // shard responses are read and parsed while blocking on the network, so hand them to
+      // virtual threads and keep the bounded commExecutor for the HTTP client's own work
+      this.responseExecutor =
+          ExecutorUtil.newMDCAwareVirtualThreadPerTaskExecutor("httpShardResponseExecutor");
+    }
+
     this.httpListenerFactory = new InstrumentedHttpListenerFactory(this.metricNameStrategy);
     int connectionTimeout =
         getParameter(
@@ -284,6 +293,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
             .withConnectionTimeout(connectionTimeout, TimeUnit.MILLISECONDS)
             .withIdleTimeout(soTimeout, TimeUnit.MILLISECONDS)
             .withExecutor(commExecutor)
+            .withResponseExecutor(responseExecutor)
             .withMaxConnectionsPerHost(maxConnectionsPerHost)
             .build();
     this.defaultClient.addListenerFactory(this.httpListenerFactory);
@@ -327,6 +337,7 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory
         }
       } finally {
         ExecutorUtil.shutdownAndAwaitTermination(commExecutor);
+        ExecutorUtil.shutdownAndAwaitTermination(responseExecutor);
       }
     }
     try {
@@ -26,6 +26,7 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -54,6 +55,7 @@ import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.client.solrj.SolrResponse;
 import org.apache.solr.cloud.CloudDescriptor;
 import org.apache.solr.cloud.ZkController;
+import org.apache.solr.common.IteratorWriter;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
@@ -74,6 +76,7 @@ import org.apache.solr.common.util.StrUtils;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.LocalSolrQueryRequest;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.response.transform.DocTransformer;
@@ -1336,6 +1339,12 @@ public class RealTimeGetComponent extends SearchComponent {
       rb.rsp.add("fingerprint", fingerprint);
     }
 
+    SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (params.getBool("streamUpdates", false) && requestInfo != null) {
+      streamUpdates(rb, versions, ulog, requestInfo);
+      return;
+    }
+
     List<Object> updates = new ArrayList<>(versions.size());
 
     long minVersion = Long.MAX_VALUE;
@@ -1371,6 +1380,68 @@ public class RealTimeGetComponent extends SearchComponent {
     }
   }
 
+  /**
+   * Adds the requested updates to the response as an iterator, in increasing order of version,
+   * which reads each update from the update log only while the response is being written instead
+   * of holding all of them in memory. The update log files stay referenced until the request is
+   * closed.
+   */
+  private void streamUpdates(
+      ResponseBuilder rb, List<Long> versions, UpdateLog ulog, SolrRequestInfo requestInfo) {
+    List<Long> sortedVersions = new ArrayList<>(versions);
+    sortedVersions.sort(PeerSync.absComparator.reversed());
+
+    UpdateLog.RecentUpdates recentUpdates = ulog.getRecentUpdates();
+    try {
+      requestInfo.addCloseHook(recentUpdates);
+    } catch (RuntimeException e) {
+      recentUpdates.close();
+      throw e;
+    }
+
+    // Must return all delete-by-query commands that occur after the first add requested
+    // since they may apply.
+    List<Object> deleteByQueries = Collections.emptyList();
+    if (rb.req.getParams().getBool("skipDbq", false)) {
+      long minVersion = Long.MAX_VALUE;
+      LongSet updateVersions = new LongSet(versions.size());
+      for (Long version : versions) {
+        updateVersions.add(version);
+        if (version > 0) {
+          minVersion = Math.min(minVersion, version);
+        }
+      }
+      deleteByQueries = new ArrayList<>(recentUpdates.getDeleteByQuery(minVersion, updateVersions));
+      deleteByQueries.sort(
+          Comparator.comparingLong(update -> Math.abs((Long) ((List<?>) update).get(1))));
+    }
+
+    final List<Object> dbqs = deleteByQueries;
+    rb.rsp.add(
+        "updates",
+        (IteratorWriter)
+            iw -> {
+              int dbqIdx = 0;
+              for (Long version : sortedVersions) {
+                while (dbqIdx < dbqs.size()
+                    && Math.abs((Long) ((List<?>) dbqs.get(dbqIdx)).get(1)) < Math.abs(version)) {
+                  iw.add(dbqs.get(dbqIdx++));
+                }
+                try {
+                  Object o = recentUpdates.lookup(version);
+                  if (o != null) {
+                    iw.add(o);
+                  }
+                } catch (SolrException | ClassCastException e) {
+                  log.warn("Exception reading log for updates", e);
+                }
+              }
+              while (dbqIdx < dbqs.size()) {
+                iw.add(dbqs.get(dbqIdx++));
+              }
+            });
+  }
+
   private List<Long> resolveVersionRanges(String versionsStr, UpdateLog ulog) {
     if (StrUtils.isNullOrEmpty(versionsStr)) {
       return Collections.emptyList();
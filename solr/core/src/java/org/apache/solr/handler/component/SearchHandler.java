@@ -114,6 +114,7 @@ public class SearchHandler extends RequestHandlerBase
   protected volatile List<SearchComponent> components;
   private ShardHandlerFactory shardHandlerFactory;
   private PluginInfo shfInfo;
+  private DistributedResponseCache distribResponseCache;
   private SolrCore core;
 
   protected List<String> getDefaultComponents() {
@@ -134,6 +135,14 @@ public class SearchHandler extends RequestHandlerBase
   @Override
   public void init(PluginInfo info) {
     init(info.initArgs);
+    Object cacheArgs =
+        info.initArgs == null ? null : info.initArgs.get(DistributedResponseCache.INIT_ARG);
+    if (cacheArgs instanceof NamedList) {
+      NamedList<?> args = (NamedList<?>) cacheArgs;
+      if (!Boolean.FALSE.equals(args.getBooleanArg("enabled"))) {
+        distribResponseCache = new DistributedResponseCache(args);
+      }
+    }
     for (PluginInfo child : info.children) {
       if ("shardHandlerFactory".equals(child.type)) {
         this.shfInfo = child;
@@ -154,6 +163,14 @@ public class SearchHandler extends RequestHandlerBase
         "purposes",
         getCategory().toString(),
         scope + SHARD_HANDLER_SUFFIX);
+    if (distribResponseCache != null) {
+      solrMetricsContext.gauge(
+          distribResponseCache.getMetricsMap(),
+          true,
+          DistributedResponseCache.INIT_ARG,
+          getCategory().toString(),
+          scope);
+    }
   }
 
   @Override
@@ -508,6 +525,18 @@ public class SearchHandler extends RequestHandlerBase
     } else {
       // a distributed request
 
+      String cacheKey = null;
+      Map<String, Long> shardVersions = null;
+      if (distribResponseCache != null && distribResponseCache.isCacheable(rb)) {
+        cacheKey = DistributedResponseCache.cacheKey(req);
+        shardVersions = distribResponseCache.getShardVersions(rb, shardHandlerFactory);
+        NamedList<Object> cached = distribResponseCache.get(cacheKey, shardVersions);
+        if (cached != null) {
+          rsp.getValues().addAll(cached);
+          return;
+        }
+      }
+
       if (rb.outgoing == null) {
         rb.outgoing = new ArrayList<>();
       }
@@ -608,6 +637,10 @@ public class SearchHandler extends RequestHandlerBase
 
         // we are done when the next stage is MAX_VALUE
       } while (nextStage != Integer.MAX_VALUE);
+
+      if (cacheKey != null) {
+        distribResponseCache.put(cacheKey, shardVersions, rsp);
+      }
     }
 
     // SOLR-5550: still provide shards.info if requested even for a short circuited distrib request
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.consumer.RecordedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Metrics about the virtual threads Solr runs on when {@link
+ * org.apache.solr.common.util.ExecutorUtil#VIRTUAL_THREADS_PROP} is set.
+ *
+ * <p>Pinning is tracked with the {@code jdk.VirtualThreadPinned} JFR event (a virtual thread
+ * blocked for longer than 20ms while holding its carrier), streamed in process. Carrier utilization
+ * is read from the {@code jdk.management:type=VirtualThreadScheduler} MBean, which is only
+ * available from Java 24; on older JVMs only the scheduler parallelism is reported.
+ */
+public class VirtualThreadMetricSet implements MetricSet, Closeable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+  static final String SCHEDULER_MBEAN = "jdk.management:type=VirtualThreadScheduler";
+
+  private final Timer pinned = new Timer();
+  private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+  private final ObjectName schedulerName;
+  // jdk.jfr.consumer.RecordingStream (Java 14+), accessed reflectively
+  private AutoCloseable pinnedEvents;
+
+  public VirtualThreadMetricSet() {
+    ObjectName name;
+    try {
+      name = new ObjectName(SCHEDULER_MBEAN);
+      if (!mbeanServer.isRegistered(name)) {
+        name = null;
+      }
+    } catch (Exception e) {
+      name = null;
+    }
+    this.schedulerName = name;
+    this.pinnedEvents = startPinnedEventStream(pinned);
+  }
+
+  private static AutoCloseable startPinnedEventStream(Timer pinned) {
+    try {
+      Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+      AutoCloseable stream = (AutoCloseable) streamClass.getConstructor().newInstance();
+      try {
+        streamClass.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+        Consumer<RecordedEvent> onPinned =
+            event -> pinned.update(event.getDuration().toNanos(), TimeUnit.NANOSECONDS);
+        streamClass
+            .getMethod("onEvent", String.class, Consumer.class)
+            .invoke(stream, PINNED_EVENT, onPinned);
+        streamClass.getMethod("startAsync").invoke(stream);
+        return stream;
+      } catch (Exception e) {
+        stream.close();
+        throw e;
+      }
+    } catch (Exception e) {
+      log.warn("Unable to record {} events, pinning won't be reported", PINNED_EVENT, e);
+      return null;
+    }
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    final Map<String, Metric> metrics = new HashMap<>();
+    metrics.put("pinned", pinned);
+    metrics.put("parallelism", (Gauge<Integer>) this::getParallelism);
+    if (schedulerName != null) {
+      metrics.put("poolSize", (Gauge<Integer>) () -> getSchedulerAttribute("PoolSize"));
+      metrics.put(
+          "mounted", (Gauge<Integer>) () -> getSchedulerAttribute("MountedVirtualThreadCount"));
+      metrics.put(
+          "queued", (Gauge<Long>) () -> getSchedulerLongAttribute("QueuedVirtualThreadCount"));
+      metrics.put(
+          "carrierUtilization",
+          (Gauge<Double>)
+              () -> {
+                int parallelism = getParallelism();
+                int mounted = getSchedulerAttribute("MountedVirtualThreadCount");
+                return parallelism > 0 && mounted >= 0 ? (double) mounted / parallelism : -1.0;
+              });
+    }
+    return metrics;
+  }
+
+  private int getParallelism() {
+    if (schedulerName != null) {
+      return getSchedulerAttribute("Parallelism");
+    }
+    // same default as the JDK's virtual thread scheduler
+    return Integer.getInteger(
+        "jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+  }
+
+  private int getSchedulerAttribute(String attribute) {
+    return (int) getSchedulerLongAttribute(attribute);
+  }
+
+  private long getSchedulerLongAttribute(String attribute) {
+    try {
+      return ((Number) mbeanServer.getAttribute(schedulerName, attribute)).longValue();
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (pinnedEvents != null) {
+      try {
+        pinnedEvents.close();
+      } catch (Exception e) {
+        log.warn("Error closing {} event stream", PINNED_EVENT, e);
+      }
+      pinnedEvents = null;
+    }
+  }
+}
@@ -28,22 +28,34 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.lang.invoke.MethodHandles;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.util.IOFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +74,19 @@ import org.slf4j.LoggerFactory;
  * cache is able to outperform classic policies like LRU and LFU, as well as modern policies like
  * ARC and LIRS. This policy performed particularly well in search workloads.
  *
+ * <p>With {@code backgroundWarm=true}, autowarming doesn't hold up the registration of a new
+ * searcher. Instead the entries to warm are regenerated on up to {@code backgroundWarmThreads}
+ * threads after the searcher is available, for at most {@code backgroundWarmTimeMs}. Entries are
+ * regenerated in order of their expected benefit, which is estimated from their access frequency
+ * and the time it last took to compute them. Until they are warmed, requests simply miss.
+ *
+ * <p>With {@code costAware=true}, the time it took to compute each entry is taken into account
+ * when the cache is full: an entry that was cheap to compute counts towards the {@code size} or
+ * {@code maxRamMB} limit {@code maxCostFactor} (default 4) times, and one time less for every
+ * millisecond it took, down to its actual weight. Expensive entries therefore displace fewer
+ * others, while the eviction policy still decides by frequency. The limit is never exceeded, but
+ * the cache holds fewer cheap entries than it would otherwise.
+ *
  * <p>[1] https://github.com/ben-manes/caffeine [2] http://arxiv.org/pdf/1512.00727.pdf [3]
  * http://highscalability.com/blog/2016/1/25/design-of-a-modern-cache.html
  */
@@ -69,6 +94,15 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     implements SolrCache<K, V>, Accountable, RemovalListener<K, V> {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  public static final String BACKGROUND_WARM_PARAM = "backgroundWarm";
+  public static final String BACKGROUND_WARM_THREADS_PARAM = "backgroundWarmThreads";
+  public static final String BACKGROUND_WARM_TIME_PARAM = "backgroundWarmTimeMs";
+  public static final String COST_AWARE_PARAM = "costAware";
+  public static final String MAX_COST_FACTOR_PARAM = "maxCostFactor";
+
+  // the weight of an entry of a cost aware cache limited by size, before it is weighed by cost
+  private static final int COST_AWARE_UNIT_WEIGHT = 1000;
+
   private static final long BASE_RAM_BYTES_USED =
       RamUsageEstimator.shallowSizeOfInstance(CaffeineCache.class)
           + RamUsageEstimator.shallowSizeOfInstance(CacheStats.class)
@@ -97,6 +131,24 @@ public class CaffeineCache<K, V> extends SolrCacheBase
   private int maxIdleTimeSec;
   private boolean cleanupThread;
   private boolean async;
+  private boolean backgroundWarm;
+  private int backgroundWarmThreads;
+  private long backgroundWarmTimeMs;
+
+  private boolean costAware;
+  private int maxCostFactor;
+
+  /** Nanoseconds it took to compute each entry, only tracked for background warming or costs. */
+  private Map<K, Long> computeCosts;
+
+  private final LongAdder computeTime = new LongAdder();
+  private final LongAdder savedComputeTime = new LongAdder();
+
+  private volatile boolean closed;
+  private volatile ExecutorService warmExecutor;
+  private final LongAdder warmedEntries = new LongAdder();
+  private final AtomicInteger warmBacklog = new AtomicInteger();
+  private volatile boolean warmTimedOut;
 
   private MetricsMap cacheMap;
   private SolrMetricsContext solrMetricsContext;
@@ -136,6 +188,18 @@ public class CaffeineCache<K, V> extends SolrCacheBase
       executor = Runnable::run;
     }
 
+    backgroundWarm = Boolean.parseBoolean(args.get(BACKGROUND_WARM_PARAM));
+    str = args.get(BACKGROUND_WARM_THREADS_PARAM);
+    backgroundWarmThreads = str == null ? 1 : Math.max(1, Integer.parseInt(str));
+    str = args.get(BACKGROUND_WARM_TIME_PARAM);
+    backgroundWarmTimeMs = str == null ? 60_000 : Long.parseLong(str);
+    costAware = Boolean.parseBoolean(args.get(COST_AWARE_PARAM));
+    str = args.get(MAX_COST_FACTOR_PARAM);
+    maxCostFactor = str == null ? 4 : Math.max(1, Integer.parseInt(str));
+    if (backgroundWarm || costAware) {
+      computeCosts = new ConcurrentHashMap<>();
+    }
+
     description = generateDescription(maxSize, initialSize);
 
     cache = buildCache(null);
@@ -161,7 +225,18 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     if (maxIdleTimeSec > 0) {
       builder.expireAfterAccess(Duration.ofSeconds(maxIdleTimeSec));
     }
-    if (maxRamBytes != Long.MAX_VALUE) {
+    if (costAware) {
+      if (maxRamBytes != Long.MAX_VALUE) {
+        builder.maximumWeight(maxRamBytes);
+        builder.weigher(
+            (k, v) ->
+                costWeight(
+                    k, RamUsageEstimator.sizeOfObject(k) + RamUsageEstimator.sizeOfObject(v)));
+      } else {
+        builder.maximumWeight((long) maxSize * COST_AWARE_UNIT_WEIGHT);
+        builder.weigher((k, v) -> costWeight(k, COST_AWARE_UNIT_WEIGHT));
+      }
+    } else if (maxRamBytes != Long.MAX_VALUE) {
       builder.maximumWeight(maxRamBytes);
       builder.weigher(
           (k, v) -> (int) (RamUsageEstimator.sizeOfObject(k) + RamUsageEstimator.sizeOfObject(v)));
@@ -190,6 +265,37 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     if (async) {
       ramBytes.add(-RAM_BYTES_PER_FUTURE);
     }
+    if (computeCosts != null && cause != RemovalCause.REPLACED) {
+      computeCosts.remove(key);
+    }
+  }
+
+  private void recordCost(K key, long startNanos) {
+    if (computeCosts != null) {
+      long cost = System.nanoTime() - startNanos;
+      computeCosts.put(key, cost);
+      computeTime.add(cost);
+    }
+  }
+
+  /** Records the compute time a cache hit saved. */
+  private void recordHit(K key) {
+    if (costAware) {
+      Long cost = computeCosts.get(key);
+      if (cost != null) {
+        savedComputeTime.add(cost);
+      }
+    }
+  }
+
+  /**
+   * The weight of an entry, multiplied by up to {@link #maxCostFactor} the cheaper it was to
+   * compute. Weights are never lowered, so the cache stays within its limit.
+   */
+  private int costWeight(K key, long weight) {
+    Long cost = computeCosts.get(key);
+    long factor = cost == null ? 1 : Math.min(maxCostFactor, 1 + cost / 1_000_000L);
+    return (int) Math.max(1, Math.min(Integer.MAX_VALUE, weight * maxCostFactor / factor));
   }
 
   @Override
@@ -199,7 +305,11 @@ public class CaffeineCache<K, V> extends SolrCacheBase
 
   @Override
   public V get(K key) {
-    return cache.getIfPresent(key);
+    V value = cache.getIfPresent(key);
+    if (value != null) {
+      recordHit(key);
+    }
+    return value;
   }
 
   private V computeAsync(K key, IOFunction<? super K, ? extends V> mappingFunction)
@@ -212,6 +322,7 @@ public class CaffeineCache<K, V> extends SolrCacheBase
         // Another thread is already working on this computation, wait for them to finish
         V value = result.join();
         hits.increment();
+        recordHit(key);
         return value;
       } catch (CompletionException e) {
         Throwable cause = e.getCause();
@@ -230,7 +341,9 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     }
     try {
       // We reserved the slot, so we do the work
+      long start = System.nanoTime();
       V value = mappingFunction.apply(key);
+      recordCost(key, start); // before the weight is updated
       future.complete(value); // This will update the weight and expiration
       recordRamBytes(key, null, value);
       inserts.increment();
@@ -249,23 +362,32 @@ public class CaffeineCache<K, V> extends SolrCacheBase
       return computeAsync(key, mappingFunction);
     }
 
+    boolean[] computed = new boolean[1];
     try {
-      return cache.get(
-          key,
-          k -> {
-            V value;
-            try {
-              value = mappingFunction.apply(k);
-            } catch (IOException e) {
-              throw new UncheckedIOException(e);
-            }
-            if (value == null) {
-              return null;
-            }
-            recordRamBytes(key, null, value);
-            inserts.increment();
-            return value;
-          });
+      V result =
+          cache.get(
+              key,
+              k -> {
+                computed[0] = true;
+                V value;
+                long start = System.nanoTime();
+                try {
+                  value = mappingFunction.apply(k);
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+                if (value == null) {
+                  return null;
+                }
+                recordCost(k, start);
+                recordRamBytes(key, null, value);
+                inserts.increment();
+                return value;
+              });
+      if (!computed[0] && result != null) {
+        recordHit(key);
+      }
+      return result;
     } catch (UncheckedIOException e) {
       throw e.getCause();
     }
@@ -311,6 +433,9 @@ public class CaffeineCache<K, V> extends SolrCacheBase
   public void clear() {
     cache.invalidateAll();
     ramBytes.reset();
+    if (computeCosts != null) {
+      computeCosts.clear();
+    }
   }
 
   @Override
@@ -320,6 +445,12 @@ public class CaffeineCache<K, V> extends SolrCacheBase
 
   @Override
   public void close() throws IOException {
+    closed = true;
+    ExecutorService warmer = warmExecutor;
+    if (warmer != null) {
+      // workers stop after the entry they are regenerating, which must not outlive the searcher
+      ExecutorUtil.shutdownAndAwaitTermination(warmer);
+    }
     SolrCache.super.close();
     cache.invalidateAll();
     cache.cleanUp();
@@ -342,7 +473,12 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     Optional<Eviction<K, V>> evictionOpt = cache.policy().eviction();
     if (evictionOpt.isPresent()) {
       Eviction<K, V> eviction = evictionOpt.get();
-      eviction.setMaximum(maxSize);
+      if (!costAware) {
+        eviction.setMaximum(maxSize);
+      } else if (maxRamBytes == Long.MAX_VALUE) {
+        // the size of a cost aware cache is limited by weight too
+        eviction.setMaximum((long) maxSize * COST_AWARE_UNIT_WEIGHT);
+      }
       this.maxSize = maxSize;
       initialSize = Math.min(1024, this.maxSize);
       description = generateDescription(this.maxSize, initialSize);
@@ -363,8 +499,8 @@ public class CaffeineCache<K, V> extends SolrCacheBase
       Optional<Eviction<K, V>> evictionOpt = cache.policy().eviction();
       if (evictionOpt.isPresent()) {
         Eviction<K, V> eviction = evictionOpt.get();
-        if (!eviction.isWeighted()) {
-          // rebuild cache using weigher
+        if (!eviction.isWeighted() || costAware) {
+          // rebuild cache using weigher, cost aware caches weigh size and RAM differently
           cache = buildCache(cache);
           return;
         } else if (maxRamBytes == Long.MAX_VALUE) {
@@ -402,10 +538,22 @@ public class CaffeineCache<K, V> extends SolrCacheBase
           other.cache.policy().eviction().map(p -> p.hottest(size)).orElse(Collections.emptyMap());
     }
 
+    if (backgroundWarm) {
+      List<Entry<K, V>> entries = prioritize(hottest, other.computeCosts);
+      resetStats(other);
+      warmInBackground(searcher, old, entries);
+      warmupTime =
+          TimeUnit.MILLISECONDS.convert(
+              System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+      return;
+    }
+
     for (Entry<K, V> entry : hottest.entrySet()) {
       try {
+        long start = System.nanoTime();
         boolean continueRegen =
             regenerator.regenerateItem(searcher, this, old, entry.getKey(), entry.getValue());
+        recordCost(entry.getKey(), start);
         if (!continueRegen) {
           break;
         }
@@ -414,6 +562,12 @@ public class CaffeineCache<K, V> extends SolrCacheBase
       }
     }
 
+    resetStats(other);
+    warmupTime =
+        TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+  }
+
+  private void resetStats(CaffeineCache<K, V> other) {
     hits.reset();
     inserts.reset();
     lookups.reset();
@@ -422,8 +576,108 @@ public class CaffeineCache<K, V> extends SolrCacheBase
     priorHits = oldStats.hitCount() + other.hits.sum() + other.priorHits;
     priorInserts = other.inserts.sum() + other.priorInserts;
     priorLookups = oldStats.requestCount() + other.lookups.sum() + other.priorLookups;
-    warmupTime =
-        TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Orders the entries to warm by their expected benefit: the rank of their access frequency
+   * (hottest first) times the time they last took to compute, when that is known.
+   */
+  static <K, V> List<Entry<K, V>> prioritize(Map<K, V> hottest, Map<K, Long> costs) {
+    List<Entry<K, V>> entries = new ArrayList<>(hottest.entrySet());
+    if (costs == null || costs.isEmpty()) {
+      return entries;
+    }
+    Map<K, Double> benefit = new HashMap<>();
+    for (int i = 0; i < entries.size(); i++) {
+      K key = entries.get(i).getKey();
+      long costMicros = TimeUnit.NANOSECONDS.toMicros(costs.getOrDefault(key, 0L));
+      benefit.put(key, (double) (entries.size() - i) * (1 + costMicros));
+    }
+    // a stable sort, so entries of equal benefit stay in order of frequency
+    entries.sort(
+        Comparator.comparingDouble((Entry<K, V> e) -> benefit.get(e.getKey())).reversed());
+    return entries;
+  }
+
+  private void warmInBackground(
+      SolrIndexSearcher searcher, SolrCache<K, V> old, List<Entry<K, V>> entries) {
+    warmBacklog.set(entries.size());
+    if (entries.isEmpty()) {
+      return;
+    }
+    // regenerators may rely on the request the searcher set up for warming
+    SolrRequestInfo warmingInfo = SolrRequestInfo.getRequestInfo();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backgroundWarmTimeMs);
+    Iterator<Entry<K, V>> it = entries.iterator();
+    AtomicBoolean stop = new AtomicBoolean();
+
+    int threads = Math.min(backgroundWarmThreads, entries.size());
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            threads, new SolrNamedThreadFactory("cacheWarmer-" + name()));
+    warmExecutor = executor;
+    for (int i = 0; i < threads; i++) {
+      executor.execute(
+          () -> {
+            if (warmingInfo != null) {
+              SolrRequestInfo.setRequestInfo(
+                  new SolrRequestInfo(warmingInfo.getReq(), warmingInfo.getRsp()));
+            }
+            try {
+              while (!closed && !stop.get()) {
+                if (System.nanoTime() - deadline > 0) {
+                  warmTimedOut = true;
+                  break;
+                }
+                Entry<K, V> entry;
+                synchronized (it) {
+                  if (!it.hasNext()) {
+                    break;
+                  }
+                  entry = it.next();
+                }
+                if (!regenerate(searcher, old, entry)) {
+                  stop.set(true);
+                }
+                warmBacklog.decrementAndGet();
+              }
+            } finally {
+              if (warmingInfo != null) {
+                SolrRequestInfo.clearRequestInfo();
+              }
+            }
+          });
+    }
+    // let the threads go away once the entries are exhausted
+    executor.shutdown();
+  }
+
+  /** Regenerates an entry, returning false if warming should stop. */
+  private boolean regenerate(SolrIndexSearcher searcher, SolrCache<K, V> old, Entry<K, V> entry) {
+    // the searcher may be closed while it is being warmed
+    DirectoryReader reader = searcher == null ? null : searcher.getRawReader();
+    if (reader != null && !reader.tryIncRef()) {
+      return false;
+    }
+    try {
+      long start = System.nanoTime();
+      boolean continueRegen =
+          regenerator.regenerateItem(searcher, this, old, entry.getKey(), entry.getValue());
+      recordCost(entry.getKey(), start);
+      warmedEntries.increment();
+      return continueRegen;
+    } catch (Exception e) {
+      log.error("Error during background auto-warming of key: {}", entry.getKey(), e);
+      return true;
+    } finally {
+      try {
+        if (reader != null) {
+          reader.decRef();
+        }
+      } catch (IOException e) {
+        log.error("Problem dec ref'ing reader", e);
+      }
+    }
   }
 
   /** Returns the description of this cache. */
@@ -488,6 +742,16 @@ public class CaffeineCache<K, V> extends SolrCacheBase
                 map.put(EVICTIONS_PARAM, stats.evictionCount());
                 map.put(SIZE_PARAM, cache.asMap().size());
                 map.put("warmupTime", warmupTime);
+                if (costAware) {
+                  map.put("computeTimeMs", TimeUnit.NANOSECONDS.toMillis(computeTime.sum()));
+                  map.put(
+                      "savedComputeTimeMs", TimeUnit.NANOSECONDS.toMillis(savedComputeTime.sum()));
+                }
+                if (backgroundWarm) {
+                  map.put("warmupEntries", warmedEntries.sum());
+                  map.put("warmupBacklog", warmBacklog.get());
+                  map.put("warmupTimedOut", warmTimedOut);
+                }
                 map.put(RAM_BYTES_USED_PARAM, ramBytesUsed());
                 map.put(MAX_RAM_MB_PARAM, getMaxRamMB());
 
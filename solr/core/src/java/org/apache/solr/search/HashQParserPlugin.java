@@ -16,41 +16,164 @@
  */
 package org.apache.solr.search;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.DoublePredicate;
 import java.util.stream.Collectors;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.queries.function.FunctionMatchQuery;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
 import org.apache.lucene.search.DoubleValues;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.LongValues;
 import org.apache.lucene.search.LongValuesSource;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.Hash;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
 
-/** syntax fq={!hash workers=11 worker=4 keys=field1,field2} */
+/**
+ * syntax fq={!hash workers=11 worker=4 keys=field1,field2}
+ *
+ * <p>The parallel workers of a streaming expression all send the same query to a shard, each with
+ * a filter for its own partition. Rather than hashing every document of the shard once per
+ * worker, the partitions of all workers are computed in a single pass over each segment, and
+ * cached by segment until it's closed, so that each worker's filter is a cached bitset. The size of
+ * this cache is set with the {@code partitionCacheMaxRamMB} init arg, 0 disables it.
+ */
 public class HashQParserPlugin extends QParserPlugin {
 
   public static final String NAME = "hash";
 
+  public static final String PARTITION_CACHE_MAX_RAM_MB = "partitionCacheMaxRamMB";
+
+  static final int DEFAULT_PARTITION_CACHE_MAX_RAM_MB = 64;
+
+  // the partitions of segments that are being used by parallel workers, which all arrive together
+  private Cache<PartitionKey, FixedBitSet[]> partitionCache =
+      newPartitionCache(DEFAULT_PARTITION_CACHE_MAX_RAM_MB);
+  private final Set<IndexReader.CacheKey> trackedSegments = ConcurrentHashMap.newKeySet();
+
+  @Override
+  public void init(NamedList<?> args) {
+    Object maxRamMB = args.get(PARTITION_CACHE_MAX_RAM_MB);
+    if (maxRamMB != null) {
+      partitionCache = newPartitionCache(Integer.parseInt(maxRamMB.toString()));
+    }
+  }
+
+  private static Cache<PartitionKey, FixedBitSet[]> newPartitionCache(int maxRamMB) {
+    if (maxRamMB <= 0) {
+      return null;
+    }
+    return Caffeine.newBuilder()
+        .maximumWeight(maxRamMB * 1024L * 1024L)
+        .weigher(
+            (PartitionKey k, FixedBitSet[] v) -> {
+              long bytes = 0;
+              for (FixedBitSet bits : v) {
+                bytes += bits.ramBytesUsed();
+              }
+              return (int) Math.min(Integer.MAX_VALUE, bytes);
+            })
+        .expireAfterAccess(10, TimeUnit.MINUTES)
+        .build();
+  }
+
   @Override
   public QParser createParser(
       String query, SolrParams localParams, SolrParams params, SolrQueryRequest request) {
     return new HashQParser(query, localParams, params, request);
   }
 
-  private static class HashQParser extends QParser {
+  /** Returns a filter for the documents of a worker's partition. */
+  Query partitionQuery(String[] keys, int workers, int worker) {
+    if (partitionCache == null) {
+      // TODO wish to provide matchCost on FunctionMatchQuery's TwoPhaseIterator -- LUCENE-9373
+      return new FunctionMatchQuery(
+          new HashCodeValuesSource(keys).toDoubleValuesSource(),
+          new HashPartitionPredicate(workers, worker));
+    }
+    return new PartitionQuery(keys, workers, worker);
+  }
+
+  /** Returns the documents of a segment in each partition, regardless of deletions. */
+  private FixedBitSet[] getPartitions(LeafReaderContext leaf, String[] keys, int workers)
+      throws IOException {
+    IndexReader.CacheHelper cacheHelper = leaf.reader().getCoreCacheHelper();
+    if (cacheHelper == null || !DocValues.isCacheable(leaf, keys)) {
+      return computePartitions(leaf, keys, workers);
+    }
+    IndexReader.CacheKey coreKey = cacheHelper.getKey();
+    if (trackedSegments.add(coreKey)) {
+      cacheHelper.addClosedListener(this::onSegmentClosed);
+    }
+    try {
+      // workers arriving while the partitions are computed wait for them
+      return partitionCache.get(
+          new PartitionKey(coreKey, keys, workers),
+          k -> {
+            try {
+              return computePartitions(leaf, keys, workers);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static FixedBitSet[] computePartitions(
+      LeafReaderContext leaf, String[] keys, int workers) throws IOException {
+    int maxDoc = leaf.reader().maxDoc();
+    FixedBitSet[] partitions = new FixedBitSet[workers];
+    for (int i = 0; i < workers; i++) {
+      partitions[i] = new FixedBitSet(maxDoc);
+    }
+    LongValues hashes = new HashCodeValuesSource(keys).getValues(leaf, null);
+    for (int doc = 0; doc < maxDoc; doc++) {
+      hashes.advanceExact(doc);
+      partitions[partition(hashes.longValue(), workers)].set(doc);
+    }
+    return partitions;
+  }
+
+  private void onSegmentClosed(IndexReader.CacheKey coreKey) {
+    trackedSegments.remove(coreKey);
+    partitionCache.asMap().keySet().removeIf(k -> k.coreKey == coreKey);
+  }
+
+  /** Returns the partition of a hash, the same as {@link HashPartitionPredicate} does. */
+  static int partition(long hash, int workers) {
+    // the predicate is applied to the hash as a double
+    return (int) (Math.abs((long) (double) hash) % workers);
+  }
+
+  private class HashQParser extends QParser {
 
     public HashQParser(
         String query, SolrParams localParams, SolrParams params, SolrQueryRequest request) {
@@ -70,10 +193,87 @@ public class HashQParserPlugin extends QParserPlugin {
       // validate all fields exist
       Arrays.stream(keys).forEach(field -> req.getSchema().getField(field));
 
-      // TODO wish to provide matchCost on FunctionMatchQuery's TwoPhaseIterator -- LUCENE-9373
-      return new FunctionMatchQuery(
-          new HashCodeValuesSource(keys).toDoubleValuesSource(),
-          new HashPartitionPredicate(workers, worker));
+      return partitionQuery(keys, workers, worker);
+    }
+  }
+
+  /** Matches the documents of a worker's partition, from the cached partitions of each segment. */
+  private class PartitionQuery extends Query {
+    private final String[] keys;
+    private final int workers;
+    private final int worker;
+
+    PartitionQuery(String[] keys, int workers, int worker) {
+      this.keys = keys;
+      this.workers = workers;
+      this.worker = worker;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+      return new ConstantScoreWeight(this, boost) {
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+          FixedBitSet bits = getPartitions(context, keys, workers)[worker];
+          return new ConstantScoreScorer(
+              this, score(), scoreMode, new BitSetIterator(bits, bits.approximateCardinality()));
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+          return DocValues.isCacheable(ctx, keys);
+        }
+      };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+      return Arrays.stream(keys).collect(Collectors.joining(",", "hash(", ")"))
+          + "="
+          + worker
+          + "/"
+          + workers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!sameClassAs(o)) return false;
+      PartitionQuery that = (PartitionQuery) o;
+      return workers == that.workers && worker == that.worker && Arrays.equals(keys, that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(classHash(), Arrays.hashCode(keys), workers, worker);
+    }
+  }
+
+  private static class PartitionKey {
+    final IndexReader.CacheKey coreKey;
+    final String[] keys;
+    final int workers;
+
+    PartitionKey(IndexReader.CacheKey coreKey, String[] keys, int workers) {
+      this.coreKey = coreKey;
+      this.keys = keys;
+      this.workers = workers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof PartitionKey)) return false;
+      PartitionKey that = (PartitionKey) o;
+      return coreKey == that.coreKey && workers == that.workers && Arrays.equals(keys, that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(coreKey, Arrays.hashCode(keys), workers);
     }
   }
 
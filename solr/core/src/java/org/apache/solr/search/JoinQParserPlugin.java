@@ -16,10 +16,13 @@
  */
 package org.apache.solr.search;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.join.ScoreMode;
 import org.apache.solr.common.SolrException;
@@ -30,6 +33,7 @@ import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.LocalSolrQueryRequest;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.join.CrossCollectionJoinQParser;
+import org.apache.solr.search.join.CrossCollectionJoinQuery;
 import org.apache.solr.search.join.ScoreJoinQParserPlugin;
 import org.apache.solr.util.RefCounted;
 
@@ -44,6 +48,8 @@ public class JoinQParserPlugin extends QParserPlugin {
 
   private Set<String> allowSolrUrls;
 
+  private Cache<String, CrossCollectionJoinQuery.JoinKeys> keySetCache;
+
   private static class JoinParams {
     final String fromField;
     final String fromCore;
@@ -127,7 +133,8 @@ public class JoinQParserPlugin extends QParserPlugin {
                 qparser.params,
                 qparser.req,
                 plugin.routerField,
-                plugin.allowSolrUrls)
+                plugin.allowSolrUrls,
+                plugin.keySetCache)
             .parse();
       }
     };
@@ -205,6 +212,20 @@ public class JoinQParserPlugin extends QParserPlugin {
     } else {
       allowSolrUrls = null;
     }
+
+    Object keySetCacheMaxRamMB = args.get("keySetCacheMaxRamMB");
+    if (keySetCacheMaxRamMB != null && Integer.parseInt(keySetCacheMaxRamMB.toString()) > 0) {
+      keySetCache =
+          Caffeine.newBuilder()
+              .maximumWeight(Integer.parseInt(keySetCacheMaxRamMB.toString()) * 1024L * 1024L)
+              .weigher(
+                  (String k, CrossCollectionJoinQuery.JoinKeys v) ->
+                      (int) Math.min(Integer.MAX_VALUE, v.ramBytesUsed()))
+              .expireAfterAccess(1, TimeUnit.HOURS)
+              .build();
+    } else {
+      keySetCache = null;
+    }
   }
 
   @Override
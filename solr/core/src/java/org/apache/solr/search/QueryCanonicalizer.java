@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+
+/**
+ * Rewrites parsed queries into a canonical form before they are used as cache keys, so that
+ * requests which only differ syntactically share cache entries. The canonical form matches the
+ * same documents as the original query and, unless used as a filter, scores them the same.
+ *
+ * <p>Clause order doesn't need handling: {@link BooleanQuery} equality already ignores it, as does
+ * {@link QueryResultKey} for the order of filters. Range bounds and date math are normalized by the
+ * query parsers, so e.g. {@code NOW/DAY} yields the same query for a whole day. What remains is
+ * structure:
+ *
+ * <ul>
+ *   <li>boosts of 1 and nested boosts are folded
+ *   <li>boolean queries with a single required or optional clause are replaced by that clause
+ *   <li>nested conjunctions and disjunctions are flattened into their parent
+ *   <li>duplicate filter and prohibited clauses, and duplicate filter queries, are dropped
+ *   <li>in filters, which aren't scored, boosts and constant score wrappers are removed and
+ *       required clauses become filter clauses
+ * </ul>
+ *
+ * Other queries, including {@link ExtendedQuery}s and their cache settings, are left untouched.
+ */
+public class QueryCanonicalizer {
+
+  private QueryCanonicalizer() {}
+
+  /** Returns the canonical form of a query whose scores matter, or the query itself. */
+  public static Query canonicalize(Query query) {
+    return canonicalize(query, false);
+  }
+
+  /** Returns the canonical form of a query that is only used to match documents. */
+  public static Query canonicalizeFilter(Query query) {
+    return canonicalize(query, true);
+  }
+
+  /**
+   * Returns the canonical forms of a list of filters without duplicates, or the list itself if
+   * nothing changed.
+   */
+  public static List<Query> canonicalizeFilters(List<Query> filters) {
+    if (filters == null || filters.isEmpty()) {
+      return filters;
+    }
+    Set<Query> canonical = new LinkedHashSet<>();
+    boolean changed = false;
+    for (Query filter : filters) {
+      if (filter == null) {
+        continue;
+      }
+      Query c = canonicalizeFilter(filter);
+      changed |= c != filter;
+      changed |= !canonical.add(c);
+    }
+    return changed ? new ArrayList<>(canonical) : filters;
+  }
+
+  private static Query canonicalize(Query query, boolean filter) {
+    if (query instanceof BoostQuery) {
+      BoostQuery bq = (BoostQuery) query;
+      Query inner = canonicalize(bq.getQuery(), filter);
+      if (filter || bq.getBoost() == 1f) {
+        return inner;
+      }
+      if (inner instanceof BoostQuery) {
+        BoostQuery innerBoost = (BoostQuery) inner;
+        return new BoostQuery(innerBoost.getQuery(), innerBoost.getBoost() * bq.getBoost());
+      }
+      return inner == bq.getQuery() ? query : new BoostQuery(inner, bq.getBoost());
+    }
+    if (filter && query instanceof ConstantScoreQuery) {
+      return canonicalize(((ConstantScoreQuery) query).getQuery(), true);
+    }
+    if (query instanceof BooleanQuery) {
+      return canonicalizeBoolean((BooleanQuery) query, filter);
+    }
+    return query;
+  }
+
+  private static Query canonicalizeBoolean(BooleanQuery query, boolean filter) {
+    int minShouldMatch = query.getMinimumNumberShouldMatch();
+    List<BooleanClause> clauses = new ArrayList<>();
+    boolean changed = false;
+    for (BooleanClause clause : query.clauses()) {
+      Occur occur = clause.getOccur();
+      // prohibited clauses are never scored
+      boolean scored = !filter && (occur == Occur.MUST || occur == Occur.SHOULD);
+      Query sub = canonicalize(clause.getQuery(), !scored);
+      if (filter && occur == Occur.MUST) {
+        occur = Occur.FILTER;
+      }
+      if (sub instanceof BooleanQuery && canFlatten(occur, minShouldMatch, (BooleanQuery) sub)) {
+        for (BooleanClause nested : ((BooleanQuery) sub).clauses()) {
+          Occur nestedOccur = occur == Occur.FILTER ? Occur.FILTER : nested.getOccur();
+          clauses.add(new BooleanClause(nested.getQuery(), nestedOccur));
+        }
+        changed = true;
+      } else {
+        changed |= sub != clause.getQuery() || occur != clause.getOccur();
+        clauses.add(new BooleanClause(sub, occur));
+      }
+    }
+
+    // duplicate filter and prohibited clauses don't change anything
+    Set<BooleanClause> unscored = new LinkedHashSet<>();
+    List<BooleanClause> deduped = new ArrayList<>(clauses.size());
+    for (BooleanClause clause : clauses) {
+      boolean isUnscored = clause.getOccur() == Occur.FILTER || clause.getOccur() == Occur.MUST_NOT;
+      if (!isUnscored || unscored.add(clause)) {
+        deduped.add(clause);
+      } else {
+        changed = true;
+      }
+    }
+
+    if (deduped.size() == 1 && minShouldMatch == 0) {
+      BooleanClause only = deduped.get(0);
+      if (only.getOccur() == Occur.MUST || only.getOccur() == Occur.SHOULD) {
+        return only.getQuery();
+      }
+      if (filter && only.getOccur() == Occur.FILTER) {
+        return only.getQuery();
+      }
+    }
+    if (!changed) {
+      return query;
+    }
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    builder.setMinimumNumberShouldMatch(minShouldMatch);
+    for (BooleanClause clause : deduped) {
+      builder.add(clause);
+    }
+    return builder.build();
+  }
+
+  /** Whether the clauses of a nested query can be added to its parent without changing it. */
+  private static boolean canFlatten(Occur occur, int parentMinShouldMatch, BooleanQuery nested) {
+    if (nested.getMinimumNumberShouldMatch() != 0 || nested.clauses().isEmpty()) {
+      return false;
+    }
+    for (BooleanClause clause : nested.clauses()) {
+      Occur nestedOccur = clause.getOccur();
+      switch (occur) {
+        case MUST:
+        case FILTER:
+          // a conjunction within a conjunction
+          if (nestedOccur != Occur.MUST && nestedOccur != Occur.FILTER) {
+            return false;
+          }
+          break;
+        case SHOULD:
+          // a disjunction within a disjunction
+          if (nestedOccur != Occur.SHOULD || parentMinShouldMatch != 0) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+}
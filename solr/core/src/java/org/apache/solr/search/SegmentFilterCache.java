@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.metrics.MetricsMap;
+
+/**
+ * A filter cache of per-segment bitsets that is shared by all searchers of a core, so that the
+ * filters of segments that are unchanged by a commit don't need to be recomputed.
+ *
+ * <p>Entries are keyed by the query and the core of the segment, and hold the matching documents
+ * regardless of deletions. The live documents of the searcher are applied when the per-segment
+ * sets are composed into a top-level {@link DocSet}, so new deletions don't invalidate entries.
+ * Entries are dropped once their segment is closed, e.g. after it was merged away.
+ *
+ * <p>Only queries whose {@link Weight} is {@link Weight#isCacheable cacheable} for every segment
+ * are cached here; others, and queries which produce or wrap top-level sets, are computed as
+ * usual. This is configured with {@code <segmentFilterCache maxRamMB="..."/>} in the {@code
+ * <query>} section of solrconfig.xml, and complements the per-searcher filterCache.
+ */
+public class SegmentFilterCache {
+  private static final FixedBitSet NO_MATCHES = new FixedBitSet(0);
+
+  private final Cache<SegmentKey, FixedBitSet> cache;
+  private final Map<IndexReader.CacheKey, Boolean> trackedSegments = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder uncacheable = new LongAdder();
+
+  public SegmentFilterCache(int maxRamMB) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumWeight(maxRamMB * 1024L * 1024L)
+            .weigher(
+                (SegmentKey k, FixedBitSet v) ->
+                    (int)
+                        Math.min(
+                            Integer.MAX_VALUE,
+                            v.ramBytesUsed()
+                                + RamUsageEstimator.sizeOfObject(
+                                    k.query, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED)))
+            .build();
+  }
+
+  /**
+   * Returns the documents of the searcher matching the query, composed from cached per-segment
+   * sets, or null if the query can't be cached per segment. The query's {@link Weight} is only
+   * created if some segments miss, and only those are computed.
+   */
+  public DocSet getDocSet(SolrIndexSearcher searcher, Query query) throws IOException {
+    if (query instanceof DocSetProducer) {
+      uncacheable.increment();
+      return null;
+    }
+    List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+    FixedBitSet[] segmentBits = new FixedBitSet[leaves.size()];
+    int missing = 0;
+    for (int i = 0; i < segmentBits.length; i++) {
+      IndexReader.CacheHelper cacheHelper = leaves.get(i).reader().getCoreCacheHelper();
+      if (cacheHelper == null) {
+        uncacheable.increment();
+        return null;
+      }
+      segmentBits[i] = cache.getIfPresent(new SegmentKey(query, cacheHelper.getKey()));
+      if (segmentBits[i] == null) {
+        missing++;
+      }
+    }
+
+    if (missing > 0) {
+      // a cached segment proves the query cacheable there, so only check the missing ones
+      Weight weight =
+          searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+      for (int i = 0; i < segmentBits.length; i++) {
+        if (segmentBits[i] == null && !weight.isCacheable(leaves.get(i))) {
+          uncacheable.increment();
+          return null;
+        }
+      }
+      for (int i = 0; i < segmentBits.length; i++) {
+        if (segmentBits[i] == null) {
+          segmentBits[i] = computeSegmentBits(query, weight, leaves.get(i));
+        }
+      }
+    }
+    hits.add(segmentBits.length - missing);
+    misses.add(missing);
+
+    FixedBitSet bits = new FixedBitSet(searcher.maxDoc());
+    for (int i = 0; i < segmentBits.length; i++) {
+      if (segmentBits[i] == NO_MATCHES) {
+        continue;
+      }
+      LeafReaderContext leaf = leaves.get(i);
+      Bits liveDocs = leaf.reader().getLiveDocs();
+      DocIdSetIterator it = new BitSetIterator(segmentBits[i], 0);
+      for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+        if (liveDocs == null || liveDocs.get(doc)) {
+          bits.set(leaf.docBase + doc);
+        }
+      }
+    }
+    return new BitDocSet(bits);
+  }
+
+  /** Computes and caches the documents of a segment that missed, unless another thread does. */
+  private FixedBitSet computeSegmentBits(Query query, Weight weight, LeafReaderContext leaf)
+      throws IOException {
+    IndexReader.CacheKey coreKey = leaf.reader().getCoreCacheHelper().getKey();
+    if (trackedSegments.putIfAbsent(coreKey, Boolean.TRUE) == null) {
+      leaf.reader().getCoreCacheHelper().addClosedListener(this::onSegmentClosed);
+    }
+    try {
+      return cache.get(
+          new SegmentKey(query, coreKey),
+          k -> {
+            try {
+              return computeSegmentBits(weight, leaf);
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** Collects the documents of the segment that match, ignoring deletions. */
+  private static FixedBitSet computeSegmentBits(Weight weight, LeafReaderContext leaf)
+      throws IOException {
+    Scorer scorer = weight.scorer(leaf);
+    if (scorer == null) {
+      return NO_MATCHES;
+    }
+    FixedBitSet bits = new FixedBitSet(leaf.reader().maxDoc());
+    bits.or(scorer.iterator());
+    return bits;
+  }
+
+  private void onSegmentClosed(IndexReader.CacheKey coreKey) {
+    trackedSegments.remove(coreKey);
+    cache.asMap().keySet().removeIf(k -> k.coreKey == coreKey);
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  public MetricsMap getMetricsMap() {
+    return new MetricsMap(
+        map -> {
+          long hitCount = hits.sum();
+          long lookups = hitCount + misses.sum();
+          map.put(SolrCache.LOOKUPS_PARAM, lookups);
+          map.put(SolrCache.HITS_PARAM, hitCount);
+          map.put(SolrCache.HIT_RATIO_PARAM, lookups == 0 ? 1.0 : (double) hitCount / lookups);
+          map.put("uncacheable", uncacheable.sum());
+          map.put(SolrCache.SIZE_PARAM, cache.estimatedSize());
+          map.put("segments", trackedSegments.size());
+          map.put(
+              SolrCache.RAM_BYTES_USED_PARAM,
+              cache.policy().eviction().flatMap(e -> e.weightedSize()).orElse(0L));
+        });
+  }
+
+  private static class SegmentKey {
+    final Query query;
+    final IndexReader.CacheKey coreKey;
+    final int hash;
+
+    SegmentKey(Query query, IndexReader.CacheKey coreKey) {
+      this.query = query;
+      this.coreKey = coreKey;
+      this.hash = Objects.hash(query, coreKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SegmentKey)) {
+        return false;
+      }
+      SegmentKey other = (SegmentKey) o;
+      return coreKey == other.coreKey && query.equals(other.query);
+    }
+  }
+}
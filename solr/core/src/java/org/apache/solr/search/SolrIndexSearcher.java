@@ -30,8 +30,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.LongAdder;
@@ -134,6 +137,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private static final Map<String, SolrCache<?, ?>> NO_GENERIC_CACHES = Collections.emptyMap();
   private static final SolrCache<?, ?>[] NO_CACHES = new SolrCache<?, ?>[0];
 
+  // how long a coalesced query waits for an identical one before computing the result itself, when
+  // the request doesn't have a shorter timeAllowed
+  private static final long COALESCED_QUERY_MAX_WAIT_MS = 10_000;
+
   // If you find this useful, let us know in dev@solr.apache.org.  Likely to be removed eventually.
   private static final boolean useExitableDirectoryReader =
       Boolean.getBoolean("solr.useExitableDirectoryReader");
@@ -156,10 +163,20 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
   private final boolean cachingEnabled;
   private final SolrCache<Query, DocSet> filterCache;
+  private final SegmentFilterCache segmentFilterCache;
   private final SolrCache<QueryResultKey, DocList> queryResultCache;
   private final SolrCache<String, UnInvertedField> fieldValueCache;
   private final LongAdder fullSortCount = new LongAdder();
   private final LongAdder skipSortCount = new LongAdder();
+  private final LongAdder coalescedQueryCount = new LongAdder();
+  // whether cache keys are canonicalized, see QueryCanonicalizer
+  private final boolean canonicalizeQueries;
+  // lookups whose keys were changed by canonicalization, and how many of them hit
+  private final LongAdder canonicalizedQueryLookups = new LongAdder();
+  private final LongAdder canonicalizedQueryHits = new LongAdder();
+  private final LongAdder canonicalizedFilterLookups = new LongAdder();
+  // queryResultCache misses currently being computed, null unless query coalescing is enabled
+  private final ConcurrentHashMap<QueryResultKey, CompletableFuture<DocList>> inFlightQueries;
   private final LongAdder liveDocsNaiveCacheHitCount = new LongAdder();
   private final LongAdder liveDocsInsertsCount = new LongAdder();
   private final LongAdder liveDocsHitCount = new LongAdder();
@@ -374,10 +391,14 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     this.queryResultWindowSize = solrConfig.queryResultWindowSize;
     this.queryResultMaxDocsCached = solrConfig.queryResultMaxDocsCached;
     this.useFilterForSortedQuery = solrConfig.useFilterForSortedQuery;
+    this.canonicalizeQueries = solrConfig.canonicalizeQueries;
+    this.inFlightQueries =
+        enableCache && solrConfig.coalesceQueries ? new ConcurrentHashMap<>() : null;
 
     this.docFetcher = new SolrDocumentFetcher(this, solrConfig, enableCache);
 
     this.cachingEnabled = enableCache;
+    this.segmentFilterCache = enableCache ? core.getSegmentFilterCache() : null;
     if (cachingEnabled) {
       final ArrayList<SolrCache> clist = new ArrayList<>();
       fieldValueCache =
@@ -891,7 +912,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // or OS disk cache.
     if (optionalAnswer != null) {
       if (filterCache != null) {
-        filterCache.put(query, optionalAnswer);
+        filterCache.put(filterCacheKey(query), optionalAnswer);
       }
       return;
     }
@@ -923,7 +944,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     DocSet answer = getDocSet(q);
     BitDocSet answerBits = makeBitDocSet(answer);
     if (answerBits != answer && filterCache != null) {
-      filterCache.put(q, answerBits);
+      filterCache.put(filterCacheKey(q), answerBits);
     }
     return answerBits;
   }
@@ -971,6 +992,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       return getLiveDocSet();
     }
 
+    Query key = filterCacheKey(query);
+    if (key != query) {
+      canonicalizedFilterLookups.increment();
+      query = key;
+    }
+
     DocSet answer;
     if (SolrQueryTimeoutImpl.getInstance().isTimeoutEnabled()) {
       // If there is a possibility of timeout for this query, then don't reserve a computation slot.
@@ -982,17 +1009,40 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
       // Not found in the cache so compute and put in the cache
       if (answer == null) {
-        answer = getDocSetNC(query, null);
+        answer = computeFilterDocSet(query);
         filterCache.put(query, answer);
       }
     } else {
-      answer = filterCache.computeIfAbsent(query, q -> getDocSetNC(q, null));
+      answer = filterCache.computeIfAbsent(query, this::computeFilterDocSet);
     }
 
     assert !(answer instanceof MutableBitDocSet) : "should not be mutable";
     return answer;
   }
 
+  /**
+   * Returns the key of a query in the filterCache, which is its canonical form when {@code
+   * canonicalizeQueries} is enabled, so that all the paths that read or populate the filterCache
+   * share one entry per filter.
+   */
+  private Query filterCacheKey(Query query) {
+    return canonicalizeQueries ? QueryCanonicalizer.canonicalizeFilter(query) : query;
+  }
+
+  /**
+   * Computes the DocSet of a filter for the filterCache, from the per-segment sets of the {@link
+   * SegmentFilterCache} if it is enabled and can cache the query.
+   */
+  private DocSet computeFilterDocSet(Query query) throws IOException {
+    if (segmentFilterCache != null) {
+      DocSet answer = segmentFilterCache.getDocSet(this, query);
+      if (answer != null) {
+        return answer;
+      }
+    }
+    return getDocSetNC(query, null);
+  }
+
   private static final MatchAllDocsQuery MATCH_ALL_DOCS_QUERY = new MatchAllDocsQuery();
 
   /** Used as a synchronization point to handle the lazy-init of {@link #liveDocs}. */
@@ -1543,6 +1593,8 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (maxDocRequested < 0 || maxDocRequested > maxDoc()) maxDocRequested = maxDoc();
     int supersetMaxDoc = maxDocRequested;
     DocList superset = null;
+    QueryResultKey inFlightKey = null;
+    CompletableFuture<DocList> inFlight = null;
 
     int flags = cmd.getFlags();
     Query q = cmd.getQuery();
@@ -1558,10 +1610,40 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         && (flags & (NO_CHECK_QCACHE | NO_SET_QCACHE)) != ((NO_CHECK_QCACHE | NO_SET_QCACHE))) {
       // all the current flags can be reused during warming,
       // so set all of them on the cache key.
-      key =
-          new QueryResultKey(q, cmd.getFilterList(), cmd.getSort(), flags, cmd.getMinExactCount());
+      Query keyQuery = q;
+      List<Query> keyFilters = cmd.getFilterList();
+      if (canonicalizeQueries) {
+        keyQuery = QueryCanonicalizer.canonicalize(q);
+        keyFilters = QueryCanonicalizer.canonicalizeFilters(keyFilters);
+      }
+      boolean canonicalized = keyQuery != q || keyFilters != cmd.getFilterList();
+      key = new QueryResultKey(keyQuery, keyFilters, cmd.getSort(), flags, cmd.getMinExactCount());
       if ((flags & NO_CHECK_QCACHE) == 0) {
         superset = queryResultCache.get(key);
+        if (canonicalized) {
+          canonicalizedQueryLookups.increment();
+          if (superset != null) {
+            canonicalizedQueryHits.increment();
+          }
+        }
+        if (superset == null
+            && inFlightQueries != null
+            && (flags & NO_SET_QCACHE) == 0
+            && cmd.getCursorMark() == null) {
+          // single-flight: only one of several identical concurrent queries computes the result,
+          // the others wait for the superset it puts in the queryResultCache
+          CompletableFuture<DocList> computing = new CompletableFuture<>();
+          CompletableFuture<DocList> leader = inFlightQueries.putIfAbsent(key, computing);
+          if (leader == null) {
+            inFlightKey = key;
+            inFlight = computing;
+          } else {
+            superset = awaitInFlightQuery(leader);
+            if (superset != null) {
+              coalescedQueryCount.increment();
+            }
+          }
+        }
 
         if (superset != null) {
           // check that the cache entry has scores recorded if we need them
@@ -1605,6 +1687,28 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         key = null; // we won't be caching the result
       }
     }
+    DocList cached = null;
+    try {
+      cached = computeDocListC(qr, cmd, key, flags, supersetMaxDoc);
+    } finally {
+      if (inFlight != null) {
+        inFlightQueries.remove(inFlightKey, inFlight);
+        inFlight.complete(cached);
+      }
+    }
+  }
+
+  /**
+   * Generates the result of {@link #getDocListC} when it wasn't found in the queryResultCache.
+   *
+   * @return the superset that was put in the queryResultCache, or null if none was
+   */
+  private DocList computeDocListC(
+      QueryResult qr, QueryCommand cmd, QueryResultKey key, int flags, int supersetMaxDoc)
+      throws IOException {
+    DocListAndSet out = qr.getDocListAndSet();
+    Query q = cmd.getQuery();
+    DocList superset = null;
     cmd.setSupersetMaxDoc(supersetMaxDoc);
 
     // OK, so now we need to generate an answer.
@@ -1690,7 +1794,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         DocSet qDocSet = getDocListAndSetNC(qr, cmd);
         // cache the docSet matching the query w/o filtering
         if (qDocSet != null && filterCache != null && !qr.isPartialResults())
-          filterCache.put(cmd.getQuery(), qDocSet);
+          filterCache.put(filterCacheKey(cmd.getQuery()), qDocSet);
       } else {
         getDocListNC(qr, cmd);
       }
@@ -1721,6 +1825,35 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     // to queryResultMaxDocsCached
     if (key != null && superset.size() <= queryResultMaxDocsCached && !qr.isPartialResults()) {
       queryResultCache.put(key, superset);
+      return superset;
+    }
+    return null;
+  }
+
+  /**
+   * Waits for an identical query that is being computed by another thread, for no longer than the
+   * time left to this request and at most {@link #COALESCED_QUERY_MAX_WAIT_MS}.
+   *
+   * @return the superset the other thread put in the queryResultCache, or null if it didn't cache
+   *     one or didn't finish in time, in which case the caller should compute the result itself
+   */
+  private static DocList awaitInFlightQuery(CompletableFuture<DocList> inFlight) {
+    long waitNs = TimeUnit.MILLISECONDS.toNanos(COALESCED_QUERY_MAX_WAIT_MS);
+    Long timeoutAt = SolrQueryTimeoutImpl.getTimeoutAtNs();
+    if (timeoutAt != null) {
+      waitNs = Math.min(waitNs, timeoutAt - System.nanoTime());
+    }
+    if (waitNs <= 0) {
+      return null;
+    }
+    try {
+      return inFlight.get(waitNs, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException | TimeoutException e) {
+      // never completed exceptionally
+      return null;
     }
   }
 
@@ -2527,6 +2660,23 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         fullSortCount::sum, true, "fullSortCount", Category.SEARCHER.toString(), scope);
     parentContext.gauge(
         skipSortCount::sum, true, "skipSortCount", Category.SEARCHER.toString(), scope);
+    parentContext.gauge(
+        coalescedQueryCount::sum,
+        true,
+        "coalescedQueryCount",
+        Category.SEARCHER.toString(),
+        scope);
+    parentContext.gauge(
+        new MetricsMap(
+            map -> {
+              map.put("queryLookups", canonicalizedQueryLookups.sum());
+              map.put("queryHits", canonicalizedQueryHits.sum());
+              map.put("filterLookups", canonicalizedFilterLookups.sum());
+            }),
+        true,
+        "canonicalizedKeys",
+        Category.SEARCHER.toString(),
+        scope);
     final MetricsMap liveDocsCacheMetrics =
         new MetricsMap(
             (map) -> {
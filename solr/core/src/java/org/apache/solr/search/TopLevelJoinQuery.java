@@ -38,6 +38,7 @@ import org.apache.lucene.util.LongBitSet;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.join.JoinIndex;
 import org.apache.solr.search.join.MultiValueTermOrdinalCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,9 +82,16 @@ public class TopLevelJoinQuery extends JoinQuery {
       final LongBitSet fromOrdBitSet =
           findFieldOrdinalsMatchingQuery(q, fromField, fromSearcher, topLevelFromDocValues);
       final LongBitSet toOrdBitSet = new LongBitSet(topLevelToDocValues.getValueCount());
+      final JoinIndex joinIndex =
+          (fromSearcher == toSearcher && !fromField.equals(toField))
+              ? JoinIndex.get(
+                  toSearcher, fromField, toField, topLevelFromDocValues, topLevelToDocValues)
+              : null;
       final BitsetBounds toBitsetBounds =
-          convertFromOrdinalsIntoToField(
-              fromOrdBitSet, topLevelFromDocValues, toOrdBitSet, topLevelToDocValues);
+          (joinIndex != null)
+              ? convertFromOrdinalsIntoToField(fromOrdBitSet, joinIndex, toOrdBitSet)
+              : convertFromOrdinalsIntoToField(
+                  fromOrdBitSet, topLevelFromDocValues, toOrdBitSet, topLevelToDocValues);
 
       final boolean toMultivalued = toSearcher.getSchema().getFieldOrNull(toField).multiValued();
       return new ConstantScoreWeight(this, boost) {
@@ -218,6 +226,28 @@ public class TopLevelJoinQuery extends JoinQuery {
     return new BitsetBounds(firstToOrd, lastToOrd);
   }
 
+  /** Converts the ordinals with a (cached) {@link JoinIndex} instead of looking up each term. */
+  private static BitsetBounds convertFromOrdinalsIntoToField(
+      LongBitSet fromOrdBitSet, JoinIndex joinIndex, LongBitSet toOrdBitSet) {
+    long fromOrdinal = 0;
+    long firstToOrd = BitsetBounds.NO_MATCHES;
+    long lastToOrd = 0;
+
+    while (fromOrdinal < fromOrdBitSet.length()
+        && (fromOrdinal = fromOrdBitSet.nextSetBit(fromOrdinal)) >= 0) {
+      // the join index preserves the order of the ordinals
+      final long toOrdinal = joinIndex.toOrd(fromOrdinal);
+      if (toOrdinal >= 0) {
+        toOrdBitSet.set(toOrdinal);
+        if (firstToOrd == BitsetBounds.NO_MATCHES) firstToOrd = toOrdinal;
+        lastToOrd = toOrdinal;
+      }
+      fromOrdinal++;
+    }
+
+    return new BitsetBounds(firstToOrd, lastToOrd);
+  }
+
   /*
    * Same binary-search based implementation as SortedSetDocValues.lookupTerm(BytesRef), but with an
    * optimization to narrow the search space where possible by providing a startOrd instead of beginning each search
@@ -17,6 +17,7 @@
 
 package org.apache.solr.search.join;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -57,6 +58,7 @@ public class CrossCollectionJoinQParser extends QParser {
 
   private final String routerField;
   private final Set<String> allowSolrUrls;
+  private final Cache<String, CrossCollectionJoinQuery.JoinKeys> keySetCache;
 
   public CrossCollectionJoinQParser(
       String qstr,
@@ -65,10 +67,22 @@ public class CrossCollectionJoinQParser extends QParser {
       SolrQueryRequest req,
       String routerField,
       Set<String> allowSolrUrls) {
+    this(qstr, localParams, params, req, routerField, allowSolrUrls, null);
+  }
+
+  public CrossCollectionJoinQParser(
+      String qstr,
+      SolrParams localParams,
+      SolrParams params,
+      SolrQueryRequest req,
+      String routerField,
+      Set<String> allowSolrUrls,
+      Cache<String, CrossCollectionJoinQuery.JoinKeys> keySetCache) {
     super(qstr, localParams, params, req);
     this.routerField = routerField;
     // If specified in the config, this will limit which solr url's the parser can connect to.
     this.allowSolrUrls = allowSolrUrls;
+    this.keySetCache = keySetCache;
   }
 
   @Override
@@ -102,7 +116,18 @@ public class CrossCollectionJoinQParser extends QParser {
       }
     }
 
-    return new CrossCollectionJoinQuery(
-        query, zkHost, solrUrl, collection, fromField, toField, routedByJoinKey, ttl, otherParams);
+    CrossCollectionJoinQuery joinQuery =
+        new CrossCollectionJoinQuery(
+            query,
+            zkHost,
+            solrUrl,
+            collection,
+            fromField,
+            toField,
+            routedByJoinKey,
+            ttl,
+            otherParams);
+    joinQuery.setKeySetCache(keySetCache);
+    return joinQuery;
   }
 }
@@ -17,7 +17,13 @@
 
 package org.apache.solr.search.join;
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.github.benmanes.caffeine.cache.Cache;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -35,8 +41,13 @@ import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefArray;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.Counter;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
@@ -55,6 +66,10 @@ import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.handler.component.ShardHandler;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.handler.component.ShardResponse;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.search.BitDocSet;
 import org.apache.solr.search.DocSet;
@@ -77,6 +92,9 @@ public class CrossCollectionJoinQuery extends Query {
   protected SolrParams otherParams;
   protected String otherParamsString;
 
+  // the join keys of remote collections, by query and index versions of the replicas read from
+  protected Cache<String, JoinKeys> keySetCache;
+
   public CrossCollectionJoinQuery(
       String query,
       String zkHost,
@@ -106,14 +124,60 @@ public class CrossCollectionJoinQuery extends Query {
     }
   }
 
+  /**
+   * Caches the join keys read from the remote collection, to be reused as long as the index
+   * versions of the remote replicas don't change. Only used for collections in SolrCloud.
+   */
+  public void setKeySetCache(Cache<String, JoinKeys> keySetCache) {
+    this.keySetCache = keySetCache;
+  }
+
+  /** The distinct join keys read from a remote collection, either strings or numbers. */
+  public static class JoinKeys implements Accountable {
+    private final BytesRefArray strings = new BytesRefArray(Counter.newCounter());
+    private final LongArrayList longs = new LongArrayList();
+    private boolean cacheable = true;
+
+    void add(Object value) {
+      if (value instanceof String) {
+        strings.append(new BytesRef((String) value));
+      } else if (value instanceof Long || value instanceof Integer) {
+        longs.add(((Number) value).longValue());
+      } else {
+        cacheable = false;
+      }
+    }
+
+    void collect(JoinKeyCollector collector) throws IOException {
+      BytesRefBuilder spare = new BytesRefBuilder();
+      for (int i = 0; i < strings.size(); i++) {
+        collector.collect(strings.get(spare, i).utf8ToString());
+      }
+      for (int i = 0; i < longs.size(); i++) {
+        collector.collect(longs.get(i));
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return strings.ramBytesUsed() + RamUsageEstimator.sizeOf(longs.buffer);
+    }
+  }
+
   private interface JoinKeyCollector {
     void collect(Object value) throws IOException;
 
     DocSet getDocSet() throws IOException;
   }
 
+  /**
+   * Looks up the keys in the terms dictionary in sorted blocks, so that the terms enum only seeks
+   * forward within a block, and skips the keys that it passed over.
+   */
   private static class TermsJoinKeyCollector implements JoinKeyCollector {
 
+    private static final int BLOCK_SIZE = 1024;
+
     FieldType fieldType;
     SolrIndexSearcher searcher;
 
@@ -121,6 +185,9 @@ public class CrossCollectionJoinQuery extends Query {
     BytesRefBuilder bytes;
     PostingsEnum postingsEnum;
 
+    BytesRef[] block = new BytesRef[BLOCK_SIZE];
+    int blockSize;
+
     FixedBitSet bitSet;
 
     public TermsJoinKeyCollector(FieldType fieldType, Terms terms, SolrIndexSearcher searcher)
@@ -137,14 +204,47 @@ public class CrossCollectionJoinQuery extends Query {
     @Override
     public void collect(Object value) throws IOException {
       fieldType.readableToIndexed((String) value, bytes);
-      if (termsEnum.seekExact(bytes.get())) {
-        postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
-        bitSet.or(postingsEnum);
+      block[blockSize++] = bytes.toBytesRef();
+      if (blockSize == BLOCK_SIZE) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      Arrays.sort(block, 0, blockSize);
+      BytesRefBuilder current = null;
+      boolean found = false;
+      for (int i = 0; i < blockSize; i++) {
+        BytesRef key = block[i];
+        if (current != null) {
+          int cmp = current.get().compareTo(key);
+          if (cmp > 0 || (cmp == 0 && found)) {
+            // the key is before the current term and after the previous key, so it is absent, or
+            // it is a duplicate of the previous key
+            continue;
+          }
+        }
+        TermsEnum.SeekStatus status = termsEnum.seekCeil(key);
+        if (status == TermsEnum.SeekStatus.END) {
+          break;
+        }
+        found = status == TermsEnum.SeekStatus.FOUND;
+        if (found) {
+          postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+          bitSet.or(postingsEnum);
+        }
+        if (current == null) {
+          current = new BytesRefBuilder();
+        }
+        current.copyBytes(termsEnum.term());
       }
+      Arrays.fill(block, 0, blockSize, null);
+      blockSize = 0;
     }
 
     @Override
     public DocSet getDocSet() throws IOException {
+      flush();
       if (searcher.getIndexReader().hasDeletions()) {
         bitSet.and(searcher.getLiveDocSet().getBits());
       }
@@ -185,6 +285,7 @@ public class CrossCollectionJoinQuery extends Query {
     private SolrIndexSearcher searcher;
     private ScoreMode scoreMode;
     private DocSet docs;
+    private String keySetCacheKey;
 
     public CrossCollectionJoinQueryWeight(
         SolrIndexSearcher searcher, ScoreMode scoreMode, float score) {
@@ -215,6 +316,49 @@ public class CrossCollectionJoinQuery extends Query {
       }
     }
 
+    /**
+     * Returns the key of the remote keys in the key set cache, which includes the index versions of
+     * the replicas that the keys will be read from, or null if the versions couldn't be read. The
+     * replicas are probed concurrently through the shard handler.
+     */
+    private String getKeySetCacheKey(List<String> shards, SolrParams params) {
+      ShardHandler shardHandler =
+          searcher.getCore().getCoreContainer().getShardHandlerFactory().getShardHandler();
+      ShardRequest sreq = new ShardRequest();
+      sreq.purpose = ShardRequest.PURPOSE_PRIVATE;
+      sreq.actualShards = shards.toArray(new String[0]);
+      for (String shard : shards) {
+        ModifiableSolrParams lukeParams = new ModifiableSolrParams();
+        lukeParams.set(CommonParams.QT, "/admin/luke");
+        lukeParams.set(CommonParams.DISTRIB, false);
+        lukeParams.set("show", "index");
+        lukeParams.set("numTerms", 0);
+        shardHandler.submit(sreq, shard, lukeParams);
+      }
+
+      ShardResponse srsp = shardHandler.takeCompletedOrError();
+      if (srsp == null || srsp.getException() != null) {
+        shardHandler.cancelAll();
+        return null;
+      }
+      Map<String, Object> versions = new HashMap<>();
+      for (ShardResponse response : sreq.responses) {
+        NamedList<?> index = (NamedList<?>) response.getSolrResponse().getResponse().get("index");
+        versions.put(response.getShard(), index == null ? null : index.get("version"));
+      }
+
+      StringBuilder key = new StringBuilder();
+      key.append(collection).append('|').append(fromField).append('|').append(params);
+      for (String shard : shards) {
+        Object version = versions.get(shard);
+        if (version == null) {
+          return null;
+        }
+        key.append('|').append(shard).append('@').append(version);
+      }
+      return key.toString();
+    }
+
     private TupleStream createCloudSolrStream(SolrClientCache solrClientCache) throws IOException {
       String streamZkHost;
       if (zkHost != null) {
@@ -237,6 +381,14 @@ public class CrossCollectionJoinQuery extends Query {
       StreamContext streamContext = new StreamContext();
       streamContext.setSolrClientCache(solrClientCache);
 
+      if (keySetCache != null) {
+        // read from the replicas whose index versions are in the cache key
+        List<String> shards =
+            TupleStream.getShards(streamZkHost, collection, streamContext, params);
+        keySetCacheKey = getKeySetCacheKey(shards, params);
+        streamContext.put("shards", Collections.singletonMap(collection, shards));
+      }
+
       TupleStream cloudSolrStream = new CloudSolrStream(streamZkHost, collection, params);
       TupleStream uniqueStream = new UniqueStream(cloudSolrStream, new FieldEqualitor(fromField));
       uniqueStream.setStreamContext(streamContext);
@@ -297,6 +449,13 @@ public class CrossCollectionJoinQuery extends Query {
         collector = new TermsJoinKeyCollector(fieldType, terms, searcher);
       }
 
+      JoinKeys keys = keySetCacheKey == null ? null : keySetCache.getIfPresent(keySetCacheKey);
+      if (keys != null) {
+        keys.collect(collector);
+        return collector.getDocSet();
+      }
+      keys = keySetCacheKey == null ? null : new JoinKeys();
+
       try {
         solrStream.open();
         while (true) {
@@ -311,8 +470,14 @@ public class CrossCollectionJoinQuery extends Query {
           Object value = tuple.get(fromField);
           if (null != value) {
             collector.collect(value);
+            if (keys != null) {
+              keys.add(value);
+            }
           }
         }
+        if (keys != null && keys.cacheable) {
+          keySetCache.put(keySetCacheKey, keys);
+        }
       } catch (IOException e) {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
       } finally {
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.join;
+
+import java.io.IOException;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.CacheRegenerator;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * The adjacency of the documents of a graph, as (top-level) ordinals of the node id field: for each
+ * document the nodes that it is, and the nodes that its edges point to. The edges of a set of
+ * documents are then traversed without searching, on the thread of the request.
+ *
+ * <p>Graph indexes are only used by {@link GraphQuery} when a user cache named {@value #CACHE_NAME}
+ * is configured, and both fields are string fields with docValues. Deleted documents aren't part
+ * of the graph.
+ */
+public class GraphIndex implements Accountable {
+
+  public static final String CACHE_NAME = "graphIndex";
+
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(GraphIndex.class);
+
+  private final int numNodes;
+  // the node ords of each doc are nodes[nodeStart[doc]] to nodes[nodeStart[doc + 1] - 1]
+  private final int[] nodeStart;
+  private final int[] nodes;
+  // same for the node ords of the edges of each doc
+  private final int[] edgeStart;
+  private final int[] edges;
+
+  private GraphIndex(int numNodes, int[] nodeStart, int[] nodes, int[] edgeStart, int[] edges) {
+    this.numNodes = numNodes;
+    this.nodeStart = nodeStart;
+    this.nodes = nodes;
+    this.edgeStart = edgeStart;
+    this.edges = edges;
+  }
+
+  /**
+   * Returns the graph index of the fields, building it if needed, or null when the graph index
+   * cache isn't configured or the fields aren't supported.
+   *
+   * @param nodeField the field with the node id
+   * @param edgeField the field with the edge ids
+   */
+  public static GraphIndex get(
+      SolrIndexSearcher searcher, SchemaField nodeField, SchemaField edgeField)
+      throws IOException {
+    @SuppressWarnings("unchecked")
+    SolrCache<JoinIndex.Key, GraphIndex> cache = searcher.getCache(CACHE_NAME);
+    if (cache == null
+        || !isSupported(searcher, nodeField)
+        || !isSupported(searcher, edgeField)) {
+      return null;
+    }
+    final GraphIndex graphIndex =
+        cache.computeIfAbsent(
+            new JoinIndex.Key(nodeField.getName(), edgeField.getName()),
+            k -> build(searcher, k.fromField, k.toField));
+    return graphIndex.numNodes < 0 ? null : graphIndex;
+  }
+
+  /** Whether the field has SORTED or SORTED_SET docValues, unlike trie, point or enum fields. */
+  private static boolean isSupported(SolrIndexSearcher searcher, SchemaField field) {
+    if (!field.hasDocValues()) {
+      return false;
+    }
+    final FieldInfo info = searcher.getFieldInfos().fieldInfo(field.getName());
+    return info != null
+        && (info.getDocValuesType() == DocValuesType.SORTED
+            || info.getDocValuesType() == DocValuesType.SORTED_SET);
+  }
+
+  /** Builds the graph index, with a negative number of nodes if there are too many of them. */
+  static GraphIndex build(SolrIndexSearcher searcher, String nodeField, String edgeField)
+      throws IOException {
+    final SortedSetDocValues nodeValues = JoinIndex.getTopLevelDocValues(searcher, nodeField);
+    if (nodeValues.getValueCount() >= Integer.MAX_VALUE) {
+      return new GraphIndex(-1, null, null, null, null);
+    }
+    final JoinIndex edgesToNodes =
+        nodeField.equals(edgeField)
+            ? null
+            : JoinIndex.build(JoinIndex.getTopLevelDocValues(searcher, edgeField), nodeValues);
+    final Bits liveDocs = searcher.getSlowAtomicReader().getLiveDocs();
+    final int maxDoc = searcher.maxDoc();
+
+    final int[] nodeStart = new int[maxDoc + 1];
+    final int[] nodes =
+        collectOrds(
+            JoinIndex.getTopLevelDocValues(searcher, nodeField), null, liveDocs, nodeStart);
+    final int[] edgeStart = new int[maxDoc + 1];
+    final int[] edges =
+        collectOrds(
+            JoinIndex.getTopLevelDocValues(searcher, edgeField), edgesToNodes, liveDocs, edgeStart);
+    return new GraphIndex((int) nodeValues.getValueCount(), nodeStart, nodes, edgeStart, edges);
+  }
+
+  /** Collects the ords of each live doc, translated to node ords if needed. */
+  private static int[] collectOrds(
+      SortedSetDocValues values, JoinIndex translation, Bits liveDocs, int[] start)
+      throws IOException {
+    int[] ords = new int[16];
+    int size = 0;
+    for (int doc = values.nextDoc();
+        doc != DocIdSetIterator.NO_MORE_DOCS;
+        doc = values.nextDoc()) {
+      if (liveDocs != null && !liveDocs.get(doc)) {
+        continue;
+      }
+      final int docStart = size;
+      for (long ord = values.nextOrd();
+          ord != SortedSetDocValues.NO_MORE_ORDS;
+          ord = values.nextOrd()) {
+        if (translation != null) {
+          // an edge to a node that doesn't exist
+          if ((ord = translation.toOrd(ord)) < 0) continue;
+        }
+        ords = ArrayUtil.grow(ords, size + 1);
+        ords[size++] = (int) ord;
+      }
+      start[doc + 1] = size - docStart;
+    }
+    for (int doc = 1; doc < start.length; doc++) {
+      start[doc] += start[doc - 1];
+    }
+    return ArrayUtil.copyOfSubArray(ords, 0, size);
+  }
+
+  /**
+   * Returns the nodes the edges of the documents point to that haven't been expanded yet, or null
+   * if there are none, and adds them to the expanded nodes.
+   */
+  public FixedBitSet expand(FixedBitSet docs, FixedBitSet expandedNodes) {
+    FixedBitSet newNodes = null;
+    final BitSetIterator it = new BitSetIterator(docs, 0);
+    for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+      for (int i = edgeStart[doc]; i < edgeStart[doc + 1]; i++) {
+        final int ord = edges[i];
+        if (!expandedNodes.getAndSet(ord)) {
+          if (newNodes == null) {
+            newNodes = new FixedBitSet(numNodes);
+          }
+          newNodes.set(ord);
+        }
+      }
+    }
+    return newNodes;
+  }
+
+  /**
+   * Returns the documents that are any of the nodes, excluding those that were visited already or
+   * don't match the traversal filter.
+   *
+   * @param traversalFilter the documents that can be traversed, or null for all of them
+   */
+  public FixedBitSet reach(FixedBitSet nodeOrds, FixedBitSet visited, DocSet traversalFilter) {
+    final FixedBitSet docs = new FixedBitSet(visited.length());
+    for (int doc = 0; doc < docs.length(); doc++) {
+      if (visited.get(doc) || (traversalFilter != null && !traversalFilter.exists(doc))) {
+        continue;
+      }
+      for (int i = nodeStart[doc]; i < nodeStart[doc + 1]; i++) {
+        if (nodeOrds.get(nodes[i])) {
+          docs.set(doc);
+          break;
+        }
+      }
+    }
+    return docs;
+  }
+
+  /** The number of nodes, the values of the node id field. */
+  public int numNodes() {
+    return numNodes;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED
+        + RamUsageEstimator.sizeOf(nodeStart)
+        + RamUsageEstimator.sizeOf(nodes)
+        + RamUsageEstimator.sizeOf(edgeStart)
+        + RamUsageEstimator.sizeOf(edges);
+  }
+
+  /** Builds the graph indexes of the old searcher for the new one. */
+  public static class Regenerator implements CacheRegenerator {
+    @Override
+    public <K, V> boolean regenerateItem(
+        SolrIndexSearcher newSearcher,
+        SolrCache<K, V> newCache,
+        SolrCache<K, V> oldCache,
+        K oldKey,
+        V oldVal)
+        throws IOException {
+      final JoinIndex.Key key = (JoinIndex.Key) oldKey;
+      final SchemaField nodeField = newSearcher.getSchema().getFieldOrNull(key.fromField);
+      final SchemaField edgeField = newSearcher.getSchema().getFieldOrNull(key.toField);
+      if (nodeField != null
+          && edgeField != null
+          && isSupported(newSearcher, nodeField)
+          && isSupported(newSearcher, edgeField)) {
+        @SuppressWarnings("unchecked")
+        final V newVal = (V) build(newSearcher, key.fromField, key.toField);
+        newCache.put(oldKey, newVal);
+      }
+      return true;
+    }
+  }
+}
@@ -178,6 +178,11 @@ public class GraphQuery extends Query {
      * @throws IOException - if a sub search fails... maybe other cases too! :)
      */
     private DocSet getDocSet() throws IOException {
+      final GraphIndex graphIndex =
+          GraphIndex.get(fromSearcher, matchSchemaField, collectSchemaField);
+      if (graphIndex != null) {
+        return getDocSet(graphIndex);
+      }
       // Size that the bit set needs to be.
       int capacity = fromSearcher.getRawReader().maxDoc();
       // The bit set to contain the results that match the query.
@@ -251,6 +256,44 @@ public class GraphQuery extends Query {
       }
     }
 
+    /**
+     * Computes the same doc set as {@link #getDocSet()}, but traverses the edges with the node
+     * ordinals of a {@link GraphIndex} instead of searching for each level's edge ids.
+     */
+    private DocSet getDocSet(GraphIndex graphIndex) throws IOException {
+      final FixedBitSet resultBits = new FixedBitSet(fromSearcher.getRawReader().maxDoc());
+      final FixedBitSet expandedNodes = new FixedBitSet(graphIndex.numNodes());
+      final DocSet traversable =
+          getTraversalFilter() == null ? null : fromSearcher.getDocSet(getTraversalFilter());
+      FixedBitSet rootBits = null;
+      // the documents reached at each level, that weren't visited yet
+      FixedBitSet frontier = fromSearcher.getDocSetBits(q).getBits();
+      for (int depth = 0; ; depth++) {
+        if (depth == 0 && !returnRoot) {
+          rootBits = frontier;
+        }
+        resultBits.or(frontier);
+        if (maxDepth != -1 && depth >= maxDepth) {
+          break;
+        }
+        final FixedBitSet newNodes = graphIndex.expand(frontier, expandedNodes);
+        if (newNodes == null) {
+          // no new edges to traverse
+          break;
+        }
+        frontier = graphIndex.reach(newNodes, resultBits, traversable);
+      }
+      if (!returnRoot) {
+        resultBits.andNot(rootBits);
+      }
+      BitDocSet resultSet = new BitDocSet(resultBits);
+      if (onlyLeafNodes) {
+        return resultSet.intersection(resolveLeafNodes());
+      } else {
+        return resultSet;
+      }
+    }
+
     private DocSet resolveLeafNodes() throws IOException {
       String field = collectSchemaField.getName();
       BooleanQuery.Builder leafNodeQuery = new BooleanQuery.Builder();
@@ -289,7 +332,8 @@ public class GraphQuery extends Query {
 
     @Override
     public boolean isCacheable(LeafReaderContext ctx) {
-      return true;
+      // the matches in a segment depend on the whole index
+      return false;
     }
   }
 
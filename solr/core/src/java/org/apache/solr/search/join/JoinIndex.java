@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.join;
+
+import java.io.IOException;
+import java.util.Objects;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PagedMutable;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.CacheRegenerator;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Maps the (top-level) ordinals of a "from" field to the ordinals of the same values in a "to"
+ * field, so that a join on docValues translates ordinals rather than looking up each term.
+ *
+ * <p>Join indexes are only used when a user cache named {@value #CACHE_NAME} is configured, and are
+ * rebuilt for new searchers when it's autowarmed:
+ *
+ * <pre>
+ * &lt;cache name="joinIndex" class="solr.CaffeineCache" size="16" autowarmCount="16"/&gt;
+ * </pre>
+ */
+public class JoinIndex implements Accountable {
+
+  public static final String CACHE_NAME = "joinIndex";
+
+  private static final long BASE_RAM_BYTES_USED =
+      RamUsageEstimator.shallowSizeOfInstance(JoinIndex.class);
+
+  private static final int PAGE_SIZE = 1 << 16;
+
+  // the "to" ordinal + 1 of each "from" ordinal, 0 when the value isn't in the "to" field
+  private final PagedMutable toOrds;
+
+  private JoinIndex(PagedMutable toOrds) {
+    this.toOrds = toOrds;
+  }
+
+  /**
+   * Returns the join index of the fields, building it if needed, or null when the join index cache
+   * isn't configured.
+   *
+   * @param fromDocValues the top-level docValues of the "from" field, in this searcher
+   * @param toDocValues the top-level docValues of the "to" field, in this searcher
+   */
+  public static JoinIndex get(
+      SolrIndexSearcher searcher,
+      String fromField,
+      String toField,
+      SortedSetDocValues fromDocValues,
+      SortedSetDocValues toDocValues)
+      throws IOException {
+    @SuppressWarnings("unchecked")
+    SolrCache<Key, JoinIndex> cache = searcher.getCache(CACHE_NAME);
+    if (cache == null) {
+      return null;
+    }
+    return cache.computeIfAbsent(
+        new Key(fromField, toField), k -> build(fromDocValues, toDocValues));
+  }
+
+  /** Builds the join index by merging the sorted values of the fields. */
+  static JoinIndex build(SortedSetDocValues fromDocValues, SortedSetDocValues toDocValues)
+      throws IOException {
+    final PagedMutable toOrds =
+        new PagedMutable(
+            fromDocValues.getValueCount(),
+            PAGE_SIZE,
+            PackedInts.bitsRequired(toDocValues.getValueCount()),
+            PackedInts.COMPACT);
+    final TermsEnum fromTerms = fromDocValues.termsEnum();
+    final TermsEnum toTerms = toDocValues.termsEnum();
+    BytesRef to = toTerms.next();
+    for (BytesRef from = fromTerms.next(); from != null && to != null; from = fromTerms.next()) {
+      int cmp = to.compareTo(from);
+      if (cmp < 0) {
+        // skip ahead, the values of the fields may be far apart
+        final TermsEnum.SeekStatus status = toTerms.seekCeil(from);
+        if (status == TermsEnum.SeekStatus.END) {
+          break;
+        }
+        to = toTerms.term();
+        cmp = status == TermsEnum.SeekStatus.FOUND ? 0 : 1;
+      }
+      if (cmp == 0) {
+        toOrds.set(fromTerms.ord(), toTerms.ord() + 1);
+      }
+    }
+    return new JoinIndex(toOrds);
+  }
+
+  /** Returns the "to" ordinal of a "from" ordinal, or -1 if the value isn't in the "to" field. */
+  public long toOrd(long fromOrd) {
+    return toOrds.get(fromOrd) - 1;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED + toOrds.ramBytesUsed();
+  }
+
+  /** Returns the top-level docValues of a field, or null if the field doesn't have docValues. */
+  static SortedSetDocValues getTopLevelDocValues(SolrIndexSearcher searcher, String fieldName)
+      throws IOException {
+    final SchemaField field = searcher.getSchema().getFieldOrNull(fieldName);
+    if (field == null || !field.hasDocValues()) {
+      return null;
+    }
+    final LeafReader leafReader = searcher.getSlowAtomicReader();
+    if (field.multiValued()) {
+      return DocValues.getSortedSet(leafReader, fieldName);
+    }
+    return DocValues.singleton(DocValues.getSorted(leafReader, fieldName));
+  }
+
+  /** The fields of a join index, or of a {@link GraphIndex}. */
+  public static final class Key {
+    final String fromField;
+    final String toField;
+
+    public Key(String fromField, String toField) {
+      this.fromField = fromField;
+      this.toField = toField;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key that = (Key) o;
+      return fromField.equals(that.fromField) && toField.equals(that.toField);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(fromField, toField);
+    }
+
+    @Override
+    public String toString() {
+      return fromField + "->" + toField;
+    }
+  }
+
+  /** Builds the join indexes of the old searcher for the new one. */
+  public static class Regenerator implements CacheRegenerator {
+    @Override
+    public <K, V> boolean regenerateItem(
+        SolrIndexSearcher newSearcher,
+        SolrCache<K, V> newCache,
+        SolrCache<K, V> oldCache,
+        K oldKey,
+        V oldVal)
+        throws IOException {
+      final Key key = (Key) oldKey;
+      final SortedSetDocValues fromDocValues = getTopLevelDocValues(newSearcher, key.fromField);
+      final SortedSetDocValues toDocValues = getTopLevelDocValues(newSearcher, key.toField);
+      if (fromDocValues != null && toDocValues != null) {
+        @SuppressWarnings("unchecked")
+        final V newVal = (V) build(fromDocValues, toDocValues);
+        newCache.put(oldKey, newVal);
+      }
+      return true;
+    }
+  }
+}
@@ -63,6 +63,7 @@ import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.cloud.SolrZkClient;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.MetricsConfig;
 import org.apache.solr.core.NodeConfig;
@@ -75,6 +76,7 @@ import org.apache.solr.metrics.OperatingSystemMetricSet;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricManager.ResolutionStrategy;
 import org.apache.solr.metrics.SolrMetricProducer;
+import org.apache.solr.metrics.VirtualThreadMetricSet;
 import org.apache.solr.servlet.RateLimitManager.Builder;
 import org.apache.solr.util.StartupLoggingUtils;
 import org.slf4j.Logger;
@@ -95,6 +97,7 @@ public class CoreContainerProvider implements ServletContextListener {
   private RateLimitManager rateLimitManager;
   private final CountDownLatch init = new CountDownLatch(1);
   private String registryName;
+  private VirtualThreadMetricSet virtualThreadMetrics;
   // AFAIK the only reason we need this is to support JettySolrRunner for tests. In tests we might
   // have multiple CoreContainers in the same JVM, but I *think* that doesn't happen in a real
   // server.
@@ -189,6 +192,10 @@ public class CoreContainerProvider implements ServletContextListener {
           metricManager = null;
         }
       }
+      if (virtualThreadMetrics != null) {
+        virtualThreadMetrics.close();
+        virtualThreadMetrics = null;
+      }
     } finally {
       if (cc != null) {
         httpClient = null;
@@ -443,6 +450,11 @@ public class CoreContainerProvider implements ServletContextListener {
           registryName, new GarbageCollectorMetricSet(), ResolutionStrategy.IGNORE, "gc");
       metricManager.registerAll(
           registryName, new MemoryUsageGaugeSet(), ResolutionStrategy.IGNORE, "memory");
+      if (ExecutorUtil.useVirtualThreads()) {
+        virtualThreadMetrics = new VirtualThreadMetricSet();
+        metricManager.registerAll(
+            registryName, virtualThreadMetrics, ResolutionStrategy.IGNORE, "virtualThreads");
+      }
 
       if (config.getCacheConfig() != null
           && config.getCacheConfig().threadsIntervalSeconds != null) {
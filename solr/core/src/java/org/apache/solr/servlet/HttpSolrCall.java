@@ -259,6 +259,7 @@ public class HttpSolrCall {
       } else {
         // extra mem barriers, so don't look at this before trying to get core
         if (cores.isCoreLoading(origCorename)) {
+          cores.prioritizeCoreLoad(origCorename);
           throw new SolrException(ErrorCode.SERVICE_UNAVAILABLE, "SolrCore is loading");
         }
         // the core may have just finished loading
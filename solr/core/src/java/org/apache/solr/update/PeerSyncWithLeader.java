@@ -25,7 +25,13 @@ import static org.apache.solr.update.PeerSync.percentile;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
 import org.apache.http.client.HttpClient;
@@ -33,11 +39,15 @@ import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
+import org.apache.solr.client.solrj.impl.InputStreamResponseParser;
 import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.DataInputInputStream;
+import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
@@ -59,6 +69,12 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
 
   private boolean doFingerprint;
 
+  // whether missed updates are streamed by the leader and applied in batches as they arrive
+  private final boolean streamUpdates = Boolean.getBoolean("solr.peerSync.streamUpdates");
+
+  // number of streamed updates applied at once
+  private final int streamBatchSize = Integer.getInteger("solr.peerSync.streamBatchSize", 1000);
+
   private SolrCore core;
   private PeerSync.Updater updater;
   private MissedUpdatesFinder missedUpdatesFinder;
@@ -219,8 +235,15 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
     MissedUpdatesRequest missedUpdates = buildMissedUpdatesRequest(leaderVersionsAndFingerprint);
     if (missedUpdates == MissedUpdatesRequest.ALREADY_IN_SYNC) return true;
     if (missedUpdates != MissedUpdatesRequest.UNABLE_TO_SYNC) {
-      NamedList<Object> missedUpdatesRsp = requestUpdates(missedUpdates);
-      if (handleUpdates(missedUpdatesRsp, missedUpdates.totalRequestedUpdates, leaderFingerprint)) {
+      boolean applied;
+      if (streamUpdates) {
+        applied = applyStreamedUpdates(missedUpdates, leaderFingerprint);
+      } else {
+        NamedList<Object> missedUpdatesRsp = requestUpdates(missedUpdates);
+        applied =
+            handleUpdates(missedUpdatesRsp, missedUpdates.totalRequestedUpdates, leaderFingerprint);
+      }
+      if (applied) {
         if (doFingerprint) {
           return compareFingerprint(leaderFingerprint);
         }
@@ -252,6 +275,12 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
   }
 
   private NamedList<Object> requestUpdates(MissedUpdatesRequest missedUpdatesRequest) {
+    return request(
+        missedUpdatesParams(missedUpdatesRequest),
+        "Failed on getting missed updates from the leader");
+  }
+
+  private ModifiableSolrParams missedUpdatesParams(MissedUpdatesRequest missedUpdatesRequest) {
     if (log.isInfoEnabled()) {
       log.info(
           "{} Requesting updates from {} n={} versions={}",
@@ -267,8 +296,156 @@ public class PeerSyncWithLeader implements SolrMetricProducer {
     params.set("getUpdates", missedUpdatesRequest.versionsAndRanges);
     params.set("onlyIfActive", false);
     params.set("skipDbq", true);
+    return params;
+  }
+
+  /**
+   * Requests the missed updates from the leader as a stream, in increasing order of version, and
+   * applies them in batches while they are read, so that neither the leader nor this replica hold
+   * all of them in memory. This keeps the semantics of {@link #handleUpdates}, except that updates
+   * are already applied if the leader ends up returning less updates than requested, in which case
+   * the sync fails and the replica recovers by replication.
+   */
+  private boolean applyStreamedUpdates(
+      MissedUpdatesRequest missedUpdatesRequest, IndexFingerprint leaderFingerprint) {
+    ModifiableSolrParams params = missedUpdatesParams(missedUpdatesRequest);
+    params.set("streamUpdates", true);
+    QueryRequest req = new QueryRequest(params, SolrRequest.METHOD.POST);
+    req.setResponseParser(new InputStreamResponseParser(CommonParams.JAVABIN));
+
+    StreamedUpdatesApplier applier = new StreamedUpdatesApplier(leaderFingerprint);
+    try {
+      NamedList<Object> rsp = clientToLeader.request(req);
+      try (InputStream is = (InputStream) rsp.get("stream");
+          JavaBinCodec codec =
+              new JavaBinCodec() {
+                @Override
+                public List<Object> readIterator(DataInputInputStream fis) throws IOException {
+                  // the streamed updates are the only iterator of the response
+                  while (true) {
+                    Object o = readVal(fis);
+                    if (o == END_OBJ) break;
+                    applier.add(o);
+                  }
+                  return Collections.emptyList();
+                }
+              }) {
+        Integer status = (Integer) rsp.get("responseStatus");
+        if (status != null && status != 200) {
+          log.error(
+              "{} Failed on getting missed updates from the leader, status={}", msg(), status);
+          return false;
+        }
+        NamedList<?> response = (NamedList<?>) codec.unmarshal(is);
+        Object updates = response.get("updates");
+        if (updates instanceof List) {
+          // a leader that doesn't stream returns all updates at once
+          for (Object update : (List<?>) updates) {
+            applier.add(update);
+          }
+        }
+      }
+      return applier.finish(missedUpdatesRequest.totalRequestedUpdates);
+    } catch (Exception e) {
+      log.error("{} Error applying updates streamed from {}", msg(), leaderUrl, e);
+      return false;
+    }
+  }
+
+  /**
+   * Applies updates received in increasing order of version, merging in our buffered updates, in
+   * batches. As in {@link #handleUpdates}, updates above the max version of the leader's
+   * fingerprint are only applied if there is a delete among them, so once the first of them is
+   * received, all the following updates are held back until the end.
+   */
+  private class StreamedUpdatesApplier {
+    private final long cutPoint;
+    private final Deque<Object> buffered = new ArrayDeque<>();
+    private final List<Object> batch = new ArrayList<>(streamBatchSize);
+    private final List<Object> heldBack = new ArrayList<>();
+    private long numReceived;
+
+    StreamedUpdatesApplier(IndexFingerprint leaderFingerprint) {
+      this.cutPoint =
+          leaderFingerprint != null ? leaderFingerprint.getMaxVersionEncountered() : Long.MAX_VALUE;
+      List<Object> bufferedRecords = new ArrayList<>(bufferedUpdates.size());
+      try (UpdateLog.RecentUpdates recentUpdates = ulog.getRecentUpdates()) {
+        for (Long bufferUpdate : bufferedUpdates) {
+          Object o = recentUpdates.lookup(bufferUpdate);
+          if (o != null) {
+            bufferedRecords.add(o);
+          }
+        }
+      }
+      bufferedRecords.sort(Comparator.comparingLong(u -> Math.abs(version(u))));
+      buffered.addAll(bufferedRecords);
+    }
 
-    return request(params, "Failed on getting missed updates from the leader");
+    void add(Object update) throws IOException {
+      numReceived++;
+      long version = Math.abs(version(update));
+      while (!buffered.isEmpty() && Math.abs(version(buffered.peekFirst())) < version) {
+        queue(buffered.pollFirst());
+      }
+      queue(update);
+    }
+
+    private void queue(Object update) throws IOException {
+      if (!heldBack.isEmpty() || version(update) > cutPoint) {
+        heldBack.add(update);
+        return;
+      }
+      batch.add(update);
+      if (batch.size() >= streamBatchSize) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      if (batch.isEmpty()) return;
+      try {
+        updater.applyUpdates(batch, leaderUrl);
+      } catch (IOException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+      batch.clear();
+    }
+
+    boolean finish(long numRequestedUpdates) throws IOException {
+      if (numReceived < numRequestedUpdates) {
+        log.error(
+            "{} Requested {} updated from {} but retrieved {}",
+            msg(),
+            numRequestedUpdates,
+            leaderUrl,
+            numReceived);
+        return false;
+      }
+      while (!buffered.isEmpty()) {
+        queue(buffered.pollFirst());
+      }
+      boolean existDBIOrDBQInTheGap =
+          heldBack.stream()
+              .anyMatch(
+                  u -> {
+                    int oper = (Integer) ((List<?>) u).get(0) & UpdateLog.OPERATION_MASK;
+                    return version(u) > cutPoint
+                        && (oper == UpdateLog.DELETE || oper == UpdateLog.DELETE_BY_QUERY);
+                  });
+      for (Object update : heldBack) {
+        if (existDBIOrDBQInTheGap || version(update) <= cutPoint) {
+          batch.add(update);
+        }
+      }
+      flush();
+      return true;
+    }
+
+    private long version(Object update) {
+      return (Long) ((List<?>) update).get(1);
+    }
   }
 
   private boolean handleUpdates(
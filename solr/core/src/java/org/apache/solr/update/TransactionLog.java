@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
@@ -73,7 +74,10 @@ public class TransactionLog implements Closeable {
   protected Path tlog;
   protected FileChannel channel;
   protected OutputStream os;
-  // all accesses to this stream should be synchronized on "this" (The TransactionLog)
+  // Guards fos and the global string tables. An explicit lock rather than the object monitor so
+  // that writers queued behind a busy log park instead of pinning a carrier on virtual threads.
+  protected final ReentrantLock lock = new ReentrantLock();
+  // all accesses to this stream should be guarded by lock
   protected FastOutputStream fos;
   protected ChannelInputStreamOpener channelInputStreamOpener;
   int numRecords;
@@ -276,16 +280,22 @@ public class TransactionLog implements Closeable {
    * commit). Note: currently returns 0 for reopened existing log files.
    */
   public int numRecords() {
-    synchronized (this) {
+    lock.lock();
+    try {
       return this.numRecords;
+    } finally {
+      lock.unlock();
     }
   }
 
   public boolean endsWithCommit() throws IOException {
     long size;
-    synchronized (this) {
+    lock.lock();
+    try {
       fos.flush();
       size = fos.size();
+    } finally {
+      lock.unlock();
     }
 
     // the end of the file should have the end message (added during a commit) plus a 4 byte size
@@ -329,12 +339,15 @@ public class TransactionLog implements Closeable {
 
     // needed to read other records
 
-    synchronized (this) {
+    lock.lock();
+    try {
       globalStringList = (List<String>) header.get("strings");
       globalStringMap = CollectionUtil.newHashMap(globalStringList.size());
       for (int i = 0; i < globalStringList.size(); i++) {
         globalStringMap.put(globalStringList.get(i), i + 1);
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -354,8 +367,11 @@ public class TransactionLog implements Closeable {
   }
 
   Collection<String> getGlobalStrings() {
-    synchronized (this) {
+    lock.lock();
+    try {
       return new ArrayList<>(globalStringList);
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -383,12 +399,15 @@ public class TransactionLog implements Closeable {
     // rollback() is the only function that can reset to zero, and it blocks updates.
     if (fos.size() != 0) return;
 
-    synchronized (this) {
-      if (fos.size() != 0) return; // check again while synchronized
+    lock.lock();
+    try {
+      if (fos.size() != 0) return; // check again while locked
       if (optional != null) {
         addGlobalStrings(optional.getFieldNames());
       }
       writeLogHeader(codec);
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -447,7 +466,8 @@ public class TransactionLog implements Closeable {
       }
       lastAddSize = (int) out.size();
 
-      synchronized (this) {
+      lock.lock();
+      try {
         long pos = fos.size(); // if we had flushed, this should be equal to channel.position()
         assert pos != 0;
 
@@ -462,6 +482,8 @@ public class TransactionLog implements Closeable {
         endRecord(pos);
         // fos.flushBuffer();  // flush later
         return pos;
+      } finally {
+        lock.unlock();
       }
 
     } catch (IOException e) {
@@ -485,13 +507,16 @@ public class TransactionLog implements Closeable {
       codec.writeLong(cmd.getVersion());
       codec.writeByteArray(br.bytes, br.offset, br.length);
 
-      synchronized (this) {
+      lock.lock();
+      try {
         long pos = fos.size(); // if we had flushed, this should be equal to channel.position()
         assert pos != 0;
         out.writeAll(fos);
         endRecord(pos);
         // fos.flushBuffer();  // flush later
         return pos;
+      } finally {
+        lock.unlock();
       }
 
     } catch (IOException e) {
@@ -511,12 +536,15 @@ public class TransactionLog implements Closeable {
       codec.writeLong(cmd.getVersion());
       codec.writeStr(cmd.query);
 
-      synchronized (this) {
+      lock.lock();
+      try {
         long pos = fos.size(); // if we had flushed, this should be equal to channel.position()
         out.writeAll(fos);
         endRecord(pos);
         // fos.flushBuffer();  // flush later
         return pos;
+      } finally {
+        lock.unlock();
       }
     } catch (IOException e) {
       throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
@@ -525,7 +553,8 @@ public class TransactionLog implements Closeable {
 
   public long writeCommit(CommitUpdateCommand cmd) {
     LogCodec codec = new LogCodec(resolver);
-    synchronized (this) {
+    lock.lock();
+    try {
       try {
         long pos = fos.size(); // if we had flushed, this should be equal to channel.position()
 
@@ -548,6 +577,8 @@ public class TransactionLog implements Closeable {
       } catch (IOException e) {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -560,7 +591,8 @@ public class TransactionLog implements Closeable {
 
     try {
       // make sure any unflushed buffer has been flushed
-      synchronized (this) {
+      lock.lock();
+      try {
         // TODO: optimize this by keeping track of what we have flushed up to
         fos.flush();
         /*
@@ -569,6 +601,8 @@ public class TransactionLog implements Closeable {
           throw new RuntimeException("ERROR" + "###flush to " + fos.size() + " raf.length()=" + raf.length() + " pos="+pos);
         }
         */
+      } finally {
+        lock.unlock();
       }
 
       DataInputInputStream is = channelInputStreamOpener.open(channel, pos);
@@ -600,8 +634,11 @@ public class TransactionLog implements Closeable {
 
   /** returns the current position in the log file */
   public long position() {
-    synchronized (this) {
+    lock.lock();
+    try {
       return fos.size();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -614,12 +651,15 @@ public class TransactionLog implements Closeable {
   public void finish(UpdateLog.SyncLevel syncLevel) {
     if (syncLevel == UpdateLog.SyncLevel.NONE) return;
     try {
-      synchronized (this) {
+      lock.lock();
+      try {
         fos.flush();
+      } finally {
+        lock.unlock();
       }
 
       if (syncLevel == UpdateLog.SyncLevel.FSYNC) {
-        // Since fsync is outside of synchronized block, we can end up with a partial
+        // Since fsync is outside of the locked block, we can end up with a partial
         // last record on power failure (which is OK, and does not represent an error...
         // we just need to be aware of it when reading).
         channel.force(true);
@@ -637,9 +677,12 @@ public class TransactionLog implements Closeable {
         log.debug("Closing tlog {}", this);
       }
 
-      synchronized (this) {
+      lock.lock();
+      try {
         fos.flush();
         fos.close();
+      } finally {
+        lock.unlock();
       }
 
       if (deleteOnClose) {
@@ -684,8 +727,13 @@ public class TransactionLog implements Closeable {
   /**
    * @return the FastOutputStream size
    */
-  public synchronized long getLogSizeFromStream() {
-    return fos.size();
+  public long getLogSizeFromStream() {
+    lock.lock();
+    try {
+      return fos.size();
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -726,7 +774,8 @@ public class TransactionLog implements Closeable {
     public Object next() throws IOException, InterruptedException {
       long pos = fis.position();
 
-      synchronized (TransactionLog.this) {
+      lock.lock();
+      try {
         if (trace) {
           log.trace("Reading log record.  pos={} currentSize={}", pos, fos.size());
         }
@@ -736,6 +785,8 @@ public class TransactionLog implements Closeable {
         }
 
         fos.flush();
+      } finally {
+        lock.unlock();
       }
 
       if (pos == 0) {
@@ -743,11 +794,14 @@ public class TransactionLog implements Closeable {
 
         // shouldn't currently happen - header and first record are currently written at the same
         // time
-        synchronized (TransactionLog.this) {
+        lock.lock();
+        try {
           if (fis.position() >= fos.size()) {
             return null;
           }
           pos = fis.position();
+        } finally {
+          lock.unlock();
         }
       }
 
@@ -766,7 +820,8 @@ public class TransactionLog implements Closeable {
 
     @Override
     public String toString() {
-      synchronized (TransactionLog.this) {
+      lock.lock();
+      try {
         return "LogReader{"
             + "file="
             + tlog
@@ -775,6 +830,8 @@ public class TransactionLog implements Closeable {
             + ", end="
             + fos.size()
             + "}";
+      } finally {
+        lock.unlock();
       }
     }
 
@@ -875,10 +932,13 @@ public class TransactionLog implements Closeable {
       incref();
 
       long sz;
-      synchronized (TransactionLog.this) {
+      lock.lock();
+      try {
         fos.flush();
         sz = fos.size();
         assert sz == getLogFileSize();
+      } finally {
+        lock.unlock();
       }
 
       fis = channelInputStreamOpener.open(channel, 0);
@@ -949,7 +1009,8 @@ public class TransactionLog implements Closeable {
 
     @Override
     public String toString() {
-      synchronized (TransactionLog.this) {
+      lock.lock();
+      try {
         return "LogReader{"
             + "file="
             + tlog
@@ -958,6 +1019,8 @@ public class TransactionLog implements Closeable {
             + ", end="
             + fos.size()
             + "}";
+      } finally {
+        lock.unlock();
       }
     }
   }
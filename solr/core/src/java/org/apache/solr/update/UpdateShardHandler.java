@@ -59,17 +59,20 @@ public class UpdateShardHandler implements SolrInfoBean {
    * Therefore this thread pool is left unbounded. See SOLR-8205
    */
   private ExecutorService updateExecutor =
-      new ExecutorUtil.MDCAwareThreadPoolExecutor(
-          0,
-          Integer.MAX_VALUE,
-          60L,
-          TimeUnit.SECONDS,
-          new SynchronousQueue<>(),
-          new SolrNamedThreadFactory("updateExecutor"),
-          // the Runnable added to this executor handles all exceptions so we disable stack trace
-          // collection as an optimization
-          // see SOLR-11880 for more details
-          false);
+      ExecutorUtil.useVirtualThreads()
+          // tasks mostly wait on remote replicas, so unbounded virtual threads are a natural fit
+          ? ExecutorUtil.newMDCAwareVirtualThreadPerTaskExecutor("updateExecutor")
+          : new ExecutorUtil.MDCAwareThreadPoolExecutor(
+              0,
+              Integer.MAX_VALUE,
+              60L,
+              TimeUnit.SECONDS,
+              new SynchronousQueue<>(),
+              new SolrNamedThreadFactory("updateExecutor"),
+              // the Runnable added to this executor handles all exceptions so we disable stack
+              // trace collection as an optimization
+              // see SOLR-11880 for more details
+              false);
 
   private ExecutorService recoveryExecutor;
 
@@ -33,6 +33,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.SuppressForbidden;
 import org.apache.solr.index.SlowCompositeReaderWrapper;
 import org.apache.solr.legacy.LegacyNumericUtils;
@@ -103,6 +104,11 @@ public class VersionInfo {
             .get("versionBucketLockTimeoutMs")
             .intVal(
                 Integer.parseInt(System.getProperty(SYS_PROP_BUCKET_VERSION_LOCK_TIMEOUT_MS, "0")));
+    if (versionBucketLockTimeoutMs <= 0 && ExecutorUtil.useVirtualThreads()) {
+      // updates waiting on a bucket's monitor would pin their carrier threads, so use the lock
+      // based buckets instead, waiting as long as the monitor would
+      versionBucketLockTimeoutMs = Integer.MAX_VALUE;
+    }
     buckets = new VersionBucket[BitUtil.nextHighestPowerOfTwo(nBuckets)];
     for (int i = 0; i < buckets.length; i++) {
       if (versionBucketLockTimeoutMs > 0) {
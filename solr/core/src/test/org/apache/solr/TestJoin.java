@@ -29,6 +29,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.join.JoinIndex;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -248,7 +249,7 @@ public class TestJoin extends SolrTestCaseJ4 {
    * Exercises behavior specific to method=topLevel join queries
    */
   @Test
-  public void testTopLevelDVJoin() {
+  public void testTopLevelDVJoin() throws Exception {
     indexEmployeeDocs();
     ModifiableSolrParams p = params("sort", "id asc");
 
@@ -277,6 +278,22 @@ public class TestJoin extends SolrTestCaseJ4 {
                   "fl",
                   "id"));
         });
+
+    // the ordinals are translated with a join index, which is cached and warmed
+    final JoinIndex.Key key = new JoinIndex.Key(DEPT_FIELD, DEPT_ID_FIELD);
+    final String mtsDepartments =
+        "/response=={'numFound':3,'start':0,'numFoundExact':true,'docs':[{'id':'10'},{'id':'12'},{'id':'13'}]}";
+    final String query =
+        "{!join from=" + DEPT_FIELD + " to=" + DEPT_ID_FIELD + " method=topLevelDV}title:MTS";
+    assertJQ(req(p, "q", query, "fl", "id"), mtsDepartments);
+    assertNotNull(
+        h.getCore().withSearcher(searcher -> searcher.getCache(JoinIndex.CACHE_NAME).get(key)));
+
+    assertU(adoc("id", "14", DEPT_ID_FIELD, "Accounting"));
+    assertU(commit());
+    assertNotNull(
+        h.getCore().withSearcher(searcher -> searcher.getCache(JoinIndex.CACHE_NAME).get(key)));
+    assertJQ(req(p, "q", query, "fl", "id"), mtsDepartments);
   }
 
   @Test
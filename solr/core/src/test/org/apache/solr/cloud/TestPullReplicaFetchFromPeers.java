@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.handler.IndexFetcher;
+import org.apache.solr.util.LogLevel;
+import org.apache.solr.util.LogListener;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Verifies that new PULL replicas and recovering replicas still converge on the leader's index
+ * when index files may be downloaded from other replicas holding identical copies of them.
+ */
+@LogLevel("org.apache.solr.handler.IndexFetcher=DEBUG")
+public class TestPullReplicaFetchFromPeers extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "pull_fetch_from_peers";
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    System.setProperty("solr.indexfetcher.fetchFromPeers", "true");
+    configureCluster(3).addConfig("conf", configset("cloud-minimal")).configure();
+  }
+
+  @AfterClass
+  public static void clearProperties() {
+    System.clearProperty("solr.indexfetcher.fetchFromPeers");
+  }
+
+  @Test
+  public void testNewReplicaFetchesFromPeers() throws Exception {
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 1, 1, 0, 2)
+        .process(cluster.getSolrClient());
+    waitForState("Expected 3 active replicas", COLLECTION, activeClusterShape(1, 3));
+    int numDocs = indexBatches(COLLECTION);
+
+    // the new replica sees two PULL replicas whose files match the leader's commit point
+    assertNewReplicaFetchesFromPeers(COLLECTION, Replica.Type.PULL, numDocs);
+  }
+
+  @Test
+  public void testRecoveringReplicaFetchesFromPeers() throws Exception {
+    String collection = "recovery_fetch_from_peers";
+    CollectionAdminRequest.createCollection(collection, "conf", 1, 1, 0, 2)
+        .process(cluster.getSolrClient());
+    waitForState("Expected 3 active replicas", collection, activeClusterShape(1, 3));
+    int numDocs = indexBatches(collection);
+
+    // a new NRT replica has no update log to peer sync from, so it recovers by replicating
+    assertNewReplicaFetchesFromPeers(collection, Replica.Type.NRT, numDocs);
+  }
+
+  private static int indexBatches(String collection) throws Exception {
+    int numDocs = 0;
+    for (int batch = 0; batch < 3; batch++) {
+      UpdateRequest req = new UpdateRequest();
+      for (int i = 0; i < 20; i++) {
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField("id", String.valueOf(numDocs++));
+        req.add(doc);
+      }
+      req.commit(cluster.getSolrClient(), collection);
+    }
+    TestPullReplica.waitForNumDocsInAllReplicas(
+        numDocs, getCollectionState(collection).getReplicas(), "*:*", null, null);
+    return numDocs;
+  }
+
+  private static void assertNewReplicaFetchesFromPeers(
+      String collection, Replica.Type type, int numDocs) throws Exception {
+    String leaderUrl = getCollectionState(collection).getLeader("shard1").getCoreUrl();
+    try (LogListener peerFetches =
+        LogListener.debug(IndexFetcher.class).substring("from replica")) {
+      peerFetches.setQueue(new ConcurrentLinkedQueue<>());
+      CollectionAdminRequest.addReplicaToShard(collection, "shard1", type)
+          .process(cluster.getSolrClient());
+      waitForState("Expected 4 active replicas", collection, activeClusterShape(1, 4));
+
+      List<Replica> replicas = new ArrayList<>(getCollectionState(collection).getReplicas());
+      TestPullReplica.waitForNumDocsInAllReplicas(numDocs, replicas, "*:*", null, null);
+
+      assertTrue("No index file was fetched from a peer", peerFetches.getCount() > 0);
+      String message;
+      while ((message = peerFetches.pollMessage()) != null) {
+        assertFalse(message, message.endsWith(" " + leaderUrl));
+      }
+    }
+  }
+}
@@ -18,9 +18,12 @@ package org.apache.solr.cloud.overseer;
 
 import java.lang.invoke.MethodHandles;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.lucene.util.IOUtils;
@@ -39,6 +42,8 @@ import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.common.util.Compressor;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.common.util.ZLibCompressor;
 import org.apache.solr.handler.admin.ConfigSetsHandler;
@@ -357,6 +362,79 @@ public class ZkStateWriterTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testParallelCollectionWrites() throws Exception {
+    Path zkDir = createTempDir("testParallelCollectionWrites");
+
+    ZkTestServer server = new ZkTestServer(zkDir);
+
+    SolrZkClient zkClient = null;
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(3, new SolrNamedThreadFactory("stateWriterTest"));
+
+    try {
+      server.run();
+
+      zkClient =
+          new SolrZkClient.Builder()
+              .withUrl(server.getZkAddress())
+              .withTimeout(OverseerTest.DEFAULT_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+              .build();
+      ZkController.createClusterZkNodes(zkClient);
+
+      try (ZkStateReader reader = new ZkStateReader(zkClient)) {
+        reader.createClusterStateWatchersAndUpdate();
+
+        ZkStateWriter writer =
+            new ZkStateWriter(reader, new Stats(), -1, STATE_COMPRESSION_PROVIDER, executor);
+
+        Map<String, Object> props =
+            Collections.singletonMap(
+                ZkStateReader.CONFIGNAME_PROP, ConfigSetsHandler.DEFAULT_CONFIGSET_NAME);
+        List<ZkWriteCommand> cmds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+          String name = "c" + i;
+          zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/" + name, true);
+          cmds.add(
+              new ZkWriteCommand(
+                  name, new DocCollection(name, new HashMap<>(), props, DocRouter.DEFAULT, 0)));
+        }
+
+        writer.enqueueUpdate(reader.getClusterState(), cmds, null);
+        ClusterState clusterState = writer.writePendingUpdates();
+
+        for (int i = 0; i < 6; i++) {
+          String name = "c" + i;
+          Map<?, ?> map =
+              (Map<?, ?>)
+                  Utils.fromJSON(
+                      zkClient.getData(
+                          ZkStateReader.COLLECTIONS_ZKNODE + "/" + name + "/state.json",
+                          null,
+                          null,
+                          true));
+          assertNotNull(map.get(name));
+          assertEquals(0, clusterState.getCollection(name).getZNodeVersion());
+        }
+
+        // a second batch updates every collection using the versions returned by the first one
+        cmds.clear();
+        for (int i = 0; i < 6; i++) {
+          String name = "c" + i;
+          cmds.add(new ZkWriteCommand(name, clusterState.getCollection(name)));
+        }
+        writer.enqueueUpdate(clusterState, cmds, null);
+        clusterState = writer.writePendingUpdates();
+        for (int i = 0; i < 6; i++) {
+          assertEquals(1, clusterState.getCollection("c" + i).getZNodeVersion());
+        }
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      IOUtils.close(zkClient);
+      server.shutdown();
+    }
+  }
+
   public void testExternalModification() throws Exception {
     Path zkDir = createTempDir("testExternalModification");
 
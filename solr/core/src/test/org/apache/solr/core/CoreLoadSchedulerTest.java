@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.junit.Test;
+
+public class CoreLoadSchedulerTest extends SolrTestCase {
+
+  @Test
+  public void testDemandedCoresLoadFirst() throws Exception {
+    CoreLoadScheduler scheduler = new CoreLoadScheduler();
+    List<String> loadOrder = Collections.synchronizedList(new ArrayList<>());
+    List<Future<SolrCore>> futures = new ArrayList<>();
+    for (String name : new String[] {"a", "b", "c", "d", "e"}) {
+      futures.add(
+          scheduler.add(
+              name,
+              () -> {
+                loadOrder.add(name);
+                return null;
+              }));
+    }
+
+    assertTrue(scheduler.prioritize("d"));
+    assertTrue(scheduler.prioritize("b"));
+    // already prioritized, keeps its place
+    assertFalse(scheduler.prioritize("d"));
+    assertFalse(scheduler.prioritize("unknown"));
+    assertEquals(5, scheduler.size());
+
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareSingleThreadExecutor(new SolrNamedThreadFactory("coreLoadTest"));
+    try {
+      scheduler.start(executor, 4);
+      for (Future<SolrCore> future : futures) {
+        future.get();
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+
+    assertEquals(List.of("d", "b", "a", "c", "e"), loadOrder);
+    assertEquals(0, scheduler.size());
+    assertFalse("loaded cores can't be prioritized", scheduler.prioritize("e"));
+  }
+
+  @Test
+  public void testAllCoresLoadedByConcurrentWorkers() throws Exception {
+    CoreLoadScheduler scheduler = new CoreLoadScheduler();
+    List<Future<SolrCore>> futures = new ArrayList<>();
+    List<String> loaded = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 50; i++) {
+      String name = "core" + i;
+      futures.add(
+          scheduler.add(
+              name,
+              () -> {
+                loaded.add(name);
+                return null;
+              }));
+    }
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(3, new SolrNamedThreadFactory("coreLoadTest"));
+    try {
+      scheduler.start(executor, 3);
+      for (int i = 49; i >= 0; i--) {
+        scheduler.prioritize("core" + i);
+      }
+      for (Future<SolrCore> future : futures) {
+        future.get();
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+    assertEquals(50, loaded.size());
+  }
+}
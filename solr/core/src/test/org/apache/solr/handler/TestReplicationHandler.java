@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -1517,6 +1518,73 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
     assertTrue(timeTakenInSeconds - approximateTimeInSeconds > 0);
   }
 
+  @Test
+  public void testParallelFetchReplication() throws Exception {
+    followerJetty.stop();
+    System.setProperty("solr.indexfetcher.fetchThreads", "4");
+    System.setProperty("solr.indexfetcher.maxFetchMBPerSec", "0.1");
+    try {
+      follower.setTestPort(leaderJetty.getLocalPort());
+      follower.copyConfigFile(CONF_DIR + "solrconfig-follower1.xml", "solrconfig.xml");
+      followerJetty = createAndStartJetty(follower);
+      followerClient.close();
+      followerClient =
+          createNewSolrClient(
+              buildUrl(followerJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME);
+
+      leaderClient.deleteByQuery("*:*");
+      // several commits so that the index has several segments to fetch concurrently
+      int totalDocs = 0;
+      for (int commit = 0; commit < 5; commit++) {
+        for (int i = 0; i < 20; i++, totalDocs++) {
+          index(
+              leaderClient,
+              "id",
+              totalDocs,
+              "name",
+              TestUtil.randomSimpleString(random(), 1000, 5000));
+        }
+        leaderClient.commit();
+      }
+      long indexBytes;
+      try (SolrCore core = leaderJetty.getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+        indexBytes =
+            core.withSearcher(
+                searcher -> {
+                  IndexCommit commit = searcher.getIndexReader().getIndexCommit();
+                  long bytes = 0;
+                  for (String file : commit.getFileNames()) {
+                    bytes += commit.getDirectory().fileLength(file);
+                  }
+                  return bytes;
+                });
+      }
+
+      long startTime = System.nanoTime();
+      pullFromTo(leaderJetty, followerJetty);
+
+      NamedList<Object> followerQueryRsp = rQuery(totalDocs, "*:*", followerClient);
+      assertEquals(totalDocs, numFound(followerQueryRsp));
+      assertVersions(leaderClient, followerClient);
+
+      // the files were fetched by 4 threads, but their total rate is still limited to 0.1 MB/s,
+      // which a limit per connection would exceed
+      double minSeconds = 0.5 * indexBytes / 1024 / 1024 / 0.1;
+      double timeTakenInSeconds = (System.nanoTime() - startTime) / 1e9;
+      log.info(
+          "indexBytes = {} minSeconds = {} timeTakenInSeconds = {}",
+          indexBytes,
+          minSeconds,
+          timeTakenInSeconds);
+      assertTrue(
+          "Fetched " + indexBytes + " bytes in " + timeTakenInSeconds + "s",
+          timeTakenInSeconds >= minSeconds);
+    } finally {
+      System.clearProperty("solr.indexfetcher.fetchThreads");
+      System.clearProperty("solr.indexfetcher.maxFetchMBPerSec");
+    }
+  }
+
   @Test
   public void doTestIllegalFilePaths() {
     // Loop through the file=, cf=, tlogFile= params and prove that it throws exception for path
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.Map;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DistributedResponseCacheCloudTest extends SolrCloudTestCase {
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2).addConfig("conf", configset("cloud-distrib-response-cache")).configure();
+  }
+
+  private static void createCollection(String collection) throws Exception {
+    CollectionAdminRequest.createCollection(collection, "conf", 2, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collection, 2, 2);
+  }
+
+  private static Map<String, Object> cacheMetrics(Replica replica) {
+    for (JettySolrRunner runner : cluster.getJettySolrRunners()) {
+      try (SolrCore core = runner.getCoreContainer().getCore(replica.getCoreName())) {
+        if (core != null) {
+          return ((MetricsMap)
+                  ((SolrMetricManager.GaugeWrapper<?>)
+                          core.getCoreMetricManager()
+                              .getRegistry()
+                              .getMetrics()
+                              .get("QUERY./select." + DistributedResponseCache.INIT_ARG))
+                      .getGauge())
+              .getValue();
+        }
+      }
+    }
+    throw new AssertionError("No core found for " + replica);
+  }
+
+  private static long count(Map<String, Object> metrics, String name) {
+    return ((Number) metrics.get(name)).longValue();
+  }
+
+  @Test
+  public void testCachedUntilShardsChange() throws Exception {
+    final String collection = "cached_until_change";
+    createCollection(collection);
+    new UpdateRequest()
+        .add(sdoc("id", "1", "type_s", "a"))
+        .add(sdoc("id", "2", "type_s", "a"))
+        .add(sdoc("id", "3", "type_s", "b"))
+        .commit(cluster.getSolrClient(), collection);
+
+    // send every query to the same coordinating core, which holds the cache
+    Replica replica = getCollectionState(collection).getReplicas().get(0);
+    SolrQuery query = new SolrQuery("type_s:a");
+    try (SolrClient client = getHttpSolrClient(replica.getCoreUrl())) {
+      assertEquals(2, client.query(query).getResults().getNumFound());
+      Map<String, Object> metrics = cacheMetrics(replica);
+      assertEquals(1, count(metrics, "probes"));
+      assertEquals(1, count(metrics, "misses"));
+      assertEquals(0, count(metrics, "hits"));
+      assertEquals(1, count(metrics, "size"));
+
+      assertEquals(2, client.query(query).getResults().getNumFound());
+      metrics = cacheMetrics(replica);
+      assertEquals(1, count(metrics, "hits"));
+      assertEquals(1, count(metrics, "misses"));
+
+      // the next probe sees the new version of the shard, so the response is computed again
+      long probes = count(metrics, "probes");
+      new UpdateRequest()
+          .add(sdoc("id", "4", "type_s", "a"))
+          .commit(cluster.getSolrClient(), collection);
+      assertEquals(3, client.query(query).getResults().getNumFound());
+      metrics = cacheMetrics(replica);
+      assertTrue(count(metrics, "probes") > probes);
+      assertEquals(1, count(metrics, "stale"));
+      assertEquals(1, count(metrics, "hits"));
+
+      assertEquals(3, client.query(query).getResults().getNumFound());
+      assertEquals(2, count(cacheMetrics(replica), "hits"));
+    }
+  }
+
+  @Test
+  public void testInvalidatedByCommitWithoutNewUpdates() throws Exception {
+    final String collection = "cached_until_commit";
+    createCollection(collection);
+    new UpdateRequest()
+        .add(sdoc("id", "1", "type_s", "a"))
+        .add(sdoc("id", "2", "type_s", "a"))
+        .commit(cluster.getSolrClient(), collection);
+
+    Replica replica = getCollectionState(collection).getReplicas().get(0);
+    SolrQuery query = new SolrQuery("type_s:a");
+    try (SolrClient client = getHttpSolrClient(replica.getCoreUrl())) {
+      assertEquals(2, client.query(query).getResults().getNumFound());
+
+      // an update that isn't committed yet doesn't change what the shards return
+      new UpdateRequest()
+          .add(sdoc("id", "3", "type_s", "a"))
+          .process(cluster.getSolrClient(), collection);
+      assertEquals(2, client.query(query).getResults().getNumFound());
+      Map<String, Object> metrics = cacheMetrics(replica);
+      assertEquals(1, count(metrics, "hits"));
+      assertEquals(0, count(metrics, "stale"));
+
+      // the commit carries no new update, but opens new searchers
+      cluster.getSolrClient().commit(collection);
+      assertEquals(3, client.query(query).getResults().getNumFound());
+      metrics = cacheMetrics(replica);
+      assertEquals(1, count(metrics, "stale"));
+      assertEquals(1, count(metrics, "hits"));
+
+      // requests relative to NOW are neither cached nor served from the cache
+      SolrQuery nowQuery = new SolrQuery("type_s:a");
+      nowQuery.addFilterQuery("type_s:[* TO NOW]");
+      assertEquals(3, client.query(nowQuery).getResults().getNumFound());
+      assertEquals(3, client.query(nowQuery).getResults().getNumFound());
+      Map<String, Object> after = cacheMetrics(replica);
+      assertEquals(count(metrics, "hits"), count(after, "hits"));
+      assertEquals(count(metrics, "misses"), count(after, "misses"));
+      assertEquals(count(metrics, "size"), count(after, "size"));
+    }
+  }
+}
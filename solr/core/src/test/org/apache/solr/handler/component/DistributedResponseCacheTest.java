@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DistributedResponseCacheTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  private static String cacheKey(String... params) {
+    try (SolrQueryRequest req = req(params)) {
+      req.getContext().put(CommonParams.PATH, "/select");
+      return DistributedResponseCache.cacheKey(req);
+    }
+  }
+
+  private static boolean isCacheable(String... params) {
+    try (SolrQueryRequest req = req(params)) {
+      ResponseBuilder rb = new ResponseBuilder(req, new SolrQueryResponse(), List.of());
+      rb.shards = new String[] {"shard1", "shard2"};
+      return new DistributedResponseCache(new NamedList<>()).isCacheable(rb);
+    }
+  }
+
+  private static SolrQueryResponse response(String value) {
+    SolrQueryResponse rsp = new SolrQueryResponse();
+    rsp.addResponseHeader(new SimpleOrderedMap<>());
+    rsp.add("response", value);
+    return rsp;
+  }
+
+  @Test
+  public void testCacheKey() {
+    assertEquals(
+        cacheKey("q", "a", "fq", "b", "wt", "json", "rid", "1"),
+        cacheKey("fq", "b", "q", "a", "indent", "true"));
+    assertNotEquals(cacheKey("q", "a", "fq", "b"), cacheKey("q", "a", "fq", "c"));
+  }
+
+  @Test
+  public void testInvalidatedByShardVersion() {
+    DistributedResponseCache cache = new DistributedResponseCache(new NamedList<>());
+    Map<String, Long> versions = Map.of("replica1", 5L, "replica2", 7L);
+
+    assertNull(cache.get("key", versions));
+    cache.put("key", versions, response("cached"));
+    NamedList<Object> cached = cache.get("key", versions);
+    assertNotNull(cached);
+    assertEquals("cached", cached.get("response"));
+    assertNull(cached.get(SolrQueryResponse.RESPONSE_HEADER_KEY));
+
+    // a new searcher on any replica invalidates the entry
+    assertNull(cache.get("key", Map.of("replica1", 5L, "replica2", 8L)));
+    assertNull(cache.get("key", versions));
+  }
+
+  @Test
+  public void testUnversionedNotCached() {
+    // shards that can't be versioned are never cached
+    DistributedResponseCache cache = new DistributedResponseCache(new NamedList<>());
+    cache.put("key", Map.of(), response("cached"));
+    assertNull(cache.get("key", Map.of()));
+  }
+
+  @Test
+  public void testNowDateMathNotCacheable() {
+    assertTrue(isCacheable("q", "*:*", "fq", "ts:[2020-01-01T00:00:00Z TO *]"));
+    assertFalse(isCacheable("q", "*:*", "fq", "ts:[NOW-1HOUR TO NOW]"));
+    // unless NOW is fixed by the request
+    assertTrue(isCacheable("q", "*:*", "fq", "ts:[NOW-1HOUR TO NOW]", "NOW", "1700000000000"));
+  }
+
+  @Test
+  public void testPartialResultsNotCached() {
+    DistributedResponseCache cache = new DistributedResponseCache(new NamedList<>());
+    Map<String, Long> versions = Map.of("replica1", 5L);
+    SolrQueryResponse rsp = response("partial");
+    rsp.getResponseHeader().add(SolrQueryResponse.RESPONSE_HEADER_PARTIAL_RESULTS_KEY, true);
+    cache.put("key", versions, rsp);
+    assertNull(cache.get("key", versions));
+  }
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -355,4 +356,141 @@ public class TestCaffeineCache extends SolrTestCase {
     cache.close();
     assertEquals(emptySize, cache.ramBytesUsed());
   }
+
+  @Test
+  public void testCostAware() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "10");
+    params.put("async", "false");
+    params.put(CaffeineCache.COST_AWARE_PARAM, "true");
+    params.put(CaffeineCache.MAX_COST_FACTOR_PARAM, "4");
+    CaffeineCache<Integer, String> cache = new CaffeineCache<>();
+    cache.initializeMetrics(
+        new SolrMetricsContext(metricManager, registry, "foo"), scope + "-costAware");
+    cache.init(params, null, null);
+
+    // entries taking several milliseconds to compute count as one entry
+    for (int i = 0; i < 10; i++) {
+      cache.computeIfAbsent(i, k -> computeSlowly("expensive"));
+    }
+    for (int i = 0; i < 10; i++) {
+      assertEquals("expensive", cache.computeIfAbsent(i, k -> "recomputed"));
+    }
+    assertEquals(10, cache.size());
+    Map<String, Object> nl = cache.getMetricsMap().getValue();
+    assertTrue(((Number) nl.get("computeTimeMs")).longValue() >= 50);
+    assertTrue(((Number) nl.get("savedComputeTimeMs")).longValue() >= 50);
+
+    // cheap entries count as 4 entries, and the cache never goes over its size
+    for (int i = 10; i < 20; i++) {
+      cache.computeIfAbsent(i, k -> "cheap");
+      assertTrue(cache.size() <= 10);
+    }
+    int expensive = 0;
+    int cheap = 0;
+    for (int i = 0; i < 20; i++) {
+      String value = cache.get(i);
+      if ("expensive".equals(value)) {
+        expensive++;
+      } else if ("cheap".equals(value)) {
+        cheap++;
+      }
+    }
+    assertTrue(
+        "expensive=" + expensive + " cheap=" + cheap, expensive > 0 && expensive + 4 * cheap <= 10);
+    cache.close();
+  }
+
+  private static String computeSlowly(String value) {
+    try {
+      Thread.sleep(5);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return value;
+  }
+
+  @Test
+  public void testBackgroundWarming() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("autowarmCount", "10");
+    params.put(CaffeineCache.BACKGROUND_WARM_PARAM, "true");
+    params.put(CaffeineCache.BACKGROUND_WARM_THREADS_PARAM, "2");
+
+    CountDownLatch release = new CountDownLatch(1);
+    CacheRegenerator regenerator =
+        new CacheRegenerator() {
+          @Override
+          public <K, V> boolean regenerateItem(
+              SolrIndexSearcher newSearcher,
+              SolrCache<K, V> newCache,
+              SolrCache<K, V> oldCache,
+              K oldKey,
+              V oldVal)
+              throws IOException {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return false;
+            }
+            newCache.put(oldKey, oldVal);
+            return true;
+          }
+        };
+
+    SolrMetricsContext solrMetricsContext = new SolrMetricsContext(metricManager, registry, "foo");
+    CaffeineCache<Integer, String> oldCache = new CaffeineCache<>();
+    oldCache.initializeMetrics(solrMetricsContext, scope + "-old");
+    oldCache.init(params, null, regenerator);
+    for (int i = 0; i < 10; i++) {
+      oldCache.put(i, Integer.toString(i));
+    }
+
+    CaffeineCache<Integer, String> newCache = new CaffeineCache<>();
+    newCache.initializeMetrics(solrMetricsContext, scope + "-new");
+    newCache.init(params, null, regenerator);
+    try {
+      // returns without waiting for the regenerator
+      newCache.warm(null, oldCache);
+      assertEquals(0, newCache.size());
+      assertEquals(10, newCache.getMetricsMap().getValue().get("warmupBacklog"));
+
+      release.countDown();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (newCache.size() < 10 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(10, newCache.size());
+      assertEquals("5", newCache.get(5));
+      Map<String, Object> nl = newCache.getMetricsMap().getValue();
+      assertEquals(10L, nl.get("warmupEntries"));
+      assertEquals(0, nl.get("warmupBacklog"));
+      assertEquals(false, nl.get("warmupTimedOut"));
+    } finally {
+      newCache.close();
+      oldCache.close();
+    }
+  }
+
+  @Test
+  public void testWarmingPriority() {
+    Map<String, String> hottest = new LinkedHashMap<>();
+    hottest.put("hot-cheap", "a");
+    hottest.put("warm-expensive", "b");
+    hottest.put("cold-unknown", "c");
+    Map<String, Long> costs = new HashMap<>();
+    costs.put("hot-cheap", TimeUnit.MICROSECONDS.toNanos(10));
+    costs.put("warm-expensive", TimeUnit.MILLISECONDS.toNanos(50));
+
+    List<String> order = new ArrayList<>();
+    CaffeineCache.prioritize(hottest, costs).forEach(e -> order.add(e.getKey()));
+    assertEquals(List.of("warm-expensive", "hot-cheap", "cold-unknown"), order);
+
+    // without costs, entries are warmed by frequency alone
+    order.clear();
+    CaffeineCache.prioritize(hottest, null).forEach(e -> order.add(e.getKey()));
+    assertEquals(List.of("hot-cheap", "warm-expensive", "cold-unknown"), order);
+  }
 }
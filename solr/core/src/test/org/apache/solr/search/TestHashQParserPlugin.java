@@ -24,6 +24,7 @@ import org.apache.lucene.tests.util.LuceneTestCase;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.util.BaseTestHarness;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -113,6 +114,43 @@ public class TestHashQParserPlugin extends SolrTestCaseJ4 {
     BaseTestHarness.validateXPath(response, "//*[@numFound='4']");
   }
 
+  @Test
+  public void testCachedPartitions() throws Exception {
+    for (int i = 0; i < 100; i++) {
+      String val = Integer.toString(random().nextInt(1000000));
+      assertU(adoc("id", Integer.toString(i), "a_s", val, "a_i", val));
+      if (i % 30 == 0) assertU(commit());
+    }
+    assertU(commit());
+
+    HashQParserPlugin cached = new HashQParserPlugin();
+    HashQParserPlugin uncached = new HashQParserPlugin();
+    NamedList<Object> args = new NamedList<>();
+    args.add(HashQParserPlugin.PARTITION_CACHE_MAX_RAM_MB, "0");
+    uncached.init(args);
+
+    String[][] keys = {{"a_s"}, {"a_i"}, {"a_s", "a_i"}};
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              for (String[] key : keys) {
+                int total = 0;
+                for (int worker = 0; worker < 3; worker++) {
+                  DocSet expected = searcher.getDocSet(uncached.partitionQuery(key, 3, worker));
+                  // once computing the partitions, then from the cache
+                  for (int i = 0; i < 2; i++) {
+                    DocSet actual = searcher.getDocSet(cached.partitionQuery(key, 3, worker));
+                    assertEquals(expected.size(), actual.size());
+                    assertEquals(expected.size(), expected.intersectionSize(actual));
+                  }
+                  total += expected.size();
+                }
+                assertEquals(100, total);
+              }
+              return null;
+            });
+  }
+
   @Test
   @SuppressWarnings({"unchecked", "rawtypes"})
   public void testHashPartition() throws Exception {
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+public class TestQueryCanonicalizer extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.canonicalizeQueries", "true");
+    initCore("solrconfig.xml", "schema.xml");
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", String.valueOf(i), "val_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.canonicalizeQueries");
+  }
+
+  private static Query term(String text) {
+    return new TermQuery(new Term("f", text));
+  }
+
+  private static BooleanQuery bool(Object... occurAndQuery) {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (int i = 0; i < occurAndQuery.length; i += 2) {
+      builder.add((Query) occurAndQuery[i + 1], (Occur) occurAndQuery[i]);
+    }
+    return builder.build();
+  }
+
+  public void testRedundantStructure() {
+    Query a = term("a");
+    Query b = term("b");
+    Query c = term("c");
+
+    assertSame(a, QueryCanonicalizer.canonicalize(new BoostQuery(a, 1f)));
+    assertEquals(
+        new BoostQuery(a, 6f),
+        QueryCanonicalizer.canonicalize(new BoostQuery(new BoostQuery(a, 2f), 3f)));
+    assertSame(a, QueryCanonicalizer.canonicalize(bool(Occur.SHOULD, a)));
+    assertSame(a, QueryCanonicalizer.canonicalize(bool(Occur.MUST, bool(Occur.MUST, a))));
+
+    // nested conjunctions and disjunctions
+    assertEquals(
+        bool(Occur.MUST, a, Occur.MUST, b, Occur.MUST, c),
+        QueryCanonicalizer.canonicalize(
+            bool(Occur.MUST, a, Occur.MUST, bool(Occur.MUST, b, Occur.MUST, c))));
+    assertEquals(
+        bool(Occur.SHOULD, a, Occur.SHOULD, b, Occur.SHOULD, c),
+        QueryCanonicalizer.canonicalize(
+            bool(Occur.SHOULD, bool(Occur.SHOULD, a, Occur.SHOULD, b), Occur.SHOULD, c)));
+    // a disjunction within a conjunction is kept
+    Query mixed = bool(Occur.MUST, a, Occur.MUST, bool(Occur.SHOULD, b, Occur.SHOULD, c));
+    assertSame(mixed, QueryCanonicalizer.canonicalize(mixed));
+
+    // duplicate unscored clauses
+    assertEquals(
+        bool(Occur.MUST, a, Occur.MUST_NOT, b),
+        QueryCanonicalizer.canonicalize(bool(Occur.MUST, a, Occur.MUST_NOT, b, Occur.MUST_NOT, b)));
+  }
+
+  public void testFilters() {
+    Query a = term("a");
+    Query b = term("b");
+
+    assertSame(a, QueryCanonicalizer.canonicalizeFilter(new ConstantScoreQuery(a)));
+    assertSame(a, QueryCanonicalizer.canonicalizeFilter(new BoostQuery(a, 5f)));
+    assertEquals(
+        bool(Occur.FILTER, a, Occur.FILTER, b),
+        QueryCanonicalizer.canonicalizeFilter(
+            bool(Occur.MUST, a, Occur.MUST, new BoostQuery(b, 2f))));
+    // scores matter outside of filters
+    assertEquals(
+        new ConstantScoreQuery(a), QueryCanonicalizer.canonicalize(new ConstantScoreQuery(a)));
+
+    List<Query> filters = List.of(a, b);
+    assertSame(filters, QueryCanonicalizer.canonicalizeFilters(filters));
+    assertEquals(
+        List.of(a, b),
+        QueryCanonicalizer.canonicalizeFilters(List.of(a, new BoostQuery(b, 1f), a)));
+  }
+
+  public void testEquivalentRequestsShareCacheEntries() {
+    assertQ(req("q", "val_s:even", "fq", "id:[0 TO 9]"), "//result[@numFound='5']");
+    assertQ(
+        req("q", "(val_s:even)", "fq", "id:[0 TO 9]", "fq", "id:[0 TO 9]"),
+        "//result[@numFound='5']");
+    MetricsMap canonicalized =
+        (MetricsMap)
+            ((SolrMetricManager.GaugeWrapper<?>)
+                    h.getCore()
+                        .getCoreMetricManager()
+                        .getRegistry()
+                        .getMetrics()
+                        .get("SEARCHER.searcher.canonicalizedKeys"))
+                .getGauge();
+    Map<String, Object> values = canonicalized.getValue();
+    assertTrue(((Number) values.get("queryHits")).longValue() > 0);
+  }
+
+  public void testFilterCacheKeysAreCanonical() throws Exception {
+    Query canonical = new TermQuery(new Term("val_s", "odd"));
+    Query boosted = new BoostQuery(new ConstantScoreQuery(canonical), 2f);
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              DocSet answer = new BitDocSet(new FixedBitSet(searcher.maxDoc()));
+              searcher.cacheDocSet(boosted, answer, true);
+              assertSame(answer, searcher.getFilterCache().get(canonical));
+              assertNull(searcher.getFilterCache().get(boosted));
+              // and lookups of the non-canonical form find it
+              assertSame(answer, searcher.getDocSet(boosted));
+              return null;
+            });
+  }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.Weight;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/** Tests the single-flight execution of identical queries enabled by {@code coalesceQueries}. */
+public class TestQueryCoalescing extends SolrTestCaseJ4 {
+
+  private static final int NUM_DOCS = 20;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.coalesceQueries", "true");
+    initCore("solrconfig.xml", "schema.xml");
+    for (int i = 0; i < NUM_DOCS; i++) {
+      assertU(adoc("id", String.valueOf(i), "field1_s", "foo"));
+    }
+    assertU(commit());
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.coalesceQueries");
+  }
+
+  public void testIdenticalQueriesExecuteOnce() throws Exception {
+    BlockingQuery query = new BlockingQuery(new TermQuery(new Term("field1_s", "foo")));
+    int numFollowers = atLeast(3);
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              DocList[] results = new DocList[numFollowers + 1];
+              SolrNamedThreadFactory threadFactory = new SolrNamedThreadFactory("coalesce");
+              List<Thread> threads = new ArrayList<>();
+              for (int i = 0; i <= numFollowers; i++) {
+                final int idx = i;
+                threads.add(threadFactory.newThread(() -> results[idx] = search(searcher, query)));
+              }
+              try {
+                // the first query blocks while computing, the others must wait for it
+                threads.get(0).start();
+                assertTrue(query.entered.await(30, TimeUnit.SECONDS));
+                List<Thread> followers = threads.subList(1, threads.size());
+                followers.forEach(Thread::start);
+                new TimeOut(30, TimeUnit.SECONDS, TimeSource.NANO_TIME)
+                    .waitFor(
+                        "followers should wait for the in-flight query",
+                        () ->
+                            followers.stream()
+                                .allMatch(t -> t.getState() == Thread.State.TIMED_WAITING));
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              } finally {
+                query.release.countDown();
+              }
+              for (Thread thread : threads) {
+                try {
+                  thread.join(30_000);
+                } catch (InterruptedException e) {
+                  throw new RuntimeException(e);
+                }
+              }
+
+              assertEquals("query should only execute once", 1, query.executedBy.size());
+              for (DocList result : results) {
+                assertNotNull(result);
+                assertEquals(NUM_DOCS, result.matches());
+              }
+              return null;
+            });
+  }
+
+  public void testFollowerStopsWaitingWhenOutOfTime() throws Exception {
+    BlockingQuery query = new BlockingQuery(new TermQuery(new Term("field1_s", "foo")));
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              SolrNamedThreadFactory threadFactory = new SolrNamedThreadFactory("coalesce");
+              Thread leader = threadFactory.newThread(() -> search(searcher, query));
+              DocList[] result = new DocList[1];
+              Thread follower =
+                  threadFactory.newThread(
+                      () -> {
+                        SolrQueryTimeoutImpl.set(500);
+                        try {
+                          result[0] = search(searcher, query);
+                        } finally {
+                          SolrQueryTimeoutImpl.reset();
+                        }
+                      });
+              try {
+                leader.start();
+                assertTrue(query.entered.await(30, TimeUnit.SECONDS));
+                // the follower computes the result itself while the leader is still blocked
+                follower.start();
+                follower.join(30_000);
+                assertFalse(follower.isAlive());
+                assertNotNull(result[0]);
+                assertEquals(NUM_DOCS, result[0].matches());
+                assertEquals(2, query.executedBy.size());
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              } finally {
+                query.release.countDown();
+              }
+              try {
+                leader.join(30_000);
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+              return null;
+            });
+  }
+
+  public void testDifferentQueriesAreNotCoalesced() throws Exception {
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              BlockingQuery first = new BlockingQuery(new TermQuery(new Term("id", "1")));
+              BlockingQuery second = new BlockingQuery(new TermQuery(new Term("id", "2")));
+              first.release.countDown();
+              second.release.countDown();
+              assertEquals(1, search(searcher, first).matches());
+              assertEquals(1, search(searcher, second).matches());
+              assertEquals(1, first.executedBy.size());
+              assertEquals(1, second.executedBy.size());
+              return null;
+            });
+  }
+
+  private static DocList search(SolrIndexSearcher searcher, Query query) {
+    QueryCommand cmd = new QueryCommand();
+    cmd.setQuery(query);
+    cmd.setLen(10);
+    QueryResult qr = new QueryResult();
+    try {
+      searcher.search(qr, cmd);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return qr.getDocList();
+  }
+
+  /** Wraps a query, blocking when it's first executed until released. */
+  private static final class BlockingQuery extends Query {
+    private final Query in;
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Set<Thread> executedBy = ConcurrentHashMap.newKeySet();
+
+    BlockingQuery(Query in) {
+      this.in = in;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+        throws IOException {
+      boolean first = executedBy.isEmpty();
+      executedBy.add(Thread.currentThread());
+      if (first) {
+        entered.countDown();
+        try {
+          release.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+      }
+      return in.createWeight(searcher, scoreMode, boost);
+    }
+
+    @Override
+    public String toString(String field) {
+      return "blocking(" + in.toString(field) + ")";
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      in.visit(visitor);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Map;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+/** Tests the reuse of per-segment filters across searchers by {@link SegmentFilterCache}. */
+public class TestSegmentFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.segmentFilterCache", "true");
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.segmentFilterCache");
+  }
+
+  @Before
+  public void clearIndex() {
+    assertU(delQ("*:*"));
+    assertU(commit());
+  }
+
+  private static Map<String, Object> metrics() {
+    return h.getCore().getSegmentFilterCache().getMetricsMap().getValue();
+  }
+
+  private static long hits() {
+    return ((Number) metrics().get(SolrCache.HITS_PARAM)).longValue();
+  }
+
+  public void testUnchangedSegmentsReused() {
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", String.valueOf(i), "val_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "val_s:even"), "//result[@numFound='5']");
+
+    // a new segment, the first one is unchanged
+    for (int i = 10; i < 14; i++) {
+      assertU(adoc("id", String.valueOf(i), "val_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    long hitsBefore = hits();
+    assertQ(req("q", "*:*", "fq", "val_s:even"), "//result[@numFound='7']");
+    assertTrue("the old segment should be reused", hits() > hitsBefore);
+
+    // deletions are applied to cached segments
+    assertU(delI("0"));
+    assertU(commit());
+    hitsBefore = hits();
+    assertQ(req("q", "*:*", "fq", "val_s:even"), "//result[@numFound='6']");
+    assertTrue(hits() > hitsBefore);
+  }
+
+  private static long lookups() {
+    return ((Number) metrics().get(SolrCache.LOOKUPS_PARAM)).longValue();
+  }
+
+  public void testOnlyMissingSegmentsComputed() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", String.valueOf(i), "color_s", i % 2 == 0 ? "red" : "blue"));
+    }
+    assertU(commit());
+    SegmentFilterCache cache = h.getCore().getSegmentFilterCache();
+    // not used as a filter by any request, which could have cached it while warming
+    Query query = new TermQuery(new Term("color_s", "red"));
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              int segments = searcher.getTopReaderContext().leaves().size();
+              long lookupsBefore = lookups();
+              long hitsBefore = hits();
+              assertEquals(5, cache.getDocSet(searcher, query).size());
+              assertEquals(segments, lookups() - lookupsBefore);
+              assertEquals(0, hits() - hitsBefore);
+
+              assertEquals(5, cache.getDocSet(searcher, query).size());
+              assertEquals(2 * segments, lookups() - lookupsBefore);
+              assertEquals(segments, hits() - hitsBefore);
+              return null;
+            });
+
+    // a new segment, only that one misses
+    for (int i = 10; i < 14; i++) {
+      assertU(adoc("id", String.valueOf(i), "color_s", i % 2 == 0 ? "red" : "blue"));
+    }
+    assertU(commit());
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              int segments = searcher.getTopReaderContext().leaves().size();
+              long lookupsBefore = lookups();
+              long hitsBefore = hits();
+              assertEquals(7, cache.getDocSet(searcher, query).size());
+              assertEquals(segments, lookups() - lookupsBefore);
+              long misses = segments - (hits() - hitsBefore);
+              assertTrue("only new segments should miss: " + misses, misses >= 1);
+              assertTrue("merged segments aside, the old one should hit", hits() > hitsBefore);
+              return null;
+            });
+  }
+
+  public void testUncacheableQueriesStillWork() {
+    for (int i = 0; i < 10; i++) {
+      assertU(adoc("id", String.valueOf(i), "val_s", i % 2 == 0 ? "even" : "odd"));
+    }
+    assertU(commit());
+    long uncacheableBefore = ((Number) metrics().get("uncacheable")).longValue();
+    // join queries compute top-level sets
+    assertQ(
+        req("q", "*:*", "fq", "{!join from=id to=id}val_s:odd"), "//result[@numFound='5']");
+    assertTrue(((Number) metrics().get("uncacheable")).longValue() > uncacheableBefore);
+  }
+}
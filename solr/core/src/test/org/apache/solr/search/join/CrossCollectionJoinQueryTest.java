@@ -17,6 +17,7 @@
 
 package org.apache.solr.search.join;
 
+import com.codahale.metrics.Counter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,6 +32,7 @@ import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.cloud.SolrCloudTestCase;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.core.SolrCore;
 import org.apache.solr.embedded.JettySolrRunner;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -248,6 +250,50 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
         false);
   }
 
+  @Test
+  public void testCcJoinAbsentKeyBeforePresentKey() throws Exception {
+    setupIndexes(false);
+
+    // no part has the key "a", so seeking it lands on "b", which is the next key
+    indexDocs(
+        "products",
+        List.of(
+            new SolrInputDocument("id", "pa", "product_id_s", "a", "size_s", "X"),
+            new SolrInputDocument("id", "pb", "product_id_s", "b", "size_s", "X")));
+    cluster.getSolrClient().commit("products");
+    indexDocs("parts", List.of(new SolrInputDocument("id", "qb", "product_id_s", "b")));
+    cluster.getSolrClient().commit("parts");
+
+    assertResultCount(
+        "parts",
+        "{!join method=crossCollection fromIndex=products from=product_id_s to=product_id_s routed=false}size_s:X",
+        1,
+        true);
+  }
+
+  @Test
+  public void testCcJoinKeySetCache() throws Exception {
+    setupIndexes(false);
+
+    // ttl=0 so the join is computed each time, rather than reused from the filter cache
+    final String query =
+        "{!join_cached method=crossCollection fromIndex=products from=product_id_s to=product_id_s routed=false ttl=0}size_s:M";
+    long exports = exportRequests("products");
+    testCcJoinQuery(query, true);
+    assertTrue(exportRequests("products") > exports);
+    // the join keys are cached now, so they aren't exported again
+    exports = exportRequests("products");
+    testCcJoinQuery(query, true);
+    assertEquals(exports, exportRequests("products"));
+
+    // the cached keys aren't used once the remote collection changed
+    UpdateRequest update = new UpdateRequest();
+    update.deleteByQuery("size_s:M");
+    update.process(cluster.getSolrClient(), "products");
+    cluster.getSolrClient().commit("products");
+    assertResultCount("parts", query, 0, true);
+  }
+
   @Test
   public void testAllowSolrUrlsList() throws Exception {
     setupIndexes(false);
@@ -307,6 +353,27 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
     }
   }
 
+  /** Returns the number of requests to the /export handler of the cores of a collection. */
+  private static long exportRequests(String collection) {
+    long requests = 0;
+    for (JettySolrRunner runner : cluster.getJettySolrRunners()) {
+      for (SolrCore core : runner.getCoreContainer().getCores()) {
+        if (collection.equals(core.getCoreDescriptor().getCollectionName())) {
+          Counter counter =
+              (Counter)
+                  core.getCoreMetricManager()
+                      .getRegistry()
+                      .getMetrics()
+                      .get("QUERY./export.requests");
+          if (counter != null) {
+            requests += counter.getCount();
+          }
+        }
+      }
+    }
+    return requests;
+  }
+
   public void testCcJoinQuery(String query, boolean expectFullResults) throws Exception {
     assertResultCount("parts", query, NUM_PRODUCTS / 2, expectFullResults);
   }
@@ -49,6 +49,30 @@ public class GraphQueryTest extends SolrTestCaseJ4 {
     doGraph(params("node_id", "node_sdN", "edge_id", "edge_sdsN"));
   }
 
+  @Test
+  public void testGraphIndex() throws Exception {
+    doGraph(params("node_id", "node_s", "edge_id", "edge_ss"));
+    // string fields with docValues are traversed with a cached graph index
+    assertNotNull(
+        h.getCore()
+            .withSearcher(
+                searcher ->
+                    searcher
+                        .getCache(GraphIndex.CACHE_NAME)
+                        .get(new JoinIndex.Key("node_s", "edge_ss"))));
+
+    // numeric docValues, of trie or point fields depending on the randomized field types, aren't
+    // supported and are traversed by searching each level's edge ids
+    doGraph(params("node_id", "node_id", "edge_id", "edge_ids"));
+    assertNull(
+        h.getCore()
+            .withSearcher(
+                searcher ->
+                    searcher
+                        .getCache(GraphIndex.CACHE_NAME)
+                        .get(new JoinIndex.Key("node_id", "edge_ids"))));
+  }
+
   public void doGraph(SolrParams p) throws Exception {
     String node_id = p.get("node_id");
     String edge_id = p.get("edge_id");
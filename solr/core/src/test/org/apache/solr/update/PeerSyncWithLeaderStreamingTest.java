@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/** Runs {@link PeerSyncWithLeaderTest} with missed updates streamed and applied in small batches */
+@SolrTestCaseJ4.SuppressSSL(bugUrl = "https://issues.apache.org/jira/browse/SOLR-5776")
+public class PeerSyncWithLeaderStreamingTest extends PeerSyncWithLeaderTest {
+
+  @BeforeClass
+  public static void enableStreaming() {
+    System.setProperty("solr.peerSync.streamUpdates", "true");
+    System.setProperty("solr.peerSync.streamBatchSize", "3");
+  }
+
+  @AfterClass
+  public static void disableStreaming() {
+    System.clearProperty("solr.peerSync.streamUpdates");
+    System.clearProperty("solr.peerSync.streamBatchSize");
+  }
+}
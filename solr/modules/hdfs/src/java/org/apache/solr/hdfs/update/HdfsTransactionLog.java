@@ -194,19 +194,23 @@ public class HdfsTransactionLog extends TransactionLog {
     }
     // needed to read other records
 
-    synchronized (this) {
+    lock.lock();
+    try {
       globalStringList = (List<String>) header.get("strings");
       globalStringMap = CollectionUtil.newHashMap(globalStringList.size());
       for (int i = 0; i < globalStringList.size(); i++) {
         globalStringMap.put(globalStringList.get(i), i + 1);
       }
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public long writeCommit(CommitUpdateCommand cmd) {
     LogCodec codec = new LogCodec(resolver);
-    synchronized (this) {
+    lock.lock();
+    try {
       try {
         long pos = fos.size(); // if we had flushed, this should be equal to channel.position()
 
@@ -234,6 +238,8 @@ public class HdfsTransactionLog extends TransactionLog {
       } catch (IOException e) {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -273,7 +279,8 @@ public class HdfsTransactionLog extends TransactionLog {
   }
 
   private void doCloseOutput() throws IOException {
-    synchronized (this) {
+    lock.lock();
+    try {
       if (fos == null) return;
       if (debug) {
         log.debug("Closing output for {}", tlogFile);
@@ -281,6 +288,8 @@ public class HdfsTransactionLog extends TransactionLog {
       fos.flushBuffer();
       finalLogSize = fos.size();
       fos = null;
+    } finally {
+      lock.unlock();
     }
 
     tlogOutStream.hflush();
@@ -289,22 +298,28 @@ public class HdfsTransactionLog extends TransactionLog {
   }
 
   private void ensureFlushed() throws IOException {
-    synchronized (this) {
+    lock.lock();
+    try {
       if (fos != null) {
         fos.flush();
         tlogOutStream.hflush();
       }
+    } finally {
+      lock.unlock();
     }
   }
 
   @Override
   public long getLogSize() {
-    synchronized (this) {
+    lock.lock();
+    try {
       if (fos != null) {
         return fos.size();
       } else {
         return finalLogSize;
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -312,8 +327,11 @@ public class HdfsTransactionLog extends TransactionLog {
   public void finish(UpdateLog.SyncLevel syncLevel) {
     if (syncLevel == UpdateLog.SyncLevel.NONE) return;
     try {
-      synchronized (this) {
+      lock.lock();
+      try {
         fos.flushBuffer();
+      } finally {
+        lock.unlock();
       }
 
       if (syncLevel == UpdateLog.SyncLevel.FSYNC) {
@@ -391,9 +409,12 @@ public class HdfsTransactionLog extends TransactionLog {
     private void initStream(long pos) {
       try {
 
-        synchronized (HdfsTransactionLog.this) {
+        lock.lock();
+        try {
           ensureFlushed();
           sz = getLogSize();
+        } finally {
+          lock.unlock();
         }
 
         FSDataInputStream fdis = fs.open(tlogFile);
@@ -413,7 +434,8 @@ public class HdfsTransactionLog extends TransactionLog {
     public Object next() throws IOException, InterruptedException {
       long pos = hdfsFis.position();
 
-      synchronized (HdfsTransactionLog.this) {
+      lock.lock();
+      try {
         if (trace) {
           log.trace("Reading log record.  pos={} currentSize={}", pos, getLogSize());
         }
@@ -421,6 +443,8 @@ public class HdfsTransactionLog extends TransactionLog {
         if (pos >= getLogSize()) {
           return null;
         }
+      } finally {
+        lock.unlock();
       }
 
       // we actually need a new reader to
@@ -437,11 +461,14 @@ public class HdfsTransactionLog extends TransactionLog {
 
         // shouldn't currently happen - header and first record are currently written at the same
         // time
-        synchronized (HdfsTransactionLog.this) {
+        lock.lock();
+        try {
           if (hdfsFis.position() >= getLogSize()) {
             return null;
           }
           pos = hdfsFis.position();
+        } finally {
+          lock.unlock();
         }
       }
 
@@ -466,7 +493,8 @@ public class HdfsTransactionLog extends TransactionLog {
 
     @Override
     public String toString() {
-      synchronized (HdfsTransactionLog.this) {
+      lock.lock();
+      try {
         return "LogReader{"
             + "file="
             + tlogFile
@@ -475,6 +503,8 @@ public class HdfsTransactionLog extends TransactionLog {
             + ", end="
             + getLogSize()
             + "}";
+      } finally {
+        lock.unlock();
       }
     }
 
@@ -554,9 +584,12 @@ public class HdfsTransactionLog extends TransactionLog {
       incref();
 
       long sz;
-      synchronized (HdfsTransactionLog.this) {
+      lock.lock();
+      try {
         ensureFlushed();
         sz = getLogSize();
+      } finally {
+        lock.unlock();
       }
 
       fis = new FSDataFastInputStream(fs.open(tlogFile), 0);
@@ -634,7 +667,8 @@ public class HdfsTransactionLog extends TransactionLog {
 
     @Override
     public String toString() {
-      synchronized (HdfsTransactionLog.this) {
+      lock.lock();
+      try {
         return "LogReader{"
             + "file="
             + tlogFile
@@ -643,6 +677,8 @@ public class HdfsTransactionLog extends TransactionLog {
             + ", end="
             + getLogSize()
             + "}";
+      } finally {
+        lock.unlock();
       }
     }
   }
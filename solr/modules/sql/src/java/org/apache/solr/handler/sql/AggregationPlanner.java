@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.sql;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.client.solrj.response.LukeResponse;
+import org.apache.solr.common.luke.FieldFlag;
+
+/**
+ * Chooses between the facet and map_reduce implementations of a GROUP BY when the aggregationMode
+ * is {@code auto}, from the number of distinct terms of the GROUP BY fields. Luke reports those
+ * for a single replica, so the terms of each shard are assumed to be distinct, which overestimates
+ * rather than underestimates the number of groups.
+ *
+ * <p>Facet mode is cheaper as long as the number of groups is moderate, since shards only return
+ * their top groups. It only returns a limited number of groups though, so without a LIMIT a GROUP
+ * BY with more groups than that, or with too many groups to compute in the shards' memory, is
+ * better done by exporting the tuples sorted by the GROUP BY fields and rolling them up. That
+ * requires all of the fields to have docValues.
+ */
+class AggregationPlanner {
+
+  static final String AUTO = "auto";
+
+  /** The default number of estimated groups beyond which map_reduce is used even with a LIMIT. */
+  static final long DEFAULT_MAX_FACET_BUCKETS = 100000;
+
+  private AggregationPlanner() {}
+
+  /**
+   * Returns whether a GROUP BY should be done in map_reduce mode.
+   *
+   * @param bucketFields the GROUP BY fields
+   * @param metricFields the fields that metrics are computed over
+   * @param stats Luke's detailed info of all the fields
+   * @param numShards the number of shards of the collection
+   * @param numDocs the estimated number of docs of the collection, or -1 if unknown
+   * @param facetLimit the number of groups facet mode returns at most
+   * @param maxFacetBuckets the estimated number of groups beyond which facet mode isn't used
+   */
+  static boolean useMapReduce(
+      List<String> bucketFields,
+      List<String> metricFields,
+      Map<String, LukeResponse.FieldInfo> stats,
+      int numShards,
+      long numDocs,
+      long facetLimit,
+      long maxFacetBuckets) {
+    for (String field : bucketFields) {
+      if (!hasDocValues(stats.get(field))) {
+        return false;
+      }
+    }
+    for (String field : metricFields) {
+      if (!"*".equals(field) && !hasDocValues(stats.get(field))) {
+        return false;
+      }
+    }
+
+    // the groups are at most the product of the distinct terms of each field, or the docs
+    long groups = 1;
+    for (String field : bucketFields) {
+      long distinct = (long) stats.get(field).getDistinct() * Math.max(1, numShards);
+      if (distinct <= 0) {
+        // not indexed, so the number of groups is unknown
+        return false;
+      }
+      groups = groups > Long.MAX_VALUE / distinct ? Long.MAX_VALUE : groups * distinct;
+    }
+    if (numDocs >= 0) {
+      groups = Math.min(groups, numDocs);
+    }
+    return groups > facetLimit || groups > maxFacetBuckets;
+  }
+
+  private static boolean hasDocValues(LukeResponse.FieldInfo info) {
+    if (info == null) {
+      return false;
+    }
+    EnumSet<FieldFlag> flags = info.getSchemaFlags();
+    if (flags == null && info.getSchema() != null) {
+      flags = LukeResponse.FieldInfo.parseFlags(info.getSchema());
+    }
+    return flags != null && flags.contains(FieldFlag.DOC_VALUES);
+  }
+}
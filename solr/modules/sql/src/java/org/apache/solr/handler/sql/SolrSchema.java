@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -40,6 +41,7 @@ import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
 import org.apache.solr.client.solrj.request.LukeRequest;
 import org.apache.solr.client.solrj.response.LukeResponse;
 import org.apache.solr.common.cloud.Aliases;
@@ -62,6 +64,9 @@ class SolrSchema extends AbstractSchema implements Closeable {
   // so there's some benefit to caching it for the duration of a statement
   // every statement gets a new SolrSchema instance
   private Map<String, RelDataType> schemaCache = new ConcurrentHashMap<>();
+  // statistics for planning aggregations, cached for the duration of a statement as well
+  private final Map<String, Long> numDocsCache = new ConcurrentHashMap<>();
+  private final Map<String, LukeResponse.FieldInfo> fieldStatsCache = new ConcurrentHashMap<>();
 
   SolrSchema(Properties properties, SolrClientCache solrClientCache) {
     super();
@@ -112,7 +117,13 @@ class SolrSchema extends AbstractSchema implements Closeable {
     try {
       LukeRequest lukeRequest = new LukeRequest();
       lukeRequest.setNumTerms(0);
-      return lukeRequest.process(solrClientCache.getCloudSolrClient(zk), collection).getFieldInfo();
+      LukeResponse response =
+          lukeRequest.process(solrClientCache.getCloudSolrClient(zk), collection);
+      Integer numDocs = response.getNumDocs();
+      if (numDocs != null) {
+        numDocsCache.put(collection, numDocs.longValue());
+      }
+      return response.getFieldInfo();
     } catch (SolrServerException | IOException e) {
       throw new RuntimeException(e);
     } finally {
@@ -120,6 +131,66 @@ class SolrSchema extends AbstractSchema implements Closeable {
     }
   }
 
+  /**
+   * Returns the number of docs of a collection, as reported by the replica that answered the Luke
+   * request for its schema, or -1 if unknown.
+   */
+  long getNumDocs(String collection) {
+    getRowSchema(collection);
+    return numDocsCache.getOrDefault(collection, -1L);
+  }
+
+  /** Returns the number of shards of a collection, or of all the collections of an alias. */
+  int getNumShards(String collection) {
+    CloudSolrClient cloudSolrClient =
+        solrClientCache.getCloudSolrClient(this.properties.getProperty("zk"));
+    try {
+      return CloudSolrStream.getSlices(collection, cloudSolrClient, true).length;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Returns Luke's detailed info of fields, including their number of distinct terms in the replica
+   * that answered. Luke enumerates all the terms of a field for this, so it's only requested for
+   * the fields an aggregation is planned over, once per statement.
+   */
+  Map<String, LukeResponse.FieldInfo> getFieldStats(String collection, List<String> fields) {
+    List<String> missing =
+        fields.stream()
+            .filter(f -> !fieldStatsCache.containsKey(collection + "/" + f))
+            .distinct()
+            .collect(Collectors.toList());
+    if (!missing.isEmpty()) {
+      final String zk = this.properties.getProperty("zk");
+      PKIAuthenticationPlugin.withServerIdentity(true);
+      try {
+        LukeRequest lukeRequest = new LukeRequest();
+        lukeRequest.setFields(missing);
+        lukeRequest.setNumTerms(0);
+        lukeRequest.setIncludeIndexFieldFlags(false);
+        Map<String, LukeResponse.FieldInfo> fieldInfo =
+            lukeRequest.process(solrClientCache.getCloudSolrClient(zk), collection).getFieldInfo();
+        for (String field : missing) {
+          LukeResponse.FieldInfo info = fieldInfo.get(field);
+          fieldStatsCache.put(
+              collection + "/" + field, info != null ? info : new LukeResponse.FieldInfo(field));
+        }
+      } catch (SolrServerException | IOException e) {
+        throw new RuntimeException(e);
+      } finally {
+        PKIAuthenticationPlugin.withServerIdentity(false);
+      }
+    }
+
+    Map<String, LukeResponse.FieldInfo> stats = new HashMap<>();
+    for (String field : fields) {
+      stats.put(field, fieldStatsCache.get(collection + "/" + field));
+    }
+    return stats;
+  }
+
   private LukeResponse getSchema(final String collection) {
     final String zk = this.properties.getProperty("zk");
     PKIAuthenticationPlugin.withServerIdentity(true);
@@ -44,6 +44,8 @@ import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
 import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.schema.impl.AbstractTableQueryable;
 import org.apache.calcite.util.Pair;
@@ -91,6 +93,7 @@ import org.apache.solr.common.params.ModifiableSolrParams;
 /** Table based on a Solr collection */
 class SolrTable extends AbstractQueryableTable implements TranslatableTable {
   private static final String DEFAULT_QUERY = "*:*";
+  private static final int DEFAULT_FACET_LIMIT = 1000;
 
   private final String collection;
   private final SolrSchema schema;
@@ -149,7 +152,8 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
       final String havingPredicate,
       final String offset) {
     // SolrParams should be a ModifiableParams instead of a map
-    boolean mapReduce = "map_reduce".equals(properties.getProperty("aggregationMode"));
+    String aggregationMode = properties.getProperty("aggregationMode");
+    boolean mapReduce = "map_reduce".equals(aggregationMode);
     boolean negative = Boolean.parseBoolean(negativeQuery);
 
     String q = null;
@@ -173,6 +177,9 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
         if (buckets.isEmpty()) {
           tupleStream = handleStats(zk, collection, q, metricPairs, fields);
         } else {
+          if (AggregationPlanner.AUTO.equals(aggregationMode)) {
+            mapReduce = planMapReduce(properties, buckets, metricPairs, limit);
+          }
           if (mapReduce) {
             tupleStream =
                 handleGroupByMapReduce(
@@ -220,6 +227,45 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
     };
   }
 
+  private boolean planMapReduce(
+      Properties properties,
+      List<String> buckets,
+      List<Pair<String, String>> metricPairs,
+      String limit) {
+    List<String> metricFields =
+        metricPairs.stream().map(Pair::getValue).collect(Collectors.toList());
+    List<String> fields = new ArrayList<>(buckets);
+    for (String field : metricFields) {
+      if (!"*".equals(field)) {
+        fields.add(field);
+      }
+    }
+    int numShards = schema.getNumShards(collection);
+    long numDocs = schema.getNumDocs(collection);
+    long maxFacetBuckets =
+        Long.parseLong(
+            properties.getProperty(
+                "maxFacetBuckets", String.valueOf(AggregationPlanner.DEFAULT_MAX_FACET_BUCKETS)));
+    return AggregationPlanner.useMapReduce(
+        buckets,
+        metricFields,
+        schema.getFieldStats(collection, fields),
+        numShards,
+        numDocs < 0 ? -1 : numDocs * numShards,
+        // without a LIMIT, facet mode returns the default number of groups
+        limit != null ? Long.MAX_VALUE : DEFAULT_FACET_LIMIT,
+        maxFacetBuckets);
+  }
+
+  @Override
+  public Statistic getStatistic() {
+    // Luke reports the docs of a single replica
+    long numDocs = schema.getNumDocs(collection);
+    return numDocs < 0
+        ? Statistics.UNKNOWN
+        : Statistics.of((double) numDocs * schema.getNumShards(collection), null);
+  }
+
   private static StreamComparator bucketSortComp(List<Bucket> buckets, Map<String, String> dirs) {
     FieldComparator[] comps = new FieldComparator[buckets.size()];
     for (int i = 0; i < buckets.size(); i++) {
@@ -684,7 +730,7 @@ class SolrTable extends AbstractQueryableTable implements TranslatableTable {
       }
     }
 
-    int limit = lim != null ? Integer.parseInt(lim) : 1000;
+    int limit = lim != null ? Integer.parseInt(lim) : DEFAULT_FACET_LIMIT;
 
     FieldComparator[] sorts = null;
 
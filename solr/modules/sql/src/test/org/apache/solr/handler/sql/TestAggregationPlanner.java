@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.sql;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.response.LukeResponse;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Test;
+
+public class TestAggregationPlanner extends SolrTestCase {
+
+  private final Map<String, LukeResponse.FieldInfo> stats = new HashMap<>();
+
+  @Test
+  public void testCardinality() {
+    stats.put("country_s", fieldInfo("country_s", "I-S-D", 20));
+    stats.put("user_s", fieldInfo("user_s", "I-S-D", 400));
+    stats.put("price_d", fieldInfo("price_d", "I-S-D", 100));
+
+    // few groups are faceted
+    assertFalse(useMapReduce(List.of("country_s"), List.of("*"), 2, -1, 1000));
+    // too many groups for the default facet limit without a LIMIT, counting terms per shard
+    assertTrue(useMapReduce(List.of("user_s"), List.of("price_d"), 3, -1, 1000));
+    assertFalse(useMapReduce(List.of("user_s"), List.of("price_d"), 2, -1, 1000));
+    // with a LIMIT, only beyond the facet bucket threshold
+    assertFalse(useMapReduce(List.of("user_s"), List.of("price_d"), 3, -1, Long.MAX_VALUE));
+    assertTrue(
+        useMapReduce(List.of("user_s", "price_d"), List.of("*"), 3, -1, Long.MAX_VALUE));
+    // but never more groups than docs
+    assertFalse(
+        useMapReduce(List.of("user_s", "price_d"), List.of("*"), 3, 50000, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testRequiresDocValues() {
+    stats.put("user_s", fieldInfo("user_s", "I-S-D", 5000));
+    stats.put("user_t", fieldInfo("user_t", "ITS", 5000));
+    stats.put("price_d", fieldInfo("price_d", "S", 0));
+
+    assertTrue(useMapReduce(List.of("user_s"), List.of("*"), 1, -1, 1000));
+    assertFalse(useMapReduce(List.of("user_t"), List.of("*"), 1, -1, 1000));
+    assertFalse(useMapReduce(List.of("user_s"), List.of("price_d"), 1, -1, 1000));
+    assertFalse(useMapReduce(List.of("user_s"), List.of("missing_d"), 1, -1, 1000));
+  }
+
+  @Test
+  public void testUnknownCardinality() {
+    // docValues only, so Luke can't count its terms
+    stats.put("user_s", fieldInfo("user_s", "D", 0));
+    assertFalse(useMapReduce(List.of("user_s"), List.of("*"), 1, -1, 1000));
+  }
+
+  private boolean useMapReduce(
+      List<String> buckets, List<String> metrics, int numShards, long numDocs, long facetLimit) {
+    return AggregationPlanner.useMapReduce(
+        buckets, metrics, stats, numShards, numDocs, facetLimit, 100000);
+  }
+
+  private static LukeResponse.FieldInfo fieldInfo(String name, String schema, int distinct) {
+    NamedList<Object> nl = new NamedList<>();
+    nl.add("schema", schema);
+    nl.add("distinct", distinct);
+    LukeResponse.FieldInfo info = new LukeResponse.FieldInfo(name);
+    info.read(nl);
+    return info;
+  }
+}
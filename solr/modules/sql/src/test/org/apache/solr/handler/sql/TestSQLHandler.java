@@ -2962,6 +2962,42 @@ public class TestSQLHandler extends SolrCloudTestCase {
         country);
   }
 
+  @Test
+  public void testAutoAggregationMode() throws Exception {
+    UpdateRequest updateRequest = new UpdateRequest();
+    final int maxDocs = 1500; // more groups than facet mode returns without a LIMIT
+    for (int i = 0; i < maxDocs; i++) {
+      updateRequest = addDocForDistinctTests(i, updateRequest, maxDocs, "%04d");
+    }
+    updateRequest.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    SolrParams sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "aggregationMode",
+            "auto",
+            "stmt",
+            "SELECT str_s, COUNT(*) AS c FROM collection1 GROUP BY str_s ORDER BY str_s ASC");
+    List<Tuple> tuples = getTuples(sParams, sqlUrl());
+    assertEquals(maxDocs, tuples.size());
+    assertEquals("0000", tuples.get(0).getString("str_s"));
+    assertEquals(1L, tuples.get(0).getLong("c").longValue());
+
+    sParams =
+        params(
+            CommonParams.QT,
+            "/sql",
+            "aggregationMode",
+            "auto",
+            "stmt",
+            "SELECT country_s, COUNT(*) AS c FROM collection1 GROUP BY country_s");
+    tuples = getTuples(sParams, sqlUrl());
+    assertEquals(2, tuples.size());
+    assertEquals(maxDocs / 2L, tuples.get(0).getLong("c").longValue());
+    assertEquals(maxDocs / 2L, tuples.get(1).getLong("c").longValue());
+  }
+
   @Test
   public void testSelectStarWithLimit() throws Exception {
     new UpdateRequest()
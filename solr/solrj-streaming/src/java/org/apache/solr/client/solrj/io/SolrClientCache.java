@@ -30,12 +30,15 @@ import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.CloudHttp2SolrClient;
 import org.apache.solr.client.solrj.impl.CloudLegacySolrClient;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.ClusterStateProvider;
 import org.apache.solr.client.solrj.impl.Http2SolrClient;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.impl.SolrClientBuilder;
 import org.apache.solr.common.AlreadyClosedException;
+import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +57,7 @@ public class SolrClientCache implements Closeable {
       Math.max(Integer.getInteger(HttpClientUtil.PROP_SO_TIMEOUT, MIN_TIMEOUT), MIN_TIMEOUT);
 
   private final Map<String, SolrClient> solrClients = new HashMap<>();
+  private final Map<String, ClusterStateProvider> clusterStateProviders = new HashMap<>();
   private final HttpClient apacheHttpClient;
   private final Http2SolrClient http2SolrClient;
   private final AtomicBoolean isClosed = new AtomicBoolean(false);
@@ -74,6 +78,28 @@ public class SolrClientCache implements Closeable {
     this.http2SolrClient = http2SolrClient;
   }
 
+  /**
+   * Shares a cluster state provider, such as the one of the local node, with the clients of a
+   * ZooKeeper host, so they don't each connect to ZooKeeper and watch the cluster state. The
+   * provider must not close the state it shares when it's closed.
+   *
+   * <p>The cloud client of that host and the clients of its live nodes are created right away, so
+   * the first streams don't have to. No requests are sent: connections come from the shared
+   * {@link HttpClient}'s pool.
+   */
+  public synchronized void setClusterStateProvider(
+      String zkHost, ClusterStateProvider clusterStateProvider) {
+    ensureOpen();
+    clusterStateProviders.put(zkHost, clusterStateProvider);
+    if (apacheHttpClient != null) {
+      getCloudSolrClient(zkHost);
+      String urlScheme = clusterStateProvider.getClusterProperty(ClusterState.URL_SCHEME, "http");
+      for (String nodeName : clusterStateProvider.getLiveNodes()) {
+        getHttpSolrClient(Utils.getBaseUrlForNodeName(nodeName, urlScheme));
+      }
+    }
+  }
+
   public synchronized CloudSolrClient getCloudSolrClient(String zkHost) {
     ensureOpen();
     Objects.requireNonNull(zkHost, "ZooKeeper host cannot be null!");
@@ -81,7 +107,10 @@ public class SolrClientCache implements Closeable {
       return (CloudSolrClient) solrClients.get(zkHost);
     }
     final CloudSolrClient client;
-    if (apacheHttpClient != null) {
+    final ClusterStateProvider clusterStateProvider = clusterStateProviders.get(zkHost);
+    if (apacheHttpClient != null && clusterStateProvider != null) {
+      client = newCloudLegacySolrClient(clusterStateProvider, apacheHttpClient);
+    } else if (apacheHttpClient != null) {
       client = newCloudLegacySolrClient(zkHost, apacheHttpClient);
     } else {
       client = newCloudHttp2SolrClient(zkHost, http2SolrClient);
@@ -100,6 +129,16 @@ public class SolrClientCache implements Closeable {
     return client;
   }
 
+  @Deprecated
+  private static CloudSolrClient newCloudLegacySolrClient(
+      ClusterStateProvider clusterStateProvider, HttpClient httpClient) {
+    var builder = new CloudLegacySolrClient.Builder(clusterStateProvider);
+    adjustTimeouts(builder, httpClient);
+    var client = builder.build();
+    client.connect();
+    return client;
+  }
+
   private static CloudHttp2SolrClient newCloudHttp2SolrClient(
       String zkHost, Http2SolrClient http2SolrClient) {
     final List<String> hosts = List.of(zkHost);
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A batch of tuples read from a stream at once, see {@link
+ * org.apache.solr.client.solrj.io.stream.TupleStream#readBatch(TupleBatch)}. Besides the tuples
+ * themselves, numeric fields can be read as a {@link NumericColumn} of primitive arrays, which is
+ * extracted once per batch and can then be aggregated without boxing or map lookups per tuple.
+ *
+ * <p>A batch is reused between reads, so neither its tuples nor its columns may be held on to after
+ * the next read.
+ */
+public class TupleBatch {
+
+  public static final int DEFAULT_SIZE = 1024;
+
+  private final Tuple[] tuples;
+  private int size;
+  private Tuple eof;
+  private final Map<String, NumericColumn> columns = new HashMap<>();
+
+  public TupleBatch() {
+    this(DEFAULT_SIZE);
+  }
+
+  public TupleBatch(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.tuples = new Tuple[capacity];
+  }
+
+  public int capacity() {
+    return tuples.length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isFull() {
+    return size == tuples.length;
+  }
+
+  public Tuple get(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return tuples[index];
+  }
+
+  public void add(Tuple tuple) {
+    if (tuple.EOF) {
+      throw new IllegalArgumentException("Use setEOF for the EOF tuple");
+    }
+    tuples[size++] = tuple;
+  }
+
+  /** Marks the end of the stream, after the tuples in this batch. */
+  public void setEOF(Tuple eof) {
+    this.eof = eof;
+  }
+
+  /** Returns the EOF tuple of the stream if this is its last batch, or null. */
+  public Tuple getEOF() {
+    return eof;
+  }
+
+  public boolean isEOF() {
+    return eof != null;
+  }
+
+  /** Empties the batch to read the next one into it. */
+  public void clear() {
+    Arrays.fill(tuples, 0, size, null);
+    size = 0;
+    eof = null;
+    for (NumericColumn column : columns.values()) {
+      column.valid = false;
+    }
+  }
+
+  /** Returns the values of a numeric field for the tuples of this batch. */
+  public NumericColumn getNumericColumn(String field) {
+    NumericColumn column = columns.computeIfAbsent(field, f -> new NumericColumn(tuples.length));
+    if (!column.valid) {
+      column.fill(field, tuples, size);
+    }
+    return column;
+  }
+
+  /**
+   * The values of a numeric field in a batch. As with {@link Tuple}, ints are read as longs and
+   * floats as doubles, and the {@link #type} of each value tells which array holds it.
+   */
+  public static class NumericColumn {
+    public static final byte MISSING = 0;
+    public static final byte LONG = 1;
+    public static final byte DOUBLE = 2;
+
+    public final byte[] type;
+    public final long[] longs;
+    public final double[] doubles;
+    private boolean valid;
+
+    NumericColumn(int capacity) {
+      this.type = new byte[capacity];
+      this.longs = new long[capacity];
+      this.doubles = new double[capacity];
+    }
+
+    void fill(String field, Tuple[] tuples, int size) {
+      for (int i = 0; i < size; i++) {
+        Object o = tuples[i].get(field);
+        if (o instanceof Long || o instanceof Integer) {
+          type[i] = LONG;
+          longs[i] = ((Number) o).longValue();
+        } else if (o instanceof Double || o instanceof Float) {
+          type[i] = DOUBLE;
+          doubles[i] = ((Number) o).doubleValue();
+        } else {
+          type[i] = MISSING;
+        }
+      }
+      valid = true;
+    }
+  }
+}
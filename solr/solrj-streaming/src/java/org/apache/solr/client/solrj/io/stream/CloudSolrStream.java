@@ -37,6 +37,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
@@ -51,6 +52,7 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.common.cloud.ClusterState;
 import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
 
@@ -71,6 +73,7 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   protected Map<String, String> fieldMappings;
   protected StreamComparator comp;
   private boolean trace;
+  protected int topK;
   protected transient Map<String, Tuple> eofTuples;
   protected transient List<TupleStream> solrStreams;
   protected transient TreeSet<TupleWrapper> tuples;
@@ -270,6 +273,15 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     this.fieldMappings = fieldMappings;
   }
 
+  /**
+   * Limits each shard to its first {@code k} documents in the stream sort. When the stream reads
+   * from /export the shards are queried through /select with rows=k instead, which is still merged
+   * by sort but avoids exporting every matching document only to keep the top k of them.
+   */
+  void setTopK(int k) {
+    this.topK = k;
+  }
+
   public void setTrace(boolean trace) {
     this.trace = trace;
   }
@@ -377,6 +389,11 @@ public class CloudSolrStream extends TupleStream implements Expressible {
   protected void constructStreams() throws IOException {
     final ModifiableSolrParams mParams = adjustParams(new ModifiableSolrParams(params));
     mParams.set(DISTRIB, "false"); // We are the aggregator.
+    if (topK > 0 && "/export".equals(mParams.get(CommonParams.QT))) {
+      mParams.set(CommonParams.QT, "/select");
+      mParams.set(CommonParams.START, 0);
+      mParams.set(CommonParams.ROWS, topK);
+    }
     try {
       final Stream<SolrStream> streamOfSolrStream;
       if (streamContext != null && streamContext.get("shards") != null) {
@@ -441,6 +458,41 @@ public class CloudSolrStream extends TupleStream implements Expressible {
     return _read();
   }
 
+  @Override
+  public void readBatch(TupleBatch batch) throws IOException {
+    batch.clear();
+    while (!batch.isFull()) {
+      TupleWrapper tw = tuples.pollFirst();
+      if (tw == null) {
+        batch.setEOF(_read());
+        return;
+      }
+      batch.add(traced(tw.getTuple()));
+
+      if (tuples.isEmpty()) {
+        // the last shard with tuples left, whose tuples need no merging
+        while (!batch.isFull()) {
+          if (!tw.next()) {
+            break;
+          }
+          batch.add(traced(tw.getTuple()));
+        }
+        if (batch.isFull() && tw.next()) {
+          tuples.add(tw);
+        }
+      } else if (tw.next()) {
+        tuples.add(tw);
+      }
+    }
+  }
+
+  private Tuple traced(Tuple tuple) {
+    if (trace) {
+      tuple.put("_COLLECTION_", this.collection);
+    }
+    return tuple;
+  }
+
   protected Tuple _read() throws IOException {
     TupleWrapper tw = tuples.pollFirst();
     if (tw != null) {
@@ -17,10 +17,13 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -41,12 +44,24 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
  * being computed on then that tuple will not be considered a match to anything. Ie, all fields
  * which are part of the hash must have a non-null value.
  *
+ * <p>With {@code maxMemoryMB}, hashed tuples beyond that estimated size are not kept in memory.
+ * Instead both streams are partitioned by hash into local temp files, and the join is done one
+ * partition at a time (a grace hash join), which only requires a single partition of the hashed
+ * stream to fit in memory. Partitions of the hashed stream that are still larger than that are
+ * split again, along with the matching partition of the full stream, up to {@value
+ * #MAX_SPILL_LEVELS} levels deep. Only the tuples of a single hash value that don't fit in memory
+ * by themselves exceed the limit. When spilling, tuples are no longer returned in the order of the
+ * full stream, which is why such a join doesn't report the sort of the full stream.
+ *
  * @since 6.0.0
  */
 public class HashJoinStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1L;
 
+  private static final int SPILL_PARTITIONS = 64;
+  private static final int MAX_SPILL_LEVELS = 4;
+
   protected TupleStream hashStream;
   protected TupleStream fullStream;
   protected List<String> leftHashOn;
@@ -57,6 +72,16 @@ public class HashJoinStream extends TupleStream implements Expressible {
   protected String workingFullHash = null;
   protected int workngHashSetIdx = 0;
 
+  // the estimated size of hashed tuples to keep in memory, or 0 if unlimited
+  protected long maxMemoryBytes;
+  // the partitions of both streams, if the hashed stream didn't fit in memory
+  private TuplePartitions hashPartitions;
+  private final List<TuplePartitions> spills = new ArrayList<>();
+  private final Deque<SpilledPartition> pendingPartitions = new ArrayDeque<>();
+  private SpilledPartition fullPartition;
+  private TuplePartitions.Reader fullPartitionReader;
+  private Tuple fullEOF;
+
   public HashJoinStream(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
       throws IOException {
     init(fullStream, hashStream, hashOn);
@@ -70,9 +95,12 @@ public class HashJoinStream extends TupleStream implements Expressible {
     StreamExpressionNamedParameter hashStreamExpression =
         factory.getNamedOperand(expression, "hashed");
     StreamExpressionNamedParameter onExpression = factory.getNamedOperand(expression, "on");
+    StreamExpressionNamedParameter maxMemoryExpression =
+        factory.getNamedOperand(expression, "maxMemoryMB");
 
     // validate expression contains only what we want.
-    if (expression.getParameters().size() != streamExpressions.size() + 2) {
+    if (expression.getParameters().size()
+        != streamExpressions.size() + 2 + (maxMemoryExpression == null ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -114,6 +142,37 @@ public class HashJoinStream extends TupleStream implements Expressible {
         factory.constructStream(streamExpressions.get(0)),
         factory.constructStream((StreamExpression) hashStreamExpression.getParameter()),
         hashOn);
+
+    if (maxMemoryExpression != null) {
+      try {
+        setMaxMemoryMB(
+            Integer.parseInt(
+                ((StreamExpressionValue) maxMemoryExpression.getParameter()).getValue()));
+      } catch (IllegalArgumentException e) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - 'maxMemoryMB' must be a non-negative integer",
+                expression),
+            e);
+      }
+    }
+  }
+
+  /**
+   * Limits the estimated size of the hashed tuples kept in memory, beyond which both streams are
+   * spilled to disk. 0 means no limit.
+   */
+  public void setMaxMemoryMB(int maxMemoryMB) {
+    if (maxMemoryMB < 0) {
+      throw new IllegalArgumentException("maxMemoryMB must not be negative");
+    }
+    this.maxMemoryBytes = maxMemoryMB * 1024L * 1024L;
+  }
+
+  /** Like {@link #setMaxMemoryMB(int)}, for tests that need to spill more than a level deep. */
+  void setMaxMemoryBytes(long maxMemoryBytes) {
+    this.maxMemoryBytes = maxMemoryBytes;
   }
 
   private void init(TupleStream fullStream, TupleStream hashStream, List<String> hashOn)
@@ -190,6 +249,11 @@ public class HashJoinStream extends TupleStream implements Expressible {
     }
 
     expression.addParameter(new StreamExpressionNamedParameter("on", sb.toString()));
+    if (maxMemoryBytes > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter(
+              "maxMemoryMB", String.valueOf(maxMemoryBytes / 1024 / 1024)));
+    }
     return expression;
   }
 
@@ -226,20 +290,140 @@ public class HashJoinStream extends TupleStream implements Expressible {
     hashStream.open();
     fullStream.open();
 
+    long hashedBytes = 0;
     Tuple tuple = hashStream.read();
     while (!tuple.EOF) {
       String hash = computeHash(tuple, rightHashOn);
       if (null != hash) {
-        if (hashedTuples.containsKey(hash)) {
-          hashedTuples.get(hash).add(tuple);
+        if (hashPartitions != null) {
+          hashPartitions.add(hashPartitions.partition(hash, 0), tuple);
         } else {
-          ArrayList<Tuple> set = new ArrayList<>();
-          set.add(tuple);
-          hashedTuples.put(hash, set);
+          hashedTuples.computeIfAbsent(hash, k -> new ArrayList<>()).add(tuple);
+          if (maxMemoryBytes > 0) {
+            hashedBytes += TuplePartitions.estimateBytes(tuple);
+            if (hashedBytes > maxMemoryBytes) {
+              spillHashedTuples();
+            }
+          }
         }
       }
       tuple = hashStream.read();
     }
+
+    if (hashPartitions != null) {
+      spillFullTuples();
+    }
+  }
+
+  private void spillHashedTuples() throws IOException {
+    hashPartitions = newPartitions(SPILL_PARTITIONS);
+    for (Map.Entry<String, List<Tuple>> entry : hashedTuples.entrySet()) {
+      int partition = hashPartitions.partition(entry.getKey(), 0);
+      for (Tuple hashed : entry.getValue()) {
+        hashPartitions.add(partition, hashed);
+      }
+    }
+    hashedTuples.clear();
+  }
+
+  private void spillFullTuples() throws IOException {
+    TuplePartitions fullPartitions = newPartitions(SPILL_PARTITIONS);
+    Tuple tuple = fullStream.read();
+    while (!tuple.EOF) {
+      addFullTuple(fullPartitions, tuple, 0);
+      tuple = fullStream.read();
+    }
+    fullEOF = tuple;
+    pushPartitions(hashPartitions, fullPartitions, 0);
+  }
+
+  private void addFullTuple(TuplePartitions fullPartitions, Tuple tuple, int level)
+      throws IOException {
+    // tuples without a hash don't match, but are still returned by an outer join
+    String hash = computeHash(tuple, leftHashOn);
+    fullPartitions.add(hash == null ? 0 : fullPartitions.partition(hash, level), tuple);
+  }
+
+  private TuplePartitions newPartitions(int numPartitions) throws IOException {
+    TuplePartitions partitions = new TuplePartitions("hashJoin", numPartitions);
+    spills.add(partitions);
+    return partitions;
+  }
+
+  private void pushPartitions(TuplePartitions hashed, TuplePartitions full, int level) {
+    for (int i = full.numPartitions() - 1; i >= 0; i--) {
+      pendingPartitions.push(new SpilledPartition(hashed, full, i, level));
+    }
+  }
+
+  /**
+   * Splits a partition of both streams into partitions of the next level, as many as the hashed
+   * tuples are expected to need to fit in memory.
+   */
+  private void split(SpilledPartition spilled) throws IOException {
+    int level = spilled.level + 1;
+    long parts = 2 * (spilled.hashed.estimatedBytes(spilled.partition) / maxMemoryBytes + 1);
+    int numPartitions = (int) Math.min(SPILL_PARTITIONS, parts);
+    TuplePartitions hashed = newPartitions(numPartitions);
+    try (TuplePartitions.Reader reader = spilled.hashed.read(spilled.partition)) {
+      for (Tuple tuple = reader.next(); tuple != null; tuple = reader.next()) {
+        hashed.add(hashed.partition(computeHash(tuple, rightHashOn), level), tuple);
+      }
+    }
+    TuplePartitions full = newPartitions(numPartitions);
+    try (TuplePartitions.Reader reader = spilled.full.read(spilled.partition)) {
+      for (Tuple tuple = reader.next(); tuple != null; tuple = reader.next()) {
+        addFullTuple(full, tuple, level);
+      }
+    }
+    spilled.hashed.delete(spilled.partition);
+    spilled.full.delete(spilled.partition);
+    pushPartitions(hashed, full, level);
+  }
+
+  /**
+   * Returns the next tuple of the full stream. After spilling, these are the tuples of one
+   * partition after another, with the tuples of the hashed stream of the same partition loaded.
+   */
+  protected Tuple readFullTuple() throws IOException {
+    if (hashPartitions == null) {
+      return fullStream.read();
+    }
+    while (true) {
+      if (fullPartitionReader != null) {
+        Tuple tuple = fullPartitionReader.next();
+        if (tuple != null) {
+          return tuple;
+        }
+        fullPartitionReader.close();
+        fullPartitionReader = null;
+        fullPartition.full.delete(fullPartition.partition);
+      }
+      fullPartition = pendingPartitions.poll();
+      hashedTuples.clear();
+      if (fullPartition == null) {
+        return fullEOF;
+      }
+      if (fullPartition.full.size(fullPartition.partition) == 0) {
+        fullPartition.hashed.delete(fullPartition.partition);
+        continue;
+      }
+      if (fullPartition.level < MAX_SPILL_LEVELS
+          && fullPartition.hashed.size(fullPartition.partition) > 1
+          && fullPartition.hashed.estimatedBytes(fullPartition.partition) > maxMemoryBytes) {
+        split(fullPartition);
+        continue;
+      }
+      try (TuplePartitions.Reader hashed = fullPartition.hashed.read(fullPartition.partition)) {
+        for (Tuple tuple = hashed.next(); tuple != null; tuple = hashed.next()) {
+          hashedTuples
+              .computeIfAbsent(computeHash(tuple, rightHashOn), k -> new ArrayList<>())
+              .add(tuple);
+        }
+      }
+      fullPartition.hashed.delete(fullPartition.partition);
+      fullPartitionReader = fullPartition.full.read(fullPartition.partition);
+    }
   }
 
   protected String computeHash(Tuple tuple, List<String> hashOn) {
@@ -260,6 +444,18 @@ public class HashJoinStream extends TupleStream implements Expressible {
   public void close() throws IOException {
     hashStream.close();
     fullStream.close();
+    if (fullPartitionReader != null) {
+      fullPartitionReader.close();
+      fullPartitionReader = null;
+    }
+    hashPartitions = null;
+    fullPartition = null;
+    pendingPartitions.clear();
+    for (TuplePartitions spill : spills) {
+      spill.close();
+    }
+    spills.clear();
+    hashedTuples.clear();
   }
 
   @Override
@@ -267,7 +463,7 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
     findNextWorkingFullTuple:
     while (null == workingFullTuple) {
-      Tuple fullTuple = fullStream.read();
+      Tuple fullTuple = readFullTuple();
 
       // We're at the end of the line
       if (fullTuple.EOF) {
@@ -307,11 +503,27 @@ public class HashJoinStream extends TupleStream implements Expressible {
 
   @Override
   public StreamComparator getStreamSort() {
-    return fullStream.getStreamSort();
+    // a spilled join returns tuples by partition
+    return maxMemoryBytes > 0 ? null : fullStream.getStreamSort();
   }
 
   @Override
   public int getCost() {
     return 0;
   }
+
+  /** A partition of both streams still to be joined. */
+  private static class SpilledPartition {
+    final TuplePartitions hashed;
+    final TuplePartitions full;
+    final int partition;
+    final int level;
+
+    SpilledPartition(TuplePartitions hashed, TuplePartitions full, int partition, int level) {
+      this.hashed = hashed;
+      this.full = full;
+      this.partition = partition;
+      this.level = level;
+    }
+  }
 }
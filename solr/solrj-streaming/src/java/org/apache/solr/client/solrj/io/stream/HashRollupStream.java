@@ -17,7 +17,9 @@
 package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,16 +42,34 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 
+/**
+ * Rolls up the tuples of a stream in any order by hashing the values of the 'over' fields.
+ *
+ * <p>With {@code maxMemoryMB}, once the estimated size of the groups exceeds that limit, tuples of
+ * groups not yet in memory are spilled by hash to partitions in local temp files. The groups in
+ * memory are returned first, followed by the groups of each spilled partition, which are rolled up
+ * one partition at a time in the same way: if a partition has more groups than fit in memory, the
+ * tuples of the rest are spilled again, to partitions of the next level.
+ */
 public class HashRollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  private static final int SPILL_PARTITIONS = 64;
+
   private PushBackStream tupleStream;
   private Bucket[] buckets;
   private Metric[] metrics;
 
   private Iterator<Tuple> tupleIterator;
 
+  // the estimated size of the groups to keep in memory, or 0 if unlimited
+  private long maxMemoryBytes;
+  // all partitions spilled to, and the ones that still have to be rolled up
+  private final List<TuplePartitions> spills = new ArrayList<>();
+  private final Deque<SpilledPartition> pendingPartitions = new ArrayDeque<>();
+  private Tuple eof;
+
   public HashRollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
     init(tupleStream, buckets, metrics);
   }
@@ -62,10 +82,15 @@ public class HashRollupStream extends TupleStream implements Expressible {
     List<StreamExpression> metricExpressions =
         factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
     StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+    StreamExpressionNamedParameter maxMemoryExpression =
+        factory.getNamedOperand(expression, "maxMemoryMB");
 
     // validate expression contains only what we want.
     if (expression.getParameters().size()
-        != streamExpressions.size() + metricExpressions.size() + 1) {
+        != streamExpressions.size()
+            + metricExpressions.size()
+            + 1
+            + (maxMemoryExpression == null ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -110,6 +135,37 @@ public class HashRollupStream extends TupleStream implements Expressible {
     }
 
     init(factory.constructStream(streamExpressions.get(0)), buckets, metrics);
+
+    if (maxMemoryExpression != null) {
+      try {
+        setMaxMemoryMB(
+            Integer.parseInt(
+                ((StreamExpressionValue) maxMemoryExpression.getParameter()).getValue()));
+      } catch (IllegalArgumentException e) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - 'maxMemoryMB' must be a non-negative integer",
+                expression),
+            e);
+      }
+    }
+  }
+
+  /**
+   * Limits the estimated size of the groups kept in memory, beyond which the tuples of new groups
+   * are spilled to disk. 0 means no limit.
+   */
+  public void setMaxMemoryMB(int maxMemoryMB) {
+    if (maxMemoryMB < 0) {
+      throw new IllegalArgumentException("maxMemoryMB must not be negative");
+    }
+    this.maxMemoryBytes = maxMemoryMB * 1024L * 1024L;
+  }
+
+  /** Like {@link #setMaxMemoryMB(int)}, for tests that need to spill more than a level deep. */
+  void setMaxMemoryBytes(long maxMemoryBytes) {
+    this.maxMemoryBytes = maxMemoryBytes;
   }
 
   private List<FieldEqualitor> flattenEqualitor(StreamEqualitor equalitor) {
@@ -165,6 +221,12 @@ public class HashRollupStream extends TupleStream implements Expressible {
       expression.addParameter(metric.toExpression(factory));
     }
 
+    if (maxMemoryBytes > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter(
+              "maxMemoryMB", String.valueOf(maxMemoryBytes / 1024 / 1024)));
+    }
+
     return expression;
   }
 
@@ -207,60 +269,125 @@ public class HashRollupStream extends TupleStream implements Expressible {
   public void close() throws IOException {
     tupleStream.close();
     tupleIterator = null;
+    pendingPartitions.clear();
+    for (TuplePartitions spill : spills) {
+      spill.close();
+    }
+    spills.clear();
   }
 
   @Override
   public Tuple read() throws IOException {
-    // On the first call to read build the tupleIterator.
+    // On the first call to read roll up the stream, or the part of it that fits in memory.
     if (tupleIterator == null) {
-      Map<HashKey, Metric[]> metricMap = new HashMap<>();
-      while (true) {
-        Tuple tuple = tupleStream.read();
-        if (tuple.EOF) {
-          List<Tuple> tuples = new ArrayList<>();
-          for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
-            Tuple t = new Tuple();
-            Metric[] finishedMetrics = entry.getValue();
-            for (Metric metric : finishedMetrics) {
-              t.put(metric.getIdentifier(), metric.getValue());
-            }
-
-            HashKey hashKey = entry.getKey();
-            for (int i = 0; i < buckets.length; i++) {
-              t.put(buckets[i].toString(), hashKey.getParts()[i]);
-            }
-            tuples.add(t);
-          }
-          tuples.add(tuple);
-          this.tupleIterator = tuples.iterator();
-          break;
-        }
+      tupleIterator =
+          rollUp(
+              () -> {
+                Tuple tuple = tupleStream.read();
+                if (tuple.EOF) {
+                  eof = tuple;
+                  return null;
+                }
+                return tuple;
+              },
+              0);
+    }
 
-        Object[] bucketValues = new Object[buckets.length];
-        for (int i = 0; i < buckets.length; i++) {
-          bucketValues[i] = buckets[i].getBucketValue(tuple);
-        }
+    // then each spilled partition, which holds all the tuples of its groups
+    while (!tupleIterator.hasNext()) {
+      SpilledPartition spilled = pendingPartitions.poll();
+      if (spilled == null) {
+        return eof;
+      }
+      try (TuplePartitions.Reader reader = spilled.partitions.read(spilled.partition)) {
+        tupleIterator = rollUp(reader::next, spilled.level + 1);
+      }
+      spilled.partitions.delete(spilled.partition);
+    }
 
-        HashKey hashKey = new HashKey(bucketValues);
-        Metric[] currentMetrics = metricMap.get(hashKey);
+    return tupleIterator.next();
+  }
 
-        if (currentMetrics != null) {
-          for (Metric bucketMetric : currentMetrics) {
-            bucketMetric.update(tuple);
-          }
-        } else {
-          currentMetrics = new Metric[metrics.length];
-          for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
+  /**
+   * Rolls up the tuples of a source. Once the groups in memory exceed the limit, the tuples of new
+   * groups are spilled to partitions of the given level, to be rolled up later. Each level keeps at
+   * least one group in memory, so partitions get smaller with every level.
+   */
+  private Iterator<Tuple> rollUp(TupleSource source, int level) throws IOException {
+    Map<HashKey, Metric[]> metricMap = new HashMap<>();
+    TuplePartitions partitions = null;
+    long bytes = 0;
+    for (Tuple tuple = source.next(); tuple != null; tuple = source.next()) {
+      HashKey hashKey = hashKey(tuple);
+      Metric[] currentMetrics = metricMap.get(hashKey);
+      if (currentMetrics != null) {
+        for (Metric bucketMetric : currentMetrics) {
+          bucketMetric.update(tuple);
+        }
+      } else if (partitions != null) {
+        partitions.add(partitions.partition(hashKey, level), tuple);
+      } else {
+        metricMap.put(hashKey, newMetrics(tuple));
+        if (maxMemoryBytes > 0) {
+          bytes += estimateBytes(tuple);
+          if (bytes > maxMemoryBytes) {
+            partitions = new TuplePartitions("hashRollup", SPILL_PARTITIONS);
+            spills.add(partitions);
           }
-          metricMap.put(hashKey, currentMetrics);
         }
       }
     }
+    if (partitions != null) {
+      for (int i = partitions.numPartitions() - 1; i >= 0; i--) {
+        pendingPartitions.push(new SpilledPartition(partitions, i, level));
+      }
+    }
+    return toTuples(metricMap);
+  }
 
-    return tupleIterator.next();
+  private HashKey hashKey(Tuple tuple) {
+    Object[] bucketValues = new Object[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      bucketValues[i] = buckets[i].getBucketValue(tuple);
+    }
+    return new HashKey(bucketValues);
+  }
+
+  private Metric[] newMetrics(Tuple tuple) {
+    Metric[] bucketMetrics = new Metric[metrics.length];
+    for (int i = 0; i < metrics.length; i++) {
+      bucketMetrics[i] = metrics[i].newInstance();
+      bucketMetrics[i].update(tuple);
+    }
+    return bucketMetrics;
+  }
+
+  private long estimateBytes(Tuple tuple) {
+    // the key, map entry and metrics of a new group
+    long bytes = 96 + 64L * metrics.length;
+    for (Bucket bucket : buckets) {
+      Object value = bucket.getBucketValue(tuple);
+      bytes += 8 + (value instanceof String ? 40 + 2L * ((String) value).length() : 24);
+    }
+    return bytes;
+  }
+
+  private Iterator<Tuple> toTuples(Map<HashKey, Metric[]> metricMap) {
+    List<Tuple> tuples = new ArrayList<>(metricMap.size());
+    for (Map.Entry<HashKey, Metric[]> entry : metricMap.entrySet()) {
+      Tuple t = new Tuple();
+      Metric[] finishedMetrics = entry.getValue();
+      for (Metric metric : finishedMetrics) {
+        t.put(metric.getIdentifier(), metric.getValue());
+      }
+
+      HashKey hashKey = entry.getKey();
+      for (int i = 0; i < buckets.length; i++) {
+        t.put(buckets[i].toString(), hashKey.getParts()[i]);
+      }
+      tuples.add(t);
+    }
+    return tuples.iterator();
   }
 
   @Override
@@ -272,4 +399,22 @@ public class HashRollupStream extends TupleStream implements Expressible {
   public StreamComparator getStreamSort() {
     return tupleStream.getStreamSort();
   }
+
+  /** Returns the next tuple, or null after the last. */
+  private interface TupleSource {
+    Tuple next() throws IOException;
+  }
+
+  /** A spilled partition still to be rolled up, holding all the tuples of its groups. */
+  private static class SpilledPartition {
+    final TuplePartitions partitions;
+    final int partition;
+    final int level;
+
+    SpilledPartition(TuplePartitions partitions, int partition, int level) {
+      this.partitions = partitions;
+      this.partition = partition;
+      this.level = level;
+    }
+  }
 }
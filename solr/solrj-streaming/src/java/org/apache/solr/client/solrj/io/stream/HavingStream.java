@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eval.RecursiveBooleanEvaluator;
 import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
@@ -45,6 +46,7 @@ public class HavingStream extends TupleStream implements Expressible {
   private TupleStream stream;
   private RecursiveBooleanEvaluator evaluator;
   private transient StreamContext streamContext;
+  private transient TupleBatchReader input;
 
   public HavingStream(TupleStream stream, RecursiveBooleanEvaluator evaluator) throws IOException {
     init(stream, evaluator);
@@ -149,6 +151,7 @@ public class HavingStream extends TupleStream implements Expressible {
   @Override
   public void open() throws IOException {
     stream.open();
+    input = new TupleBatchReader();
   }
 
   @Override
@@ -159,7 +162,7 @@ public class HavingStream extends TupleStream implements Expressible {
   @Override
   public Tuple read() throws IOException {
     while (true) {
-      Tuple tuple = stream.read();
+      Tuple tuple = input.read(stream);
       if (tuple.EOF) {
         return tuple;
       }
@@ -171,6 +174,23 @@ public class HavingStream extends TupleStream implements Expressible {
     }
   }
 
+  @Override
+  public void readBatch(TupleBatch batch) throws IOException {
+    batch.clear();
+    while (!batch.isFull()) {
+      Tuple tuple = input.read(stream);
+      if (tuple.EOF) {
+        batch.setEOF(tuple);
+        return;
+      }
+
+      streamContext.getTupleContext().clear();
+      if ((boolean) evaluator.evaluate(tuple)) {
+        batch.add(tuple);
+      }
+    }
+  }
+
   /** Return the stream sort - ie, the order in which records are returned */
   @Override
   public StreamComparator getStreamSort() {
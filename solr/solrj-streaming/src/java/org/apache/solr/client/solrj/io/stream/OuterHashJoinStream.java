@@ -88,6 +88,11 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
       }
     }
     expression.addParameter(new StreamExpressionNamedParameter("on", sb.toString()));
+    if (maxMemoryBytes > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter(
+              "maxMemoryMB", String.valueOf(maxMemoryBytes / 1024 / 1024)));
+    }
 
     return expression;
   }
@@ -96,7 +101,7 @@ public class OuterHashJoinStream extends HashJoinStream implements Expressible {
   public Tuple read() throws IOException {
 
     if (null == workingFullTuple) {
-      Tuple fullTuple = fullStream.read();
+      Tuple fullTuple = readFullTuple();
 
       // We're at the end of the line
       if (fullTuple.EOF) {
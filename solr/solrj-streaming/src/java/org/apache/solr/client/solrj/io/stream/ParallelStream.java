@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -250,6 +251,12 @@ public class ParallelStream extends CloudSolrStream implements Expressible {
     return l;
   }
 
+  @Override
+  public void readBatch(TupleBatch batch) throws IOException {
+    // tuples are post-processed by read()
+    readTuples(batch);
+  }
+
   @Override
   public Tuple read() throws IOException {
     Tuple tuple = _read();
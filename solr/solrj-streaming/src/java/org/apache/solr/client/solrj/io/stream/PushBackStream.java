@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.Expressible;
@@ -81,6 +82,22 @@ public class PushBackStream extends TupleStream implements Expressible {
     stream.close();
   }
 
+  @Override
+  public void readBatch(TupleBatch batch) throws IOException {
+    if (tuple == null) {
+      stream.readBatch(batch);
+      return;
+    }
+    // a batch of just the pushed back tuple, to not mix reads of the stream
+    batch.clear();
+    if (tuple.EOF) {
+      batch.setEOF(tuple);
+    } else {
+      batch.add(tuple);
+    }
+    tuple = null;
+  }
+
   public void pushBack(Tuple tuple) {
     this.tuple = tuple;
   }
@@ -134,7 +134,15 @@ public class RankStream extends TupleStream implements Expressible {
     this.size = size;
 
     // Rank stream does not demand that its order is derivable from the order of the incoming
-    // stream. No derivation check required
+    // stream. No derivation check required. When it is, though, the top n of the merged stream is
+    // made of each shard's top n, so an exporting search only needs to fetch n rows per shard.
+    TupleStream inner =
+        tupleStream instanceof SearchFacadeStream
+            ? ((SearchFacadeStream) tupleStream).getInnerStream()
+            : tupleStream;
+    if (inner.getClass() == CloudSolrStream.class && comp.isDerivedFrom(inner.getStreamSort())) {
+      ((CloudSolrStream) inner).setTopK(size);
+    }
   }
 
   @Override
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.HashKey;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eq.FieldEqualitor;
@@ -51,6 +52,8 @@ public class RollupStream extends TupleStream implements Expressible {
   private HashKey currentKey = new HashKey("-");
   private Metric[] currentMetrics;
   private boolean finished = false;
+  private transient TupleBatch batch;
+  private int batchIndex;
 
   public RollupStream(TupleStream tupleStream, Bucket[] buckets, Metric[] metrics) {
     init(tupleStream, buckets, metrics);
@@ -203,6 +206,8 @@ public class RollupStream extends TupleStream implements Expressible {
   @Override
   public void open() throws IOException {
     tupleStream.open();
+    batch = new TupleBatch();
+    batchIndex = 0;
   }
 
   @Override
@@ -215,63 +220,44 @@ public class RollupStream extends TupleStream implements Expressible {
 
   @Override
   public Tuple read() throws IOException {
-
+    // The input is read in batches, and the metrics are updated with runs of tuples of the same
+    // bucket at once, which lets them aggregate a batch's columns rather than tuple by tuple.
     while (true) {
-      Tuple tuple = tupleStream.read();
-      if (tuple.EOF) {
-        if (!finished) {
-
-          if (currentMetrics == null) {
-            return tuple;
-          }
-
-          Tuple t = new Tuple();
-          for (Metric metric : currentMetrics) {
-            t.put(metric.getIdentifier(), metric.getValue());
-          }
-
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
-          }
-          tupleStream.pushBack(tuple);
-          finished = true;
-          return t;
-        } else {
-          return tuple;
+      if (batchIndex == batch.size()) {
+        if (!batch.isEOF()) {
+          tupleStream.readBatch(batch);
+          batchIndex = 0;
+          continue;
         }
-      }
 
-      Object[] bucketValues = new Object[buckets.length];
-      for (int i = 0; i < buckets.length; i++) {
-        bucketValues[i] = buckets[i].getBucketValue(tuple);
+        Tuple eof = batch.getEOF();
+        if (finished || currentMetrics == null) {
+          return eof;
+        }
+        finished = true;
+        return currentTuple();
       }
 
-      HashKey hashKey = new HashKey(bucketValues);
-
+      HashKey hashKey = hashKey(batch.get(batchIndex));
       if (hashKey.equals(currentKey)) {
-        for (Metric bucketMetric : currentMetrics) {
-          bucketMetric.update(tuple);
+        int end = batchIndex + 1;
+        while (end < batch.size() && hashKey(batch.get(end)).equals(currentKey)) {
+          ++end;
         }
-      } else {
-        Tuple t = null;
         if (currentMetrics != null) {
-          t = new Tuple();
-          for (Metric metric : currentMetrics) {
-            t.put(metric.getIdentifier(), metric.getValue());
-          }
-
-          for (int i = 0; i < buckets.length; i++) {
-            t.put(buckets[i].toString(), currentKey.getParts()[i]);
+          for (Metric bucketMetric : currentMetrics) {
+            bucketMetric.update(batch, batchIndex, end);
           }
         }
+        batchIndex = end;
+      } else {
+        Tuple t = currentMetrics != null ? currentTuple() : null;
 
         currentKey = hashKey;
         if (metrics != null) {
           currentMetrics = new Metric[metrics.length];
           for (int i = 0; i < metrics.length; i++) {
-            Metric bucketMetric = metrics[i].newInstance();
-            bucketMetric.update(tuple);
-            currentMetrics[i] = bucketMetric;
+            currentMetrics[i] = metrics[i].newInstance();
           }
         }
 
@@ -282,6 +268,26 @@ public class RollupStream extends TupleStream implements Expressible {
     }
   }
 
+  private HashKey hashKey(Tuple tuple) {
+    Object[] bucketValues = new Object[buckets.length];
+    for (int i = 0; i < buckets.length; i++) {
+      bucketValues[i] = buckets[i].getBucketValue(tuple);
+    }
+    return new HashKey(bucketValues);
+  }
+
+  private Tuple currentTuple() {
+    Tuple t = new Tuple();
+    for (Metric metric : currentMetrics) {
+      t.put(metric.getIdentifier(), metric.getValue());
+    }
+
+    for (int i = 0; i < buckets.length; i++) {
+      t.put(buckets[i].toString(), currentKey.getParts()[i]);
+    }
+    return t;
+  }
+
   @Override
   public int getCost() {
     return 0;
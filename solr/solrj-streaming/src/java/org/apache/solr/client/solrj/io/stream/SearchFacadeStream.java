@@ -104,6 +104,10 @@ public class SearchFacadeStream extends TupleStream implements Expressible {
     }
   }
 
+  TupleStream getInnerStream() {
+    return innerStream;
+  }
+
   @Override
   public StreamExpressionParameter toExpression(StreamFactory factory) throws IOException {
     return ((Expressible) innerStream).toExpression(factory);
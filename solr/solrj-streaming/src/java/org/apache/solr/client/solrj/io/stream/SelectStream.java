@@ -25,6 +25,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.eval.EvaluatorException;
 import org.apache.solr.client.solrj.io.eval.StreamEvaluator;
@@ -54,6 +55,7 @@ public class SelectStream extends TupleStream implements Expressible {
   private Map<String, String> selectedFields;
   private Map<StreamEvaluator, String> selectedEvaluators;
   private List<StreamOperation> operations;
+  private transient TupleBatchReader input;
 
   public SelectStream(TupleStream stream, List<String> selectedFields) throws IOException {
     this.stream = stream;
@@ -277,6 +279,7 @@ public class SelectStream extends TupleStream implements Expressible {
   @Override
   public void open() throws IOException {
     stream.open();
+    input = new TupleBatchReader();
   }
 
   @Override
@@ -286,12 +289,29 @@ public class SelectStream extends TupleStream implements Expressible {
 
   @Override
   public Tuple read() throws IOException {
-    Tuple original = stream.read();
+    Tuple original = input.read(stream);
 
     if (original.EOF) {
       return original;
     }
 
+    return select(original);
+  }
+
+  @Override
+  public void readBatch(TupleBatch batch) throws IOException {
+    batch.clear();
+    while (!batch.isFull()) {
+      Tuple original = input.read(stream);
+      if (original.EOF) {
+        batch.setEOF(original);
+        return;
+      }
+      batch.add(select(original));
+    }
+  }
+
+  private Tuple select(Tuple original) throws IOException {
     // create a copy with the limited set of fields
     Tuple workingToReturn = new Tuple();
     Tuple workingForEvaluators = new Tuple();
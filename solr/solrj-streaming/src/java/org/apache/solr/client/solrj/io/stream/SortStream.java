@@ -18,9 +18,10 @@ package org.apache.solr.client.solrj.io.stream;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.PriorityQueue;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
@@ -36,15 +37,31 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 /**
  * The SortStream emits a stream of Tuples sorted by a Comparator.
  *
+ * <p>With {@code maxMemoryMB}, once the estimated size of the buffered tuples exceeds that limit,
+ * they are sorted and spilled as a run to a local temp file. The runs and the tuples left in memory
+ * are then merged by sort as they are read, in several passes if there are more runs than can be
+ * open at once.
+ *
  * @since 6.1.0
  */
 public class SortStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
+  // the number of runs merged at once, each of which holds an open file and its read buffer
+  private static final int MERGE_RUNS = 64;
+
   private TupleStream stream;
   private StreamComparator comparator;
-  private Worker worker;
+
+  // the estimated size of the tuples to keep in memory, or 0 if unlimited
+  private long maxMemoryBytes;
+  private TuplePartitions runs;
+  private int spilledRuns;
+  private long spilledBytes;
+  private Iterator<Tuple> sorted;
+  private PriorityQueue<Run> merge;
+  private Tuple eofTuple;
 
   public SortStream(TupleStream stream, StreamComparator comp) throws IOException {
     init(stream, comp);
@@ -56,9 +73,12 @@ public class SortStream extends TupleStream implements Expressible {
         factory.getExpressionOperandsRepresentingTypes(
             expression, Expressible.class, TupleStream.class);
     StreamExpressionNamedParameter byExpression = factory.getNamedOperand(expression, "by");
+    StreamExpressionNamedParameter maxMemoryExpression =
+        factory.getNamedOperand(expression, "maxMemoryMB");
 
     // validate expression contains only what we want.
-    if (expression.getParameters().size() != streamExpressions.size() + 1) {
+    if (expression.getParameters().size()
+        != streamExpressions.size() + 1 + (maxMemoryExpression == null ? 0 : 1)) {
       throw new IOException(
           String.format(Locale.ROOT, "Invalid expression %s - unknown operands found", expression));
     }
@@ -85,44 +105,50 @@ public class SortStream extends TupleStream implements Expressible {
         factory.constructComparator(
             ((StreamExpressionValue) byExpression.getParameter()).getValue(),
             FieldComparator.class));
-  }
-
-  private void init(TupleStream stream, StreamComparator comp) throws IOException {
-    this.stream = stream;
-    this.comparator = comp;
-
-    // standard java modified merge sort
-    worker =
-        new Worker() {
 
-          @SuppressWarnings("JdkObsolete")
-          private final LinkedList<Tuple> tuples = new LinkedList<>();
+    if (maxMemoryExpression != null) {
+      try {
+        setMaxMemoryMB(
+            Integer.parseInt(
+                ((StreamExpressionValue) maxMemoryExpression.getParameter()).getValue()));
+      } catch (IllegalArgumentException e) {
+        throw new IOException(
+            String.format(
+                Locale.ROOT,
+                "Invalid expression %s - 'maxMemoryMB' must be a non-negative integer",
+                expression),
+            e);
+      }
+    }
+  }
 
-          private Tuple eofTuple;
+  /**
+   * Limits the estimated size of the tuples kept in memory, beyond which sorted runs are spilled to
+   * disk. 0 means no limit.
+   */
+  public void setMaxMemoryMB(int maxMemoryMB) {
+    if (maxMemoryMB < 0) {
+      throw new IllegalArgumentException("maxMemoryMB must not be negative");
+    }
+    this.maxMemoryBytes = maxMemoryMB * 1024L * 1024L;
+  }
 
-          @Override
-          public void readStream(TupleStream stream) throws IOException {
-            Tuple tuple = stream.read();
-            while (!tuple.EOF) {
-              tuples.add(tuple);
-              tuple = stream.read();
-            }
-            eofTuple = tuple;
-          }
+  /** Returns the number of sorted runs spilled to disk since the stream was opened. */
+  public int getSpilledRuns() {
+    return spilledRuns;
+  }
 
-          @Override
-          public void sort() {
-            tuples.sort(comparator);
-          }
+  /**
+   * Returns the number of bytes spilled to disk since the stream was opened, including the runs
+   * written by intermediate merge passes.
+   */
+  public long getSpilledBytes() {
+    return spilledBytes;
+  }
 
-          @Override
-          public Tuple read() {
-            if (tuples.isEmpty()) {
-              return eofTuple;
-            }
-            return tuples.removeFirst();
-          }
-        };
+  private void init(TupleStream stream, StreamComparator comp) throws IOException {
+    this.stream = stream;
+    this.comparator = comp;
   }
 
   @Override
@@ -156,6 +182,12 @@ public class SortStream extends TupleStream implements Expressible {
           "This SortStream contains a non-expressible equalitor - it cannot be converted to an expression");
     }
 
+    if (maxMemoryBytes > 0) {
+      expression.addParameter(
+          new StreamExpressionNamedParameter(
+              "maxMemoryMB", String.valueOf(maxMemoryBytes / 1024 / 1024)));
+    }
+
     return expression;
   }
 
@@ -186,20 +218,131 @@ public class SortStream extends TupleStream implements Expressible {
   @Override
   public void open() throws IOException {
     stream.open();
+    spilledRuns = 0;
+    spilledBytes = 0;
+
+    List<Tuple> tuples = new ArrayList<>();
+    long bytes = 0;
+    Tuple tuple = stream.read();
+    while (!tuple.EOF) {
+      tuples.add(tuple);
+      if (maxMemoryBytes > 0) {
+        bytes += TuplePartitions.estimateBytes(tuple);
+        if (bytes > maxMemoryBytes) {
+          spill(tuples);
+          tuples = new ArrayList<>();
+          bytes = 0;
+        }
+      }
+      tuple = stream.read();
+    }
+    eofTuple = tuple;
 
-    worker.readStream(stream);
-    worker.sort();
+    // the list sort is stable, and ties between runs go to the earlier run, which keeps the
+    // order of equal tuples as long as a single merge pass is enough
+    tuples.sort(comparator);
+    if (runs == null) {
+      sorted = tuples.iterator();
+    } else {
+      mergeRuns(tuples);
+    }
+  }
+
+  private void spill(List<Tuple> tuples) throws IOException {
+    tuples.sort(comparator);
+    if (runs == null) {
+      runs = new TuplePartitions("sort", 0);
+    }
+    int run = runs.addPartition();
+    for (Tuple tuple : tuples) {
+      runs.add(run, tuple);
+    }
+    // release the file handle and write buffer of the run until it's merged
+    runs.finish(run);
+    spilledRuns++;
+  }
+
+  private void mergeRuns(List<Tuple> inMemory) throws IOException {
+    // merge the oldest runs into a new one until the rest, and the run still in memory, can be
+    // merged at once
+    int first = 0;
+    while (runs.numPartitions() - first >= MERGE_RUNS) {
+      PriorityQueue<Run> queue = openRuns(first, first + MERGE_RUNS, null);
+      int run = runs.addPartition();
+      while (!queue.isEmpty()) {
+        Run next = queue.poll();
+        runs.add(run, next.tuple);
+        advance(queue, next);
+      }
+      runs.finish(run);
+      // the merged runs were all closed once exhausted, and are no longer needed
+      for (int i = first; i < first + MERGE_RUNS; i++) {
+        runs.delete(i);
+      }
+      first += MERGE_RUNS;
+    }
+    merge = openRuns(first, runs.numPartitions(), inMemory);
+    spilledBytes = runs.bytesWritten();
+  }
+
+  private PriorityQueue<Run> openRuns(int from, int to, List<Tuple> inMemory) throws IOException {
+    PriorityQueue<Run> queue =
+        new PriorityQueue<>(
+            to - from + 1,
+            (left, right) -> {
+              int c = comparator.compare(left.tuple, right.tuple);
+              return c != 0 ? c : Integer.compare(left.index, right.index);
+            });
+    for (int i = from; i < to; i++) {
+      advance(queue, new Run(i, runs.read(i), null));
+    }
+    if (inMemory != null) {
+      advance(queue, new Run(to, null, inMemory.iterator()));
+    }
+    return queue;
+  }
+
+  /** Moves a run to its next tuple and puts it back in the queue, or closes it when done. */
+  private static void advance(PriorityQueue<Run> queue, Run run) throws IOException {
+    if (run.next()) {
+      queue.add(run);
+    } else {
+      run.close();
+    }
   }
 
   @Override
   public void close() throws IOException {
-    stream.close();
+    try {
+      stream.close();
+    } finally {
+      sorted = null;
+      if (merge != null) {
+        for (Run run : merge) {
+          run.close();
+        }
+        merge = null;
+      }
+      if (runs != null) {
+        runs.close();
+        runs = null;
+      }
+    }
   }
 
   @Override
   public Tuple read() throws IOException {
     // return next from sorted order
-    return worker.read();
+    if (merge == null) {
+      return sorted.hasNext() ? sorted.next() : eofTuple;
+    }
+    if (merge.isEmpty()) {
+      return eofTuple;
+    }
+    Run run = merge.poll();
+    Tuple tuple = run.tuple;
+    advance(merge, run);
+    return tuple;
   }
 
   /** Return the stream sort - ie, the order in which records are returned */
@@ -213,11 +356,32 @@ public class SortStream extends TupleStream implements Expressible {
     return 0;
   }
 
-  private interface Worker {
-    public void readStream(TupleStream stream) throws IOException;
+  /** A sorted run being merged, read from a spill file or from the tuples still in memory. */
+  private static class Run {
+    private final int index;
+    private final TuplePartitions.Reader reader;
+    private final Iterator<Tuple> tuples;
+    private Tuple tuple;
+
+    Run(int index, TuplePartitions.Reader reader, Iterator<Tuple> tuples) {
+      this.index = index;
+      this.reader = reader;
+      this.tuples = tuples;
+    }
 
-    public void sort();
+    boolean next() throws IOException {
+      if (reader != null) {
+        tuple = reader.next();
+      } else {
+        tuple = tuples.hasNext() ? tuples.next() : null;
+      }
+      return tuple != null;
+    }
 
-    public Tuple read();
+    void close() throws IOException {
+      if (reader != null) {
+        reader.close();
+      }
+    }
   }
 }
@@ -42,6 +42,7 @@ import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
 import org.apache.solr.client.solrj.io.comp.FieldComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
@@ -372,6 +373,12 @@ public class TopicStream extends CloudSolrStream implements Expressible {
     }
   }
 
+  @Override
+  public void readBatch(TupleBatch batch) throws IOException {
+    // tuples are post-processed by read()
+    readTuples(batch);
+  }
+
   @Override
   public Tuple read() throws IOException {
     Tuple tuple = _read();
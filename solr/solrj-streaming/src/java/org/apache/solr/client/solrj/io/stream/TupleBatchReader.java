@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
+
+/**
+ * Hands out the tuples of a stream one at a time, while reading them from the stream in batches,
+ * for decorators that process a tuple at a time themselves.
+ */
+class TupleBatchReader {
+
+  private final TupleBatch batch = new TupleBatch();
+  private int index;
+
+  /** Returns the next tuple of the stream, or its EOF tuple once it ended. */
+  Tuple read(TupleStream stream) throws IOException {
+    if (index == batch.size()) {
+      if (batch.isEOF()) {
+        return batch.getEOF();
+      }
+      stream.readBatch(batch);
+      index = 0;
+      if (batch.size() == 0) {
+        return batch.getEOF();
+      }
+    }
+    return batch.get(index++);
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.common.util.FastInputStream;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.JavaBinCodec;
+
+/**
+ * Tuples spilled to a fixed number of partitions in local temp files, for streams that must hash
+ * more tuples than fit in memory. Tuples are assigned to partitions by the hash of a key, so that
+ * all tuples with the same key can be processed together by reading back one partition at a time.
+ * A partition that is still too large can be split by adding its tuples to partitions of a higher
+ * level, which assign keys independently. Tuples are encoded with javabin, which writes each field
+ * name only once per partition.
+ *
+ * <p>Partitions can also be added one at a time, for callers such as an external sort that fill
+ * each partition with a sorted run rather than assigning tuples by hash.
+ */
+class TuplePartitions implements Closeable {
+
+  private final Path dir;
+  private JavaBinCodec[] writers;
+  private OutputStream[] outputs;
+  private long[] sizes;
+  private long[] estimatedBytes;
+  private long bytesWritten;
+
+  TuplePartitions(String name, int numPartitions) throws IOException {
+    this.dir = Files.createTempDirectory(name);
+    this.writers = new JavaBinCodec[numPartitions];
+    this.outputs = new OutputStream[numPartitions];
+    this.sizes = new long[numPartitions];
+    this.estimatedBytes = new long[numPartitions];
+  }
+
+  int numPartitions() {
+    return sizes.length;
+  }
+
+  /** Adds an empty partition and returns its number. */
+  int addPartition() {
+    int partition = sizes.length;
+    writers = Arrays.copyOf(writers, partition + 1);
+    outputs = Arrays.copyOf(outputs, partition + 1);
+    sizes = Arrays.copyOf(sizes, partition + 1);
+    estimatedBytes = Arrays.copyOf(estimatedBytes, partition + 1);
+    return partition;
+  }
+
+  /**
+   * Returns the partition of a key, which is independent of how hash maps bucket it, and of the
+   * partition the key has at other levels.
+   */
+  int partition(Object key, int level) {
+    // mix the hash with a seed per level, and use the high bits, hash maps use the low ones
+    int h = key.hashCode() ^ (level * 0x9E3779B9);
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+    return (int) (((h & 0xFFFFFFFFL) * sizes.length) >>> 32);
+  }
+
+  void add(int partition, Tuple tuple) throws IOException {
+    if (writers[partition] == null) {
+      outputs[partition] =
+          new BufferedOutputStream(Files.newOutputStream(file(partition)), 64 * 1024);
+      writers[partition] = new JavaBinCodec(outputs[partition], null);
+    }
+    writers[partition].writeVal(tuple.getFields());
+    sizes[partition]++;
+    estimatedBytes[partition] += estimateBytes(tuple);
+  }
+
+  long size(int partition) {
+    return sizes[partition];
+  }
+
+  /** Returns the estimated heap the tuples of a partition would use once read back. */
+  long estimatedBytes(int partition) {
+    return estimatedBytes[partition];
+  }
+
+  /**
+   * Closes the file of a partition, after which no more tuples can be added to it. Partitions are
+   * otherwise finished when they're read.
+   */
+  void finish(int partition) throws IOException {
+    if (writers[partition] != null) {
+      writers[partition].close();
+      outputs[partition].close();
+      writers[partition] = null;
+      outputs[partition] = null;
+      bytesWritten += Files.size(file(partition));
+    }
+  }
+
+  /** Reads back the tuples of a partition, after which no more can be added to it. */
+  Reader read(int partition) throws IOException {
+    finish(partition);
+    if (sizes[partition] == 0) {
+      return new Reader(null, 0);
+    }
+    return new Reader(
+        new BufferedInputStream(Files.newInputStream(file(partition)), 64 * 1024),
+        sizes[partition]);
+  }
+
+  /** Deletes the file of a partition that was read back and is no longer needed. */
+  void delete(int partition) throws IOException {
+    finish(partition);
+    Files.deleteIfExists(file(partition));
+  }
+
+  /** Returns the number of bytes written to the partitions that have been finished. */
+  long bytesWritten() {
+    return bytesWritten;
+  }
+
+  private Path file(int partition) {
+    return dir.resolve("partition-" + partition);
+  }
+
+  @Override
+  public void close() throws IOException {
+    for (int i = 0; i < sizes.length; i++) {
+      if (outputs[i] != null) {
+        IOUtils.closeQuietly(outputs[i]);
+      }
+      Files.deleteIfExists(file(i));
+    }
+    Files.deleteIfExists(dir);
+  }
+
+  /** Estimates the heap used by a tuple, to decide when to spill. */
+  static long estimateBytes(Tuple tuple) {
+    long bytes = 64;
+    for (Map.Entry<String, Object> entry : tuple.getFields().entrySet()) {
+      bytes += 48 + 2L * entry.getKey().length() + estimateBytes(entry.getValue());
+    }
+    return bytes;
+  }
+
+  private static long estimateBytes(Object value) {
+    if (value instanceof String) {
+      return 40 + 2L * ((String) value).length();
+    } else if (value instanceof Collection) {
+      long bytes = 40;
+      for (Object o : (Collection<?>) value) {
+        bytes += 8 + estimateBytes(o);
+      }
+      return bytes;
+    }
+    return 24;
+  }
+
+  /** Reads the tuples of one partition in the order they were added. */
+  static class Reader implements Closeable {
+    private final InputStream in;
+    private final FastInputStream dis;
+    private final ReadCodec codec = new ReadCodec();
+    private long remaining;
+
+    private Reader(InputStream in, long size) throws IOException {
+      this.in = in;
+      this.dis = in == null ? null : codec.open(in);
+      this.remaining = size;
+    }
+
+    /** Returns the next tuple, or null after the last. */
+    @SuppressWarnings("unchecked")
+    Tuple next() throws IOException {
+      if (remaining == 0) {
+        return null;
+      }
+      remaining--;
+      return new Tuple((Map<String, ?>) codec.readVal(dis));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+    }
+  }
+
+  private static class ReadCodec extends JavaBinCodec {
+    FastInputStream open(InputStream in) throws IOException {
+      return initRead(in);
+    }
+  }
+}
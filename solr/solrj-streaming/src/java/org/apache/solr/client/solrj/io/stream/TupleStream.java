@@ -30,6 +30,7 @@ import java.util.stream.Collectors;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.stream.expr.Explanation;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -66,6 +67,30 @@ public abstract class TupleStream implements Closeable, Serializable, MapWriter
 
   public abstract Tuple read() throws IOException;
 
+  /**
+   * Reads the next tuples of the stream into a batch, which is cleared first. Reading stops when
+   * the batch is full or the stream ends, in which case the EOF tuple is set on the batch rather
+   * than added to it. Streams can override this to read their tuples more efficiently than one at
+   * a time, but reads of a stream must not alternate between this and {@link #read()} unless the
+   * stream allows it.
+   */
+  public void readBatch(TupleBatch batch) throws IOException {
+    readTuples(batch);
+  }
+
+  /** Reads a batch by calling {@link #read()} for each tuple. */
+  protected final void readTuples(TupleBatch batch) throws IOException {
+    batch.clear();
+    while (!batch.isFull()) {
+      Tuple tuple = read();
+      if (tuple.EOF) {
+        batch.setEOF(tuple);
+        return;
+      }
+      batch.add(tuple);
+    }
+  }
+
   public abstract StreamComparator getStreamSort();
 
   public abstract Explanation toExplanation(StreamFactory factory) throws IOException;
@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream.metrics;
 import java.io.IOException;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -76,6 +77,15 @@ public class CountMetric extends Metric {
     }
   }
 
+  @Override
+  public void update(TupleBatch batch, int from, int to) {
+    if (isAllColumns()) {
+      count += to - from;
+    } else {
+      super.update(batch, from, to);
+    }
+  }
+
   @Override
   public Long getValue() {
     return count;
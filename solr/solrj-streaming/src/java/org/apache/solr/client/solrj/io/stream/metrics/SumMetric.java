@@ -19,6 +19,7 @@ package org.apache.solr.client.solrj.io.stream.metrics;
 import java.io.IOException;
 import java.util.Locale;
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.TupleBatch;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
@@ -83,6 +84,18 @@ public class SumMetric extends Metric {
     }
   }
 
+  @Override
+  public void update(TupleBatch batch, int from, int to) {
+    TupleBatch.NumericColumn column = batch.getNumericColumn(columnName);
+    for (int i = from; i < to; i++) {
+      if (column.type[i] == TupleBatch.NumericColumn.LONG) {
+        longSum += column.longs[i];
+      } else if (column.type[i] == TupleBatch.NumericColumn.DOUBLE) {
+        doubleSum += column.doubles[i];
+      }
+    }
+  }
+
   @Override
   public Metric newInstance() {
     return new SumMetric(columnName);
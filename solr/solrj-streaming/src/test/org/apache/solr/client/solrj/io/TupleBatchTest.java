@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.stream.RollupStream;
+import org.apache.solr.client.solrj.io.stream.TupleListStream;
+import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.junit.Test;
+
+public class TupleBatchTest extends SolrTestCase {
+
+  @Test
+  public void testNumericColumn() {
+    TupleBatch batch = new TupleBatch(8);
+    batch.add(new Tuple("v", 1L));
+    batch.add(new Tuple("v", 2));
+    batch.add(new Tuple("v", 3.5d));
+    batch.add(new Tuple("v", 4.5f));
+    batch.add(new Tuple("v", "5"));
+    batch.add(new Tuple("w", 6L));
+
+    TupleBatch.NumericColumn column = batch.getNumericColumn("v");
+    assertEquals(TupleBatch.NumericColumn.LONG, column.type[0]);
+    assertEquals(1L, column.longs[0]);
+    assertEquals(TupleBatch.NumericColumn.LONG, column.type[1]);
+    assertEquals(2L, column.longs[1]);
+    assertEquals(TupleBatch.NumericColumn.DOUBLE, column.type[2]);
+    assertEquals(3.5d, column.doubles[2], 0d);
+    assertEquals(TupleBatch.NumericColumn.DOUBLE, column.type[3]);
+    assertEquals(4.5d, column.doubles[3], 0d);
+    assertEquals(TupleBatch.NumericColumn.MISSING, column.type[4]);
+    assertEquals(TupleBatch.NumericColumn.MISSING, column.type[5]);
+
+    // columns are extracted again for the next batch
+    batch.clear();
+    assertEquals(0, batch.size());
+    batch.add(new Tuple("v", 7.0d));
+    column = batch.getNumericColumn("v");
+    assertEquals(TupleBatch.NumericColumn.DOUBLE, column.type[0]);
+    assertEquals(7.0d, column.doubles[0], 0d);
+  }
+
+  @Test
+  public void testReadBatch() throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      tuples.add(new Tuple("id", i));
+    }
+    TupleStream stream = new TupleListStream(tuples);
+    stream.open();
+
+    TupleBatch batch = new TupleBatch(1000);
+    int[] sizes = new int[3];
+    for (int i = 0; i < sizes.length; i++) {
+      assertFalse(batch.isEOF());
+      stream.readBatch(batch);
+      sizes[i] = batch.size();
+    }
+    assertArrayEquals(new int[] {1000, 1000, 500}, sizes);
+    assertTrue(batch.isEOF());
+    assertEquals(2000, batch.get(0).getLong("id").longValue());
+  }
+
+  @Test
+  public void testBatchedRollup() throws IOException {
+    // runs of the same bucket of random length, which span batches
+    List<Tuple> tuples = new ArrayList<>();
+    List<Metric[]> expected = new ArrayList<>();
+    for (int bucket = 0; bucket < 300; bucket++) {
+      Metric[] metrics = metrics();
+      int count = random().nextInt(20);
+      for (int i = 0; i < count; i++) {
+        Tuple tuple = new Tuple("k", "k" + bucket);
+        switch (random().nextInt(4)) {
+          case 0:
+            tuple.put("v", random().nextLong());
+            break;
+          case 1:
+            tuple.put("v", random().nextInt());
+            break;
+          case 2:
+            tuple.put("v", random().nextDouble());
+            break;
+          default:
+            // no value
+        }
+        for (Metric metric : metrics) {
+          metric.update(tuple);
+        }
+        tuples.add(tuple);
+      }
+      if (count > 0) {
+        expected.add(metrics);
+      }
+    }
+
+    RollupStream rollup =
+        new RollupStream(
+            new TupleListStream(tuples), new Bucket[] {new Bucket("k")}, metrics());
+    rollup.open();
+    try {
+      for (Metric[] metrics : expected) {
+        Tuple tuple = rollup.read();
+        assertFalse(tuple.EOF);
+        for (Metric metric : metrics) {
+          assertEquals(metric.getValue(), tuple.get(metric.getIdentifier()));
+        }
+      }
+      assertTrue(rollup.read().EOF);
+    } finally {
+      rollup.close();
+    }
+  }
+
+  private static Metric[] metrics() {
+    return new Metric[] {
+      new SumMetric("v"),
+      new MinMetric("v"),
+      new MaxMetric("v"),
+      new MeanMetric("v"),
+      new CountMetric(),
+      new CountMetric("v")
+    };
+  }
+}
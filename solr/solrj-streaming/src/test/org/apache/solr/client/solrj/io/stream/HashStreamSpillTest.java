@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
+import org.junit.Test;
+
+/** Tests that the hash join and rollup streams return the same tuples when they spill to disk. */
+public class HashStreamSpillTest extends SolrTestCase {
+
+  @Test
+  public void testHashJoin() throws IOException {
+    List<String> unlimited = join(new HashJoinStream(fullTuples(), hashedTuples(), List.of("k")));
+    assertEquals(40000, unlimited.size());
+
+    HashJoinStream spilling = new HashJoinStream(fullTuples(), hashedTuples(), List.of("k"));
+    spilling.setMaxMemoryMB(1);
+    assertNull(spilling.getStreamSort());
+    assertEquals(unlimited, join(spilling));
+  }
+
+  @Test
+  public void testOuterHashJoin() throws IOException {
+    List<String> unlimited =
+        join(new OuterHashJoinStream(fullTuples(), hashedTuples(), List.of("k")));
+    assertEquals(40000 + 4000 + 10, unlimited.size());
+
+    OuterHashJoinStream spilling =
+        new OuterHashJoinStream(fullTuples(), hashedTuples(), List.of("k"));
+    spilling.setMaxMemoryMB(1);
+    assertEquals(unlimited, join(spilling));
+  }
+
+  @Test
+  public void testHashJoinRepartitionsLargePartitions() throws IOException {
+    List<String> unlimited = join(new HashJoinStream(fullTuples(), hashedTuples(), List.of("k")));
+
+    // far less than a 64th of the hashed tuples, so their partitions have to be split again
+    HashJoinStream spilling = new HashJoinStream(fullTuples(), hashedTuples(), List.of("k"));
+    spilling.setMaxMemoryBytes(2048);
+    assertEquals(unlimited, join(spilling));
+
+    List<String> unlimitedOuter =
+        join(new OuterHashJoinStream(fullTuples(), hashedTuples(), List.of("k")));
+    OuterHashJoinStream outer = new OuterHashJoinStream(fullTuples(), hashedTuples(), List.of("k"));
+    outer.setMaxMemoryBytes(2048);
+    assertEquals(unlimitedOuter, join(outer));
+  }
+
+  @Test
+  public void testHashRollup() throws IOException {
+    List<String> unlimited = rollup(0);
+    assertEquals(10000, unlimited.size());
+    assertEquals(unlimited, rollup(1024 * 1024));
+    // groups that don't fit in a 64th of the limit are spilled again when rolling up a partition
+    assertEquals(unlimited, rollup(2048));
+  }
+
+  private static List<String> join(TupleStream stream) throws IOException {
+    List<String> joined = new ArrayList<>();
+    try (stream) {
+      stream.open();
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        joined.add(tuple.getString("id") + ":" + tuple.getString("h"));
+      }
+    }
+    Collections.sort(joined);
+    return joined;
+  }
+
+  private static List<String> rollup(long maxMemoryBytes) throws IOException {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 30000; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("k", "key" + (i % 10000));
+      tuple.put("v", (long) i);
+      tuples.add(tuple);
+    }
+    HashRollupStream stream =
+        new HashRollupStream(
+            new TupleListStream(tuples),
+            new Bucket[] {new Bucket("k")},
+            new Metric[] {new SumMetric("v"), new CountMetric()});
+    stream.setMaxMemoryBytes(maxMemoryBytes);
+
+    List<String> rolledUp = new ArrayList<>();
+    try (stream) {
+      stream.open();
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        rolledUp.add(
+            tuple.getString("k")
+                + ":"
+                + tuple.getString("sum(v)")
+                + ":"
+                + tuple.getString("count(*)"));
+      }
+    }
+    Collections.sort(rolledUp);
+    return rolledUp;
+  }
+
+  /** Keys 0-5999, of which 5000-5999 have no match, and 10 tuples without a key. */
+  private static TupleStream fullTuples() {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 24000; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", "f" + i);
+      tuple.put("k", (long) (i % 6000));
+      tuples.add(tuple);
+    }
+    for (int i = 0; i < 10; i++) {
+      tuples.add(new Tuple("id", "n" + i));
+    }
+    return new TupleListStream(tuples);
+  }
+
+  /** Two tuples for each of the keys 0-4999. */
+  private static TupleStream hashedTuples() {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("h", "h" + i);
+      tuple.put("k", (long) (i % 5000));
+      tuples.add(tuple);
+    }
+    return new TupleListStream(tuples);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.FieldComparator;
+import org.apache.solr.client.solrj.io.comp.MultipleFieldComparator;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.junit.Test;
+
+/** Tests that the sort stream returns the same tuples when it spills sorted runs to disk. */
+public class SortStreamSpillTest extends SolrTestCase {
+
+  @Test
+  public void testSpillingSort() throws IOException {
+    StreamComparator comp =
+        new MultipleFieldComparator(
+            new FieldComparator("k", ComparatorOrder.DESCENDING),
+            new FieldComparator("id", ComparatorOrder.ASCENDING));
+    SortStream unlimited = new SortStream(keyedTuples(), comp);
+    List<String> expected = sort(unlimited);
+    assertEquals(20010, expected.size());
+    assertEquals(0, unlimited.getSpilledRuns());
+    assertEquals(0, unlimited.getSpilledBytes());
+
+    SortStream spilling = new SortStream(keyedTuples(), comp);
+    spilling.setMaxMemoryMB(1);
+    assertEquals(expected, sort(spilling));
+    assertTrue(spilling.getSpilledRuns() > 1);
+    assertTrue(spilling.getSpilledBytes() > 0);
+  }
+
+  @Test
+  public void testMultipleMergePasses() throws IOException {
+    int size = 600000;
+    SortStream stream =
+        new SortStream(
+            new GeneratedStream(size), new FieldComparator("v", ComparatorOrder.ASCENDING));
+    stream.setMaxMemoryMB(1);
+
+    long expected = 0;
+    try (stream) {
+      stream.open();
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        assertEquals(expected++, (long) tuple.getLong("v"));
+      }
+    }
+    assertEquals(size, expected);
+    assertTrue(stream.getSpilledRuns() > 64);
+  }
+
+  private static List<String> sort(TupleStream stream) throws IOException {
+    List<String> sorted = new ArrayList<>();
+    try (stream) {
+      stream.open();
+      for (Tuple tuple = stream.read(); !tuple.EOF; tuple = stream.read()) {
+        sorted.add(tuple.getString("k") + ":" + tuple.getString("id"));
+      }
+    }
+    return sorted;
+  }
+
+  /** Keys 0-999 in no particular order, with many ties, and 10 tuples without a key. */
+  private static TupleStream keyedTuples() {
+    List<Tuple> tuples = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      Tuple tuple = new Tuple();
+      tuple.put("id", "t" + i);
+      tuple.put("k", (i * 7919L) % 1000);
+      tuples.add(tuple);
+    }
+    for (int i = 0; i < 10; i++) {
+      tuples.add(new Tuple("id", "n" + i));
+    }
+    return new TupleListStream(tuples);
+  }
+
+  /** Values 0 to size - 1 in no particular order, generated as they are read. */
+  private static class GeneratedStream extends TupleStream {
+    private final int size;
+    private int next;
+
+    GeneratedStream(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public void setStreamContext(StreamContext context) {}
+
+    @Override
+    public List<TupleStream> children() {
+      return new ArrayList<>();
+    }
+
+    @Override
+    public void open() {
+      next = 0;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public Tuple read() {
+      if (next == size) {
+        return Tuple.EOF();
+      }
+      // 7919 is prime and doesn't divide size, so this visits every value once
+      return new Tuple("v", (next++ * 7919L) % size);
+    }
+
+    @Override
+    public StreamComparator getStreamSort() {
+      return null;
+    }
+
+    @Override
+    public Explanation toExplanation(StreamFactory factory) {
+      return null;
+    }
+  }
+}
@@ -31,6 +31,8 @@ import java.util.Set;
 import org.apache.lucene.tests.util.LuceneTestCase;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.impl.ZkClientClusterStateProvider;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
@@ -51,6 +53,7 @@ import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.client.solrj.routing.RequestReplicaListTransformerGenerator;
 import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.Slice;
@@ -364,6 +367,45 @@ public class StreamingTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testRankStreamPushesTopKToShards() throws Exception {
+
+    new UpdateRequest()
+        .add(id, "0", "a_s", "hello0", "a_i", "0", "a_f", "0")
+        .add(id, "2", "a_s", "hello2", "a_i", "2", "a_f", "0")
+        .add(id, "3", "a_s", "hello3", "a_i", "3", "a_f", "3")
+        .add(id, "4", "a_s", "hello4", "a_i", "4", "a_f", "4")
+        .add(id, "1", "a_s", "hello1", "a_i", "1", "a_f", "1")
+        .commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    try {
+      SolrParams sParams =
+          params("q", "*:*", "fl", "id,a_s,a_i", "sort", "a_i desc,a_s asc", "qt", "/export");
+      CloudSolrStream stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+      RankStream rstream =
+          new RankStream(stream, 3, new FieldComparator("a_i", ComparatorOrder.DESCENDING));
+      assertEquals(3, stream.topK);
+      rstream.setStreamContext(streamContext);
+      List<Tuple> tuples = getTuples(rstream);
+      assertEquals(3, tuples.size());
+      assertOrder(tuples, 4, 3, 2);
+
+      // Ranking against the stream sort can't be pushed down
+      stream = new CloudSolrStream(zkHost, COLLECTIONORALIAS, sParams);
+      rstream = new RankStream(stream, 3, new FieldComparator("a_i", ComparatorOrder.ASCENDING));
+      assertEquals(0, stream.topK);
+      rstream.setStreamContext(streamContext);
+      tuples = getTuples(rstream);
+      assertEquals(3, tuples.size());
+      assertOrder(tuples, 0, 1, 2);
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
   @Test
   public void testParallelRankStream() throws Exception {
 
@@ -504,6 +546,20 @@ public class StreamingTest extends SolrCloudTestCase {
     }
   }
 
+  @Test
+  public void testNodeClientCacheSharesClusterState() throws Exception {
+    JettySolrRunner jetty = cluster.getJettySolrRunner(0);
+    ZkController zkController = jetty.getCoreContainer().getZkController();
+    CloudSolrClient client =
+        jetty
+            .getCoreContainer()
+            .getSolrClientCache()
+            .getCloudSolrClient(zkController.getZkServerAddress());
+    assertSame(
+        zkController.getZkStateReader(),
+        ((ZkClientClusterStateProvider) client.getClusterStateProvider()).getZkStateReader());
+  }
+
   @Test
   public void testZeroReducerStream() throws Exception {
 
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.util.List;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Explanation;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+
+/** A stream of the tuples of a list, for testing decorators without a cluster. */
+public class TupleListStream extends TupleStream {
+
+  private final List<Tuple> tuples;
+  private int index;
+
+  public TupleListStream(List<Tuple> tuples) {
+    this.tuples = tuples;
+  }
+
+  @Override
+  public void setStreamContext(StreamContext context) {}
+
+  @Override
+  public List<TupleStream> children() {
+    return List.of();
+  }
+
+  @Override
+  public void open() {
+    index = 0;
+  }
+
+  @Override
+  public void close() {}
+
+  @Override
+  public Tuple read() {
+    return index < tuples.size() ? tuples.get(index++) : Tuple.EOF();
+  }
+
+  @Override
+  public StreamComparator getStreamSort() {
+    return null;
+  }
+
+  @Override
+  public Explanation toExplanation(StreamFactory factory) {
+    throw new UnsupportedOperationException();
+  }
+}
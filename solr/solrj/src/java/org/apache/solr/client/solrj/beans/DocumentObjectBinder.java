@@ -38,6 +38,7 @@ import java.util.regex.Pattern;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
 import org.apache.solr.common.util.SuppressForbidden;
 
 /**
@@ -438,7 +439,8 @@ public class DocumentObjectBinder {
     }
 
     <T> void inject(T obj, SolrDocument sdoc) {
-      Object val = getFieldValue(sdoc);
+      // string values may have been read as Utf8CharSequence, see BinaryResponseParser
+      Object val = ByteArrayUtf8CharSequence.convertCharSeq(getFieldValue(sdoc));
       if (val == null) {
         return;
       }
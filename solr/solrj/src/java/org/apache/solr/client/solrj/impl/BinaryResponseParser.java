@@ -22,7 +22,10 @@ import java.io.Reader;
 import java.util.Collection;
 import java.util.Set;
 import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
+import org.apache.solr.common.util.DataInputInputStream;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
 
@@ -34,12 +37,25 @@ public class BinaryResponseParser extends ResponseParser {
   public static final String BINARY_CONTENT_TYPE = "application/octet-stream";
 
   protected JavaBinCodec.StringCache stringCache;
+  protected boolean readDocumentStringsAsUtf8;
 
   public BinaryResponseParser setStringCache(JavaBinCodec.StringCache cache) {
     this.stringCache = cache;
     return this;
   }
 
+  /**
+   * If true, the string values of the documents in responses are not decoded into {@link String}s
+   * but read as {@link ByteArrayUtf8CharSequence}s over their UTF-8 bytes, which are only decoded,
+   * once, when {@code toString()} is called. This saves memory and decoding time when paging
+   * through large results, but callers must handle these values as {@link CharSequence}s instead of
+   * casting them to String. Field names and the rest of the response are still read as Strings.
+   */
+  public BinaryResponseParser setReadDocumentStringsAsUtf8(boolean flag) {
+    this.readDocumentStringsAsUtf8 = flag;
+    return this;
+  }
+
   @Override
   public String getWriterType() {
     return "javabin";
@@ -56,6 +72,20 @@ public class BinaryResponseParser extends ResponseParser {
   }
 
   protected JavaBinCodec createCodec() {
+    if (readDocumentStringsAsUtf8) {
+      return new JavaBinCodec(null, stringCache) {
+        @Override
+        public SolrDocument readSolrDocument(DataInputInputStream dis) throws IOException {
+          boolean wasReadingStringAsCharSeq = readStringAsCharSeq;
+          readStringAsCharSeq = true;
+          try {
+            return super.readSolrDocument(dis);
+          } finally {
+            readStringAsCharSeq = wasReadingStringAsCharSeq;
+          }
+        }
+      };
+    }
     return new JavaBinCodec(null, stringCache);
   }
 
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import static org.apache.solr.common.params.CommonParams.ID;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.ImplicitDocRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.IOUtils;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A SolrCloud aware variant of {@link ConcurrentUpdateHttp2SolrClient}: the documents and deletes
+ * by id of each update request are split with the collection's {@link DocRouter}, and each part is
+ * queued to a {@link ConcurrentUpdateHttp2SolrClient} streaming directly to the core of the leader
+ * of its shard, saving the hop through a replica forwarding it to the leader. Each leader has its
+ * own bounded queue, so callers only block on the leaders that can't keep up.
+ *
+ * <p>Routing uses the collection state known by the {@link CloudHttp2SolrClient}, so updates go to
+ * a new leader as soon as that client knows about it. Updates already queued for the former leader
+ * are still sent to it, which forwards them to the new leader if it is still live, after which its
+ * client is closed. As with {@link
+ * ConcurrentUpdateHttp2SolrClient}, errors are reported asynchronously to {@link
+ * #handleError(Throwable)}.
+ *
+ * <p>Requests that can't be routed, such as commits, deletes by query, documents without id or
+ * updates to routed aliases, are sent through the {@link CloudHttp2SolrClient} once all the queued
+ * updates have been sent. Other requests are sent through it right away.
+ *
+ * @lucene.experimental
+ */
+public class CloudConcurrentUpdateHttp2SolrClient extends SolrClient {
+  private static final long serialVersionUID = 1L;
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final CloudHttp2SolrClient cloudClient;
+  private final boolean closeCloudClient;
+  private final int queueSize;
+  private final int threadCount;
+  private final long pollQueueTimeMillis;
+  private final ExecutorService scheduler;
+  private final boolean shutdownExecutor;
+  private final Map<String, ConcurrentUpdateHttp2SolrClient> leaderClients =
+      new ConcurrentHashMap<>();
+  // the leader core urls of each collection when its updates were last routed
+  private final Map<String, Set<String>> collectionLeaders = new ConcurrentHashMap<>();
+  // clients of former leaders, until their queued updates are sent
+  private final Set<ConcurrentUpdateHttp2SolrClient> formerLeaderClients =
+      ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  protected CloudConcurrentUpdateHttp2SolrClient(Builder builder) {
+    this.cloudClient = builder.cloudClient;
+    this.closeCloudClient = builder.closeCloudClient;
+    this.queueSize = builder.queueSize;
+    this.threadCount = builder.threadCount;
+    this.pollQueueTimeMillis = builder.pollQueueTimeMillis;
+    if (builder.executorService != null) {
+      this.scheduler = builder.executorService;
+      this.shutdownExecutor = false;
+    } else {
+      this.scheduler =
+          ExecutorUtil.newMDCAwareCachedThreadPool(
+              new SolrNamedThreadFactory("cloudConcurrentUpdateScheduler"));
+      this.shutdownExecutor = true;
+    }
+  }
+
+  @Override
+  public NamedList<Object> request(final SolrRequest<?> request, String collection)
+      throws SolrServerException, IOException {
+    if (collection == null) {
+      collection = cloudClient.getDefaultCollection();
+    }
+    if (!(request instanceof UpdateRequest)) {
+      return cloudClient.request(request, collection);
+    }
+    if (closed) {
+      throw new IllegalStateException("This client is closed");
+    }
+
+    UpdateRequest req = (UpdateRequest) request;
+    Map<String, LBSolrClient.Req> routes = collection == null ? null : route(req, collection);
+    if (routes == null) {
+      blockUntilFinished();
+      return cloudClient.request(request, collection);
+    }
+
+    for (Map.Entry<String, LBSolrClient.Req> entry : routes.entrySet()) {
+      getLeaderClient(entry.getKey()).request(entry.getValue().getRequest(), null);
+    }
+
+    // RETURN A DUMMY result
+    NamedList<Object> dummy = new NamedList<>();
+    dummy.add("NOTE", "the request is processed in a background stream");
+    return dummy;
+  }
+
+  /**
+   * Splits the request by shard leader core url, or returns null if it can't be streamed to the
+   * leaders.
+   */
+  private Map<String, LBSolrClient.Req> route(UpdateRequest req, String collection) {
+    if (req.getDeleteQuery() != null && !req.getDeleteQuery().isEmpty()) {
+      return null;
+    }
+    SolrParams params = req.getParams();
+    if (params != null
+        && (params.getBool(UpdateParams.COMMIT, false)
+            || params.getBool(UpdateParams.OPTIMIZE, false)
+            || params.getBool(UpdateParams.ROLLBACK, false)
+            || params.getBool(UpdateParams.PREPARE_COMMIT, false)
+            || params.getBool(UpdateParams.WAIT_SEARCHER, false))) {
+      return null;
+    }
+
+    ClusterStateProvider stateProvider = cloudClient.getClusterStateProvider();
+    List<String> collections = stateProvider.resolveAlias(collection);
+    if (stateProvider.isRoutedAlias(collection) || collections.size() != 1) {
+      return null;
+    }
+    DocCollection col;
+    try {
+      col = cloudClient.getDocCollection(collections.get(0), null);
+    } catch (Exception e) {
+      log.warn("Could not get the state of collection {}, not streaming updates", collection, e);
+      return null;
+    }
+    if (col == null || col.getRouter() instanceof ImplicitDocRouter) {
+      return null;
+    }
+    DocRouter router = col.getRouter();
+
+    Map<String, List<String>> urlMap = new HashMap<>();
+    for (Slice slice : col.getActiveSlicesArr()) {
+      Replica leader = slice.getLeader();
+      if (leader == null || !leader.isActive(stateProvider.getLiveNodes())) {
+        return null;
+      }
+      urlMap.put(slice.getName(), List.of(leader.getCoreUrl()));
+    }
+    Set<String> leaders = new HashSet<>();
+    for (List<String> urls : urlMap.values()) {
+      leaders.addAll(urls);
+    }
+    Set<String> formerLeaders = collectionLeaders.put(col.getName(), leaders);
+    if (formerLeaders != null) {
+      for (String url : formerLeaders) {
+        if (!leaders.contains(url)) {
+          evictLeaderClient(url);
+        }
+      }
+    }
+    String routeField = router.getRouteField(col) == null ? ID : router.getRouteField(col);
+    return req.getRoutesToCollection(
+        router, col, urlMap, new ModifiableSolrParams(params), routeField);
+  }
+
+  private ConcurrentUpdateHttp2SolrClient getLeaderClient(String leaderCoreUrl) {
+    return leaderClients.computeIfAbsent(
+        leaderCoreUrl,
+        url ->
+            new LeaderClient(
+                new ConcurrentUpdateHttp2SolrClient.Builder(url, cloudClient.getHttpClient())
+                    .withQueueSize(queueSize)
+                    .withThreadCount(threadCount)
+                    .withExecutorService(scheduler)
+                    .setPollQueueTime(pollQueueTimeMillis, TimeUnit.MILLISECONDS)
+                    .alwaysStreamDeletes()));
+  }
+
+  /**
+   * Closes the client of a core that is no longer a shard leader once its queued updates are sent,
+   * so that clients don't accumulate as leadership moves.
+   */
+  private void evictLeaderClient(String coreUrl) {
+    ConcurrentUpdateHttp2SolrClient client = leaderClients.remove(coreUrl);
+    if (client == null) {
+      return;
+    }
+    log.debug("{} is no longer a shard leader, closing its client", coreUrl);
+    formerLeaderClients.add(client);
+    scheduler.execute(
+        () -> {
+          try {
+            client.blockUntilFinished();
+          } catch (IOException e) {
+            handleError(e);
+          } finally {
+            IOUtils.closeQuietly(client);
+            formerLeaderClients.remove(client);
+          }
+        });
+  }
+
+  /** The core urls of the shard leaders that updates are currently streamed to. */
+  Set<String> getLeaderCoreUrls() {
+    return leaderClients.keySet();
+  }
+
+  /** Blocks until all the updates queued so far have been sent to the shard leaders. */
+  public void blockUntilFinished() throws IOException {
+    for (ConcurrentUpdateHttp2SolrClient client : formerLeaderClients) {
+      client.blockUntilFinished();
+    }
+    for (ConcurrentUpdateHttp2SolrClient client : leaderClients.values()) {
+      client.blockUntilFinished();
+    }
+  }
+
+  /** Called for any error sending updates to a shard leader, logs it by default. */
+  public void handleError(Throwable ex) {
+    log.error("error", ex);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      for (ConcurrentUpdateHttp2SolrClient client : leaderClients.values()) {
+        IOUtils.closeQuietly(client);
+      }
+      for (ConcurrentUpdateHttp2SolrClient client : formerLeaderClients) {
+        IOUtils.closeQuietly(client);
+      }
+      if (shutdownExecutor) {
+        ExecutorUtil.shutdownAndAwaitTermination(scheduler);
+      }
+    } finally {
+      if (closeCloudClient) {
+        IOUtils.closeQuietly(cloudClient);
+      }
+    }
+  }
+
+  /** Streams to one shard leader, reporting errors to the enclosing client. */
+  private class LeaderClient extends ConcurrentUpdateHttp2SolrClient {
+    private static final long serialVersionUID = 1L;
+
+    LeaderClient(ConcurrentUpdateHttp2SolrClient.Builder builder) {
+      super(builder);
+    }
+
+    @Override
+    public void handleError(Throwable ex) {
+      CloudConcurrentUpdateHttp2SolrClient.this.handleError(ex);
+    }
+  }
+
+  /** Constructs {@link CloudConcurrentUpdateHttp2SolrClient} instances. */
+  public static class Builder {
+    protected CloudHttp2SolrClient cloudClient;
+    protected boolean closeCloudClient;
+    protected int queueSize = 10;
+    protected int threadCount = 1;
+    protected ExecutorService executorService;
+    protected long pollQueueTimeMillis;
+
+    public Builder(CloudHttp2SolrClient cloudClient) {
+      this(cloudClient, false);
+    }
+
+    public Builder(CloudHttp2SolrClient cloudClient, boolean closeCloudClient) {
+      this.cloudClient = cloudClient;
+      this.closeCloudClient = closeCloudClient;
+    }
+
+    /**
+     * The maximum number of requests buffered for each shard leader before being streamed to it by
+     * background threads. Defaults to 10.
+     *
+     * @see ConcurrentUpdateHttp2SolrClient.Builder#withQueueSize(int)
+     */
+    public Builder withQueueSize(int queueSize) {
+      if (queueSize <= 0) {
+        throw new IllegalArgumentException("queueSize must be a positive integer.");
+      }
+      this.queueSize = queueSize;
+      return this;
+    }
+
+    /**
+     * The maximum number of threads streaming updates to each shard leader. Defaults to 1.
+     *
+     * @see ConcurrentUpdateHttp2SolrClient.Builder#withThreadCount(int)
+     */
+    public Builder withThreadCount(int threadCount) {
+      if (threadCount <= 0) {
+        throw new IllegalArgumentException("threadCount must be a positive integer.");
+      }
+      this.threadCount = threadCount;
+      return this;
+    }
+
+    /** Provides the {@link ExecutorService} running the threads streaming to shard leaders. */
+    public Builder withExecutorService(ExecutorService executorService) {
+      this.executorService = executorService;
+      return this;
+    }
+
+    /**
+     * @param pollQueueTime time for an open connection to wait for updates when the queue is empty.
+     */
+    public Builder setPollQueueTime(long pollQueueTime, TimeUnit unit) {
+      this.pollQueueTimeMillis = TimeUnit.MILLISECONDS.convert(pollQueueTime, unit);
+      return this;
+    }
+
+    public CloudConcurrentUpdateHttp2SolrClient build() {
+      if (cloudClient == null) {
+        throw new IllegalArgumentException("A CloudHttp2SolrClient is required");
+      }
+      return new CloudConcurrentUpdateHttp2SolrClient(this);
+    }
+  }
+}
@@ -20,14 +20,20 @@ package org.apache.solr.client.solrj.impl;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import org.apache.solr.client.solrj.ResponseParser;
+import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.impl.SolrZkClientTimeout.SolrZkClientTimeoutAware;
+import org.apache.solr.client.solrj.request.IsUpdateRequest;
 import org.apache.solr.client.solrj.request.RequestWriter;
 import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.StrUtils;
 
 /**
  * SolrJ client class to communicate with SolrCloud using Http2SolrClient. Instances of this class
@@ -98,6 +104,68 @@ public class CloudHttp2SolrClient extends CloudSolrClient {
     super.close();
   }
 
+  /**
+   * Sends a request without blocking on the response. The urls to send it to are resolved from the
+   * cached cluster state, which may still have to be fetched by the calling thread, and the request
+   * is then sent to them in turn by {@link LBHttp2SolrClient#requestAsync}.
+   *
+   * <p>Unlike {@link #request(SolrRequest, String)}, updates aren't split by shard and sent to each
+   * shard leader but sent whole, to a leader first, and requests aren't retried when the cached
+   * state of a collection turns out to be stale; that state is evicted from the cache instead, so
+   * that the next request uses fresh state.
+   *
+   * @return a future completed with the response, or exceptionally with the failure of the
+   *     request. Cancelling it aborts the request.
+   */
+  public CompletableFuture<NamedList<Object>> requestAsync(
+      SolrRequest<?> request, String collection) {
+    // the collection parameter of the request overrides that of the parameter to this method
+    String requestCollection = request.getCollection();
+    if (requestCollection != null) {
+      collection = requestCollection;
+    } else if (collection == null) {
+      collection = defaultCollection;
+    }
+    List<String> inputCollections =
+        collection == null ? Collections.emptyList() : StrUtils.splitSmart(collection, ",", true);
+
+    CompletableFuture<LBSolrClient.Rsp> rspFuture;
+    try {
+      connect();
+      boolean sendToLeaders =
+          request instanceof IsUpdateRequest
+              && ((IsUpdateRequest) request).isSendToLeaders()
+              && isUpdatesToLeaders();
+      List<String> urls = resolveRequestUrls(request, inputCollections, sendToLeaders);
+      rspFuture = lbClient.requestAsync(new LBSolrClient.Req(request, urls));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+    rspFuture.whenComplete(
+        (rsp, t) -> {
+          if (t == null) {
+            future.complete(rsp.getResponse());
+          } else {
+            collectionStateCache.keySet().removeAll(inputCollections);
+            future.completeExceptionally(t);
+          }
+        });
+    future.whenComplete(
+        (rsp, t) -> {
+          if (future.isCancelled()) {
+            rspFuture.cancel(true);
+          }
+        });
+    return future;
+  }
+
+  /** Sends a request without blocking, see {@link #requestAsync(SolrRequest, String)}. */
+  public CompletableFuture<NamedList<Object>> requestAsync(SolrRequest<?> request) {
+    return requestAsync(request, null);
+  }
+
   @Override
   public LBHttp2SolrClient getLbClient() {
     return lbClient;
@@ -1012,6 +1012,19 @@ public abstract class CloudSolrClient extends SolrClient {
       }
     }
 
+    List<String> theUrlList = resolveRequestUrls(request, inputCollections, sendToLeaders);
+    LBSolrClient.Req req = new LBSolrClient.Req(request, theUrlList);
+    LBSolrClient.Rsp rsp = getLbClient().request(req);
+    return rsp.getResponse();
+  }
+
+  /**
+   * Lists the urls a request can be sent to, in order of preference: a live node for V2 and admin
+   * requests, the preferred nodes of the request if any, otherwise the active replicas of the
+   * collections, shard leaders first if {@code sendToLeaders}.
+   */
+  protected List<String> resolveRequestUrls(
+      SolrRequest<?> request, List<String> inputCollections, boolean sendToLeaders) {
     SolrParams reqParams = request.getParams();
     if (reqParams == null) { // TODO fix getParams to never return null!
       reqParams = new ModifiableSolrParams();
@@ -1056,9 +1069,7 @@ public abstract class CloudSolrClient extends SolrClient {
               Utils.getBaseUrlForNodeName(nodeName, urlScheme) + "/" + joinedInputCollections);
         }
         if (!urlList.isEmpty()) {
-          LBSolrClient.Req req = new LBSolrClient.Req(request, urlList);
-          LBSolrClient.Rsp rsp = getLbClient().request(req);
-          return rsp.getResponse();
+          return urlList;
         }
       }
 
@@ -1131,10 +1142,7 @@ public abstract class CloudSolrClient extends SolrClient {
             "Could not find a healthy node to handle the request.");
       }
     }
-
-    LBSolrClient.Req req = new LBSolrClient.Req(request, theUrlList);
-    LBSolrClient.Rsp rsp = getLbClient().request(req);
-    return rsp.getResponse();
+    return theUrlList;
   }
 
   /**
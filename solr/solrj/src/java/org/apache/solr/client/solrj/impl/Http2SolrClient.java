@@ -42,6 +42,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Phaser;
@@ -153,6 +154,8 @@ public class Http2SolrClient extends SolrClient {
   private final boolean closeClient;
   private ExecutorService executor;
   private boolean shutdownExecutor;
+  // parses responses of async requests, if null the executor is used
+  private final ExecutorService responseExecutor;
 
   final String basicAuthAuthorizationStr;
   private AuthenticationStoreHolder authenticationStore;
@@ -180,6 +183,7 @@ public class Http2SolrClient extends SolrClient {
       this.httpClient = createHttpClient(builder);
       this.closeClient = true;
     }
+    this.responseExecutor = builder.responseExecutor;
     this.basicAuthAuthorizationStr = builder.basicAuthAuthorizationStr;
     if (builder.requestWriter != null) {
       this.requestWriter = builder.requestWriter;
@@ -474,7 +478,7 @@ public class Http2SolrClient extends SolrClient {
             @Override
             public void onHeaders(Response response) {
               super.onHeaders(response);
-              executor.execute(
+              (responseExecutor != null ? responseExecutor : executor).execute(
                   () -> {
                     InputStream is = getInputStream();
                     try {
@@ -517,6 +521,45 @@ public class Http2SolrClient extends SolrClient {
     return () -> req.abort(CANCELLED_EXCEPTION);
   }
 
+  /**
+   * Sends a request without blocking, like {@link #asyncRequest(SolrRequest, String,
+   * AsyncListener)}.
+   *
+   * @return a future completed with the parsed response, or exceptionally with the failure of the
+   *     request. Cancelling it aborts the request.
+   */
+  public CompletableFuture<NamedList<Object>> requestAsync(
+      SolrRequest<?> solrRequest, String collection) {
+    CompletableFuture<NamedList<Object>> future = new CompletableFuture<>();
+    Cancellable cancellable =
+        asyncRequest(
+            solrRequest,
+            collection,
+            new AsyncListener<>() {
+              @Override
+              public void onSuccess(NamedList<Object> rsp) {
+                future.complete(rsp);
+              }
+
+              @Override
+              public void onFailure(Throwable throwable) {
+                future.completeExceptionally(throwable);
+              }
+            });
+    future.whenComplete(
+        (rsp, t) -> {
+          if (future.isCancelled()) {
+            cancellable.cancel();
+          }
+        });
+    return future;
+  }
+
+  /** Sends a request without blocking, see {@link #requestAsync(SolrRequest, String)}. */
+  public CompletableFuture<NamedList<Object>> requestAsync(SolrRequest<?> solrRequest) {
+    return requestAsync(solrRequest, null);
+  }
+
   @Override
   public NamedList<Object> request(SolrRequest<?> solrRequest, String collection)
       throws SolrServerException, IOException {
@@ -1034,6 +1077,7 @@ public class Http2SolrClient extends SolrClient {
     private Boolean followRedirects;
     protected String baseSolrUrl;
     private ExecutorService executor;
+    private ExecutorService responseExecutor;
     protected RequestWriter requestWriter;
     protected ResponseParser responseParser;
     private Set<String> urlParamNames;
@@ -1158,6 +1202,16 @@ public class Http2SolrClient extends SolrClient {
       return this;
     }
 
+    /**
+     * Executor used to read and parse the responses of asynchronous requests, which blocks until
+     * the response body has been received. Defaults to the executor of the underlying HTTP client;
+     * it is not shut down when the client is closed.
+     */
+    public Builder withResponseExecutor(ExecutorService responseExecutor) {
+      this.responseExecutor = responseExecutor;
+      return this;
+    }
+
     public Builder withSSLConfig(SSLConfig sslConfig) {
       this.sslConfig = sslConfig;
       return this;
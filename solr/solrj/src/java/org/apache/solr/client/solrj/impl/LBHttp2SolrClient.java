@@ -25,6 +25,7 @@ import java.net.SocketTimeoutException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -177,6 +178,38 @@ public class LBHttp2SolrClient extends LBSolrClient {
     };
   }
 
+  /**
+   * Sends a request without blocking, trying the servers of the request in turn like {@link
+   * #asyncReq(Req, AsyncListener)}.
+   *
+   * @return a future completed with the response of the first server that succeeded, or
+   *     exceptionally once no server is left to try. Cancelling it aborts the current attempt.
+   */
+  public CompletableFuture<Rsp> requestAsync(Req req) {
+    CompletableFuture<Rsp> future = new CompletableFuture<>();
+    Cancellable cancellable =
+        asyncReq(
+            req,
+            new AsyncListener<>() {
+              @Override
+              public void onSuccess(Rsp rsp) {
+                future.complete(rsp);
+              }
+
+              @Override
+              public void onFailure(Throwable throwable) {
+                future.completeExceptionally(throwable);
+              }
+            });
+    future.whenComplete(
+        (rsp, t) -> {
+          if (future.isCancelled()) {
+            cancellable.cancel();
+          }
+        });
+    return future;
+  }
+
   private interface RetryListener {
     void onSuccess(Rsp rsp);
 
@@ -18,6 +18,7 @@ package org.apache.solr.common.util;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -44,6 +45,16 @@ public class ExecutorUtil {
 
   static final ThreadLocal<Throwable> submitter = new ThreadLocal<>();
 
+  /**
+   * System property that, when true, makes Solr run request handling and the executors that block
+   * on remote I/O (shard requests, update distribution) on virtual threads. Ignored with a warning
+   * if the JVM doesn't support virtual threads.
+   */
+  public static final String VIRTUAL_THREADS_PROP = "solr.virtualThreads.enabled";
+
+  // Thread.ofVirtual() is only available from Java 21, so it's looked up reflectively
+  private static final Method OF_VIRTUAL = findOfVirtual();
+
   private static volatile List<InheritableThreadLocalProvider> providers = new ArrayList<>();
 
   /**
@@ -173,6 +184,89 @@ public class ExecutorUtil {
         0, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(maxThreads), threadFactory);
   }
 
+  /** Whether this JVM can create virtual threads. */
+  public static boolean isVirtualThreadsSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Whether virtual threads were requested with {@link #VIRTUAL_THREADS_PROP} and are supported by
+   * this JVM. The property is read once, when this is first called.
+   */
+  public static boolean useVirtualThreads() {
+    return VirtualThreads.ENABLED;
+  }
+
+  /** Whether to use virtual threads if they're requested, warning if this JVM can't. */
+  static boolean useVirtualThreads(boolean requested) {
+    if (!requested) {
+      return false;
+    }
+    if (!isVirtualThreadsSupported()) {
+      log.warn(
+          "{} is set but this JVM ({}) doesn't support virtual threads, using platform threads",
+          VIRTUAL_THREADS_PROP,
+          Runtime.version());
+      return false;
+    }
+    return true;
+  }
+
+  private static class VirtualThreads {
+    static final boolean ENABLED = useVirtualThreads(Boolean.getBoolean(VIRTUAL_THREADS_PROP));
+  }
+
+  /**
+   * Creates a factory of virtual threads named {@code <name>-<n>}.
+   *
+   * @throws UnsupportedOperationException if this JVM doesn't support virtual threads
+   */
+  public static ThreadFactory newVirtualThreadFactory(String name) {
+    if (OF_VIRTUAL == null) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = OF_VIRTUAL.invoke(null);
+      builder =
+          builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Unable to create virtual thread factory", e);
+    }
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task. Unlike {@code
+   * Executors.newVirtualThreadPerTaskExecutor()} it propagates MDC and thread local context like
+   * the other executors created here. Submitter stack traces aren't collected, so tasks should
+   * handle their own failures.
+   *
+   * @throws UnsupportedOperationException if this JVM doesn't support virtual threads
+   */
+  public static ExecutorService newMDCAwareVirtualThreadPerTaskExecutor(String name) {
+    // no core threads and no keep alive: every worker exits as soon as its task is done
+    return new MDCAwareThreadPoolExecutor(
+        0,
+        Integer.MAX_VALUE,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new SynchronousQueue<>(),
+        newVirtualThreadFactory(name),
+        false);
+  }
+
+  private static Method findOfVirtual() {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      // preview releases expose the method but refuse to run it
+      ofVirtual.invoke(null);
+      return ofVirtual;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
   @SuppressForbidden(reason = "class customizes ThreadPoolExecutor so it can be used instead")
   public static class MDCAwareThreadPoolExecutor extends ThreadPoolExecutor {
 
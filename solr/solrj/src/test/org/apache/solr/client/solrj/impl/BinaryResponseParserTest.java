@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.client.solrj.beans.DocumentObjectBinder;
+import org.apache.solr.client.solrj.beans.Field;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.common.util.Utf8CharSequence;
+import org.junit.Test;
+
+public class BinaryResponseParserTest extends SolrTestCase {
+
+  @Test
+  public void testReadDocumentStringsAsUtf8() throws Exception {
+    NamedList<Object> rsp = parse(new BinaryResponseParser().setReadDocumentStringsAsUtf8(true));
+
+    NamedList<?> header = (NamedList<?>) rsp.get("responseHeader");
+    assertEquals("title:solr", header.get("q"));
+    assertTrue(header.get("q") instanceof String);
+
+    SolrDocumentList docs = (SolrDocumentList) rsp.get("response");
+    assertEquals(2, docs.size());
+    SolrDocument doc = docs.get(0);
+    assertTrue(doc.getFieldValue("id") instanceof Utf8CharSequence);
+    assertEquals("1", doc.getFieldValue("id").toString());
+    assertEquals("Apache Solr", doc.getFieldValue("title").toString());
+    assertEquals(42, doc.getFieldValue("count"));
+    List<?> cats = (List<?>) doc.getFieldValue("cat");
+    assertTrue(cats.get(0) instanceof Utf8CharSequence);
+    assertEquals("search", cats.get(0).toString());
+    assertEquals("java", cats.get(1).toString());
+
+    SolrDocument child = doc.getChildDocuments().get(0);
+    assertTrue(child.getFieldValue("id") instanceof Utf8CharSequence);
+    assertEquals("1.1", child.getFieldValue("id").toString());
+
+    List<Item> items = new DocumentObjectBinder().getBeans(Item.class, docs);
+    assertEquals("1", items.get(0).id);
+    assertEquals(Arrays.asList("search", "java"), items.get(0).cat);
+    assertEquals("2", items.get(1).id);
+  }
+
+  @Test
+  public void testDocumentStringsAreStringsByDefault() throws Exception {
+    NamedList<Object> rsp = parse(new BinaryResponseParser());
+    SolrDocument doc = ((SolrDocumentList) rsp.get("response")).get(0);
+    assertEquals("1", doc.getFieldValue("id"));
+    assertEquals("1.1", doc.getChildDocuments().get(0).getFieldValue("id"));
+  }
+
+  private NamedList<Object> parse(BinaryResponseParser parser) throws Exception {
+    SolrDocument doc1 = new SolrDocument();
+    doc1.addField("id", "1");
+    doc1.addField("title", "Apache Solr");
+    doc1.addField("count", 42);
+    doc1.addField("cat", Arrays.asList("search", "java"));
+    SolrDocument child = new SolrDocument();
+    child.addField("id", "1.1");
+    doc1.addChildDocument(child);
+    SolrDocument doc2 = new SolrDocument();
+    doc2.addField("id", "2");
+
+    SolrDocumentList docs = new SolrDocumentList();
+    docs.setNumFound(2);
+    docs.add(doc1);
+    docs.add(doc2);
+    NamedList<Object> header = new SimpleOrderedMap<>();
+    header.add("q", "title:solr");
+    NamedList<Object> response = new NamedList<>();
+    response.add("responseHeader", header);
+    response.add("response", docs);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (JavaBinCodec codec = new JavaBinCodec()) {
+      codec.marshal(response, baos);
+    }
+    return parser.processResponse(new ByteArrayInputStream(baos.toByteArray()), null);
+  }
+
+  public static class Item {
+    @Field String id;
+
+    @Field List<String> cat;
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.request.CollectionAdminRequest;
+import org.apache.solr.cloud.SolrCloudTestCase;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.util.TimeOut;
+import org.eclipse.jetty.client.api.Request;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CloudConcurrentUpdateHttp2SolrClientTest extends SolrCloudTestCase {
+
+  private static final String COLLECTION = "cloud_concurrent_update";
+
+  private static CloudHttp2SolrClient cloudClient;
+
+  @BeforeClass
+  public static void setupCluster() throws Exception {
+    configureCluster(2)
+        .addConfig("conf", getFile("solrj/solr/configsets/streaming/conf").toPath())
+        .configure();
+
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 2, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 2, 2);
+
+    cloudClient =
+        new CloudHttp2SolrClient.Builder(
+                Collections.singletonList(cluster.getZkServer().getZkAddress()), Optional.empty())
+            .build();
+  }
+
+  @AfterClass
+  public static void closeClient() throws Exception {
+    if (cloudClient != null) {
+      cloudClient.close();
+      cloudClient = null;
+    }
+  }
+
+  @Test
+  public void testUpdatesAreStreamedToShardLeaders() throws Exception {
+    int numDocs = 500;
+    ErrorCountingClient client =
+        new ErrorCountingClient(
+            new CloudConcurrentUpdateHttp2SolrClient.Builder(cloudClient)
+                .withQueueSize(5)
+                .withThreadCount(2));
+    try (client) {
+      List<SolrInputDocument> batch = new ArrayList<>();
+      for (int i = 0; i < numDocs; i++) {
+        batch.add(new SolrInputDocument("id", Integer.toString(i)));
+        if (batch.size() == 10) {
+          client.add(COLLECTION, batch);
+          batch = new ArrayList<>();
+        }
+      }
+      client.commit(COLLECTION);
+      assertEquals(numDocs, countDocs());
+
+      for (int i = 0; i < 10; i++) {
+        client.deleteById(COLLECTION, Integer.toString(i));
+      }
+      // deletes by query are not streamed, and only sent once all deletes by id are
+      client.deleteByQuery(COLLECTION, "id:10");
+      client.commit(COLLECTION);
+      assertEquals(numDocs - 11, countDocs());
+    }
+    assertEquals(0, client.errors.get());
+
+    // each shard leader received its own documents
+    DocCollection collection = cloudClient.getClusterState().getCollection(COLLECTION);
+    long total = 0;
+    for (Slice slice : collection.getSlices()) {
+      try (SolrClient leaderClient = getHttpSolrClient(slice.getLeader().getCoreUrl())) {
+        long numFound =
+            leaderClient
+                .query(new SolrQuery("*:*").setParam(CommonParams.DISTRIB, false))
+                .getResults()
+                .getNumFound();
+        assertTrue("No documents on shard " + slice.getName(), numFound > 0);
+        total += numFound;
+      }
+    }
+    assertEquals(numDocs - 11, total);
+  }
+
+  @Test
+  public void testUpdatesFollowLeaderChanges() throws Exception {
+    String collectionName = "cloud_concurrent_update_leader_change";
+    CollectionAdminRequest.createCollection(collectionName, "conf", 1, 2)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(collectionName, 1, 2);
+
+    // records the update requests sent through a client of its own
+    Queue<String> updateUrls = new ConcurrentLinkedQueue<>();
+    try (CloudHttp2SolrClient leaderAwareClient =
+        new CloudHttp2SolrClient.Builder(
+                Collections.singletonList(cluster.getZkServer().getZkAddress()), Optional.empty())
+            .withCollectionCacheTtl(1, TimeUnit.SECONDS)
+            .build()) {
+      leaderAwareClient
+          .getHttpClient()
+          .addListenerFactory(
+              () ->
+                  new HttpListenerFactory.RequestResponseListener() {
+                    @Override
+                    public void onQueued(Request request) {
+                      if (request.getPath().endsWith("/update")) {
+                        updateUrls.add(request.getURI().toString());
+                      }
+                    }
+                  });
+      ErrorCountingClient client =
+          new ErrorCountingClient(
+              new CloudConcurrentUpdateHttp2SolrClient.Builder(leaderAwareClient));
+      try (client) {
+        String formerLeader = getLeader(leaderAwareClient, collectionName).getCoreUrl();
+        addDocs(client, collectionName, 0, 50);
+        client.blockUntilFinished();
+        assertUpdatesSentTo(formerLeader, updateUrls);
+        assertEquals(Set.of(formerLeader), client.getLeaderCoreUrls());
+
+        // the other replica takes over once the leader is gone
+        Replica leader = getLeader(leaderAwareClient, collectionName);
+        CollectionAdminRequest.deleteReplica(collectionName, "shard1", leader.getName())
+            .process(cluster.getSolrClient());
+        waitForState(
+            "Waiting for a new leader",
+            collectionName,
+            (liveNodes, collectionState) ->
+                collectionState.getReplicas().size() == 1
+                    && collectionState.getLeader("shard1") != null
+                    && collectionState.getLeader("shard1").isActive(liveNodes));
+        new TimeOut(30, TimeUnit.SECONDS, TimeSource.NANO_TIME)
+            .waitFor(
+                "The client doesn't know about the new leader",
+                () ->
+                    !formerLeader.equals(
+                        getLeader(leaderAwareClient, collectionName).getCoreUrl()));
+        String newLeader = getLeader(leaderAwareClient, collectionName).getCoreUrl();
+
+        updateUrls.clear();
+        addDocs(client, collectionName, 50, 100);
+        client.blockUntilFinished();
+        assertUpdatesSentTo(newLeader, updateUrls);
+        assertEquals(Set.of(newLeader), client.getLeaderCoreUrls());
+
+        client.commit(collectionName);
+      }
+      assertEquals(0, client.errors.get());
+      assertEquals(
+          100,
+          cloudClient
+              .query(collectionName, new SolrQuery("*:*"))
+              .getResults()
+              .getNumFound());
+    } finally {
+      CollectionAdminRequest.deleteCollection(collectionName).process(cluster.getSolrClient());
+    }
+  }
+
+  private static Replica getLeader(CloudHttp2SolrClient client, String collectionName) {
+    return client.getDocCollection(collectionName, null).getLeader("shard1");
+  }
+
+  private static void addDocs(SolrClient client, String collectionName, int from, int to)
+      throws Exception {
+    for (int i = from; i < to; i += 10) {
+      List<SolrInputDocument> batch = new ArrayList<>();
+      for (int j = i; j < Math.min(i + 10, to); j++) {
+        batch.add(new SolrInputDocument("id", Integer.toString(j)));
+      }
+      client.add(collectionName, batch);
+    }
+  }
+
+  private static void assertUpdatesSentTo(String leaderCoreUrl, Queue<String> updateUrls) {
+    assertFalse("No update requests were sent", updateUrls.isEmpty());
+    for (String url : updateUrls) {
+      assertTrue(
+          "Update request " + url + " was not sent to leader " + leaderCoreUrl,
+          url.startsWith(leaderCoreUrl + "/update"));
+    }
+  }
+
+  private static class ErrorCountingClient extends CloudConcurrentUpdateHttp2SolrClient {
+    private static final long serialVersionUID = 1L;
+
+    final AtomicInteger errors = new AtomicInteger();
+
+    ErrorCountingClient(Builder builder) {
+      super(builder);
+    }
+
+    @Override
+    public void handleError(Throwable ex) {
+      errors.incrementAndGet();
+      super.handleError(ex);
+    }
+  }
+
+  private long countDocs() throws Exception {
+    return cloudClient.query(COLLECTION, new SolrQuery("*:*")).getResults().getNumFound();
+  }
+}
@@ -33,6 +33,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -156,6 +157,35 @@ public class CloudHttp2SolrClientTest extends SolrCloudTestCase {
     assertTrue(response.getQTime() >= 0);
   }
 
+  @Test
+  public void testRequestAsync() throws Exception {
+    String COLLECTION = getSaferTestName();
+    CollectionAdminRequest.createCollection(COLLECTION, "conf", 2, 1)
+        .process(cluster.getSolrClient());
+    cluster.waitForActiveCollection(COLLECTION, 2, 2);
+
+    CloudHttp2SolrClient client = (CloudHttp2SolrClient) getRandomClient();
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < 10; i++) {
+      update.add(id, String.valueOf(i), "a_t", "hello" + i);
+    }
+    update.setAction(AbstractUpdateRequest.ACTION.COMMIT, true, true);
+    NamedList<Object> updateRsp =
+        client.requestAsync(update, COLLECTION).get(TIMEOUT, TimeUnit.SECONDS);
+    assertNotNull(updateRsp.get("responseHeader"));
+
+    QueryRequest query = new QueryRequest(new SolrQuery("*:*"));
+    NamedList<Object> queryRsp =
+        client.requestAsync(query, COLLECTION).get(TIMEOUT, TimeUnit.SECONDS);
+    assertEquals(10, ((SolrDocumentList) queryRsp.get("response")).getNumFound());
+
+    ExecutionException e =
+        expectThrows(
+            ExecutionException.class,
+            () -> client.requestAsync(query, "no_such_collection").get(TIMEOUT, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof SolrException);
+  }
+
   @Test
   public void testOverwriteOption() throws Exception {
 
@@ -31,6 +31,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.solr.SolrTestCase;
 import org.apache.solr.util.TimeOut;
 import org.junit.Test;
+import org.slf4j.MDC;
 
 public class ExecutorUtilTest extends SolrTestCase {
 
@@ -221,4 +222,41 @@ public class ExecutorUtilTest extends SolrTestCase {
       ExecutorUtil.shutdownNowAndAwaitTermination(service);
     }
   }
+
+  @Test
+  public void testVirtualThreadPerTaskExecutor() throws Exception {
+    assumeTrue("Virtual threads are not supported", ExecutorUtil.isVirtualThreadsSupported());
+    ExecutorService service = ExecutorUtil.newMDCAwareVirtualThreadPerTaskExecutor("vtest");
+    MDC.put("collection", "vtest_collection");
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(
+            service.submit(
+                () -> {
+                  Thread t = Thread.currentThread();
+                  assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(t));
+                  assertTrue(t.getName(), t.getName().startsWith("vtest-"));
+                  return MDC.get("collection");
+                }));
+      }
+      for (Future<String> future : futures) {
+        assertEquals(
+            "vtest_collection", future.get(MAX_SANE_WAIT_DURRATION_MS, TimeUnit.MILLISECONDS));
+      }
+    } finally {
+      MDC.remove("collection");
+      ExecutorUtil.shutdownAndAwaitTermination(service);
+    }
+  }
+
+  @Test
+  public void testVirtualThreadsUnsupported() {
+    assumeFalse("Virtual threads are supported", ExecutorUtil.isVirtualThreadsSupported());
+    assertFalse(ExecutorUtil.useVirtualThreads(true));
+    assertFalse(ExecutorUtil.useVirtualThreads());
+    expectThrows(
+        UnsupportedOperationException.class,
+        () -> ExecutorUtil.newMDCAwareVirtualThreadPerTaskExecutor("vtest"));
+  }
 }